@@ -0,0 +1,118 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 【职责】: 为基准测试装配一个最小的 Spring 容器，只包含控制台和进程控制相关的几个服务。
+ * 不启动 Web 服务器和定时任务，测到的只是被测路径本身的开销；
+ * 各服务仍然通过 @Autowired 注入，与面板里的装配方式一致。
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * 使用给定的进程后端 (通常是基准里的桩实现)。
+     */
+    public static AnnotationConfigApplicationContext withBackend(ServerProcessBackend backend) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(ServerProcessBackend.class, () -> backend);
+        registerControlPlane(context);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * 使用真实的 {@link DirectProcessBackend}，服务器进程的管道和日志放在 dataDir 下。
+     */
+    public static AnnotationConfigApplicationContext direct(Path dataDir) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Map.of("tmodloader.paths.data-dir", dataDir.toString())));
+        // 控制台日志的读取靠目录监视唤醒
+        context.register(TmodloaderPaths.class, DirectoryWatchService.class, DirectProcessBackend.class);
+        registerControlPlane(context);
+        context.refresh();
+        return context;
+    }
+
+    private static void registerControlPlane(AnnotationConfigApplicationContext context) {
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(ExecutorConfig.class, ConsoleStreamService.class, CommandExecutor.class, ControlService.class,
+                ResourceMonitor.class, ResourceAllocator.class);
+    }
+
+    /**
+     * 只会返回一段固定抓取结果的后端，不提供控制台输出流，
+     * 因此 {@link ControlService#getTmuxOutput} 走的是 "抓取窗格再倒序查找" 的那条路径。
+     */
+    public static ServerProcessBackend capturingBackend(List<String> captured) {
+        return new ServerProcessBackend() {
+            @Override
+            public boolean start(String sessionName, List<String> command) {
+                return true;
+            }
+
+            @Override
+            public void send(String sessionName, String line) {
+            }
+
+            @Override
+            public void sendSecret(String sessionName, String line) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean supportsSecretInput() {
+                return false;
+            }
+
+            @Override
+            public boolean isRunning(String sessionName) {
+                return true;
+            }
+
+            @Override
+            public void kill(String sessionName) {
+            }
+
+            @Override
+            public void rename(String sessionName, String newName) {
+            }
+
+            @Override
+            public List<String> listSessions() {
+                return List.of();
+            }
+
+            @Override
+            public long getPid(String sessionName) {
+                return -1;
+            }
+
+            @Override
+            public List<String> capture(String sessionName, int lines) {
+                return captured.size() <= lines ? captured : captured.subList(captured.size() - lines, captured.size());
+            }
+
+            @Override
+            public ConsoleSource openConsole(String sessionName, ConsoleBuffer buffer) {
+                return null;
+            }
+
+            @Override
+            public void addSessionsChangedListener(Runnable listener) {
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.tModLoader_Board.Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 一条命令从面板发出到拿到结果的完整开销: 用一个 bash 写的假服务器代替 tModLoader，
+ * 经由真实的 {@link DirectProcessBackend} (命名管道输入、日志文件输出)、控制台输出流和 {@link CommandExecutor}。
+ * 假服务器收到 "playing" 就立即输出玩家列表，测到的全部是面板这一侧的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandRoundTripBenchmark {
+
+    private static final String SESSION = "tmodloader-bench";
+
+    @Param({"0", "16", "255"})
+    public int players;
+
+    private Path dataDir;
+    private AnnotationConfigApplicationContext context;
+    private ControlService controlService;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("tmodloader-bench");
+        Path script = writeFakeServer(dataDir.resolve("fake-tModLoaderServer.sh"), players);
+
+        context = BenchmarkContext.direct(dataDir);
+        controlService = context.getBean(ControlService.class);
+        ServerProcessBackend backend = context.getBean(ServerProcessBackend.class);
+        if (!backend.start(SESSION, List.of(script.toString()))) {
+            throw new IllegalStateException("假服务器启动失败");
+        }
+        context.getBean(CommandExecutor.class)
+                .waitForLine(SESSION, CommandExecutor.SERVER_STARTED, 10_000).get();
+
+        // 每次查询都会打印玩家列表，丢掉这些输出免得刷屏
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.setOut(originalOut);
+        try {
+            controlService.stopServer(SESSION);
+        } finally {
+            context.close();
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * 发送 "playing" 并等到 "N players connected." 出现，再解析出玩家名。
+     */
+    @Benchmark
+    public List<String> playersOnline() throws IOException, InterruptedException {
+        return controlService.getPlayersOnline(SESSION);
+    }
+
+    /**
+     * 只把一条命令写进服务器的输入，不等待输出。
+     */
+    @Benchmark
+    public void sendCommand() throws IOException, InterruptedException {
+        controlService.sendCommand(SESSION, "say benchmark");
+    }
+
+    private static Path writeFakeServer(Path script, int players) throws IOException {
+        StringBuilder playing = new StringBuilder();
+        for (String line : ConsoleFixtures.playingOutput(players)) {
+            playing.append(line).append('\n');
+        }
+        Path listing = Files.writeString(script.resolveSibling("playing.txt"), playing);
+
+        String body = "#!/bin/bash\n"
+                + "echo 'Listening on port 7777'\n"
+                + "echo 'Server started'\n"
+                + "while IFS= read -r line; do\n"
+                + "  case \"$line\" in\n"
+                + "    playing) cat '" + listing + "' ;;\n"
+                + "    exit) echo 'Saving world data: 100%'; exit 0 ;;\n"
+                + "  esac\n"
+                + "done\n";
+        Files.writeString(script, body);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return script;
+    }
+}
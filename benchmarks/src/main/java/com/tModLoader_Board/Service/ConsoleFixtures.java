@@ -0,0 +1,105 @@
+package com.tModLoader_Board.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 【职责】: 生成基准测试用的控制台输出，格式照着真实 tModLoader 专用服务器的控制台录下来的样子:
+ * 启动日志、玩家进出、聊天、自动存档，最后是一次 "playing" 命令的回显和它的输出。
+ * 使用固定的随机种子，同样的参数每次生成完全相同的内容。
+ */
+public final class ConsoleFixtures {
+
+    public static final String COMMAND = "playing";
+
+    private static final List<String> STARTUP = List.of(
+            "Terraria Server v1.4.4.9 - tModLoader v2024.05.3.1",
+            "Finding Mods...",
+            "Sandboxing: CalamityMod",
+            "Sandboxing: BossChecklist",
+            "Sandboxing: MagicStorage",
+            "Instantiating Mods...",
+            "Initializing: CalamityMod",
+            "Loading: CalamityMod",
+            "Adding Recipes...",
+            "Setting up...",
+            "Loading World: Benchmark World",
+            "Resetting game objects 100%",
+            "Loading world data: 100%",
+            "Settling liquids 100%",
+            "Listening on port 7777",
+            "Type 'help' for a list of commands.",
+            "",
+            "Server started");
+
+    private static final String[] CHAT = {
+            "anyone got a spare life crystal?", "boss in 5", "brb", "where is the dungeon",
+            "nice", "gg", "who has the playing card deck", "ok"};
+
+    private ConsoleFixtures() {
+    }
+
+    /**
+     * 一段共 totalLines 行的窗格抓取结果，末尾是 "playing" 的回显和 players 个玩家的输出。
+     * totalLines 小于命令输出本身的行数时，以命令输出为准。
+     */
+    public static List<String> capture(int totalLines, int players) {
+        List<String> tail = new ArrayList<>();
+        tail.add(": " + COMMAND);
+        tail.addAll(playingOutput(players));
+        tail.add(": ");
+
+        List<String> lines = new ArrayList<>(Math.max(totalLines, tail.size()));
+        Random random = new Random(42);
+        int noise = totalLines - tail.size();
+        for (int i = 0; i < noise; i++) {
+            lines.add(i < STARTUP.size() ? STARTUP.get(i) : noiseLine(random, i));
+        }
+        lines.addAll(tail);
+        return lines;
+    }
+
+    /**
+     * "playing" 命令的输出: 每个玩家一行 ": 名字 (IP:端口)"，最后一行是人数汇总。
+     */
+    public static List<String> playingOutput(int players) {
+        List<String> lines = new ArrayList<>(players + 1);
+        for (int i = 0; i < players; i++) {
+            lines.add(": " + playerName(i) + " (" + address(i) + ")");
+        }
+        lines.add(switch (players) {
+            case 0 -> "No players connected.";
+            case 1 -> "1 player connected.";
+            default -> players + " players connected.";
+        });
+        return lines;
+    }
+
+    /**
+     * 长短不一、带空格和符号的玩家名，确保解析时不能只靠第一个空格切分。
+     */
+    public static String playerName(int index) {
+        return switch (index % 4) {
+            case 0 -> "Player" + index;
+            case 1 -> "The Guide " + index;
+            case 2 -> "x_" + index + "_Slayer";
+            default -> "Mr. Tinkerer #" + index;
+        };
+    }
+
+    private static String address(int index) {
+        return "10.0." + (index / 250) + "." + (index % 250 + 1) + ":" + (50000 + index);
+    }
+
+    private static String noiseLine(Random random, int index) {
+        String name = playerName(random.nextInt(255));
+        return switch (random.nextInt(6)) {
+            case 0 -> name + " has joined.";
+            case 1 -> name + " has left.";
+            case 2 -> ": " + address(random.nextInt(255)) + " is connecting...";
+            case 3 -> "Saving world data: " + (index % 101) + "%";
+            default -> "<" + name + "> " + CHAT[random.nextInt(CHAT.length)];
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.tModLoader_Board.Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 {@link ConsoleLineParser} 识别一整段控制台输出，模拟读取线程在高日志速率下的开销。
+ * 加上 -prof gc 可以看到每行的分配量: 除了真正取出的玩家名，不应再有别的分配。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineParsingBenchmark {
+
+    @Param({"3000"})
+    public int lines;
+
+    private final ConsoleLineParser parser = new ConsoleLineParser();
+    private final StringBuilder line = new StringBuilder();
+    private List<String> captured;
+
+    @Setup
+    public void setUp() {
+        captured = ConsoleFixtures.capture(lines, 255);
+    }
+
+    /**
+     * 只识别格式，不取字段。
+     */
+    @Benchmark
+    public void classify(Blackhole blackhole) {
+        for (String text : captured) {
+            blackhole.consume(parser.parse(text, 0).getKind());
+        }
+    }
+
+    /**
+     * 像读取线程那样把每行先拷进复用的 StringBuilder 再识别，并取出进出事件里的玩家名。
+     */
+    @Benchmark
+    public void assembleAndExtract(Blackhole blackhole) {
+        for (String text : captured) {
+            line.setLength(0);
+            line.append(text);
+            ConsoleLineParser.Event event = parser.parse(line, 0);
+            if (event.getKind() == ConsoleLineParser.Kind.PLAYER_JOINED || event.getKind() == ConsoleLineParser.Kind.PLAYER_LEFT) {
+                blackhole.consume(event.playerName());
+            }
+        }
+    }
+}
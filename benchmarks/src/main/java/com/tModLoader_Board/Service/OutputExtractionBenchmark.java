@@ -0,0 +1,73 @@
+package com.tModLoader_Board.Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从一段控制台输出里取出最近一次命令之后的内容。
+ * captureScan: {@link ControlService#getTmuxOutput} 没有控制台输出流时的路径 (抓取 -> 倒序查找回显 -> 拼接)。
+ * bufferScan: 有输出流时的路径，直接在 {@link ConsoleBuffer} 里查找并取出之后的行。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputExtractionBenchmark {
+
+    private static final String SESSION = "tmodloader-bench";
+
+    @Param({"30", "3000", "300000"})
+    public int lines;
+
+    @Param({"0", "16", "255"})
+    public int players;
+
+    private AnnotationConfigApplicationContext context;
+    private ControlService controlService;
+    private ConsoleBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        List<String> captured = ConsoleFixtures.capture(lines, players);
+        context = BenchmarkContext.withBackend(BenchmarkContext.capturingBackend(captured));
+        controlService = context.getBean(ControlService.class);
+
+        buffer = new ConsoleBuffer(SESSION, captured.size());
+        for (String line : captured) {
+            buffer.append(line);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String captureScan() throws IOException, InterruptedException {
+        return controlService.getTmuxOutput(ConsoleFixtures.COMMAND, SESSION, lines);
+    }
+
+    @Benchmark
+    public String bufferScan() {
+        long sequence = buffer.findLast(ConsoleFixtures.COMMAND, lines);
+        return sequence == -1 ? "" : String.join(System.lineSeparator(), buffer.linesAfter(sequence)).trim();
+    }
+}
@@ -0,0 +1,62 @@
+package com.tModLoader_Board.Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析 "playing" 命令的输出 ({@link ControlService#parsePlayerList})，玩家数从 0 到 255。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerParsingBenchmark {
+
+    @Param({"0", "1", "16", "64", "255"})
+    public int players;
+
+    private AnnotationConfigApplicationContext context;
+    private ControlService controlService;
+    private String output;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.withBackend(BenchmarkContext.capturingBackend(List.of()));
+        controlService = context.getBean(ControlService.class);
+        output = String.join(System.lineSeparator(), ConsoleFixtures.playingOutput(players));
+
+        // parsePlayerList 每次都会打印解析结果；丢掉打印出的内容，只保留格式化本身的开销，免得刷屏
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> parsePlayerList() {
+        return controlService.parsePlayerList(output);
+    }
+}
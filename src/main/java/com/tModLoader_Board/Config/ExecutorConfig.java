@@ -0,0 +1,23 @@
+package com.tModLoader_Board.Config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 【职责】: 提供执行阻塞型进程 I/O 的线程池。
+ * 读 tmux 控制连接、读控制台管道、等待命令输出这些操作大部分时间都在阻塞，
+ * 放在虚拟线程上执行时阻塞不会占住载体线程，服务器再多也不会把线程池耗尽。
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String PROCESS_EXECUTOR = "processExecutor";
+
+    @Bean(name = PROCESS_EXECUTOR, destroyMethod = "shutdownNow")
+    public ExecutorService processExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("process-io-", 0).factory());
+    }
+}
@@ -0,0 +1,87 @@
+package com.tModLoader_Board.Config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * 【职责】: 集中管理 tModLoader 数据目录 (Mods、Worlds) 和启动脚本的位置。
+ * 都可以在配置文件或命令行里覆盖，这样同一台机器上可以跑多个使用不同数据目录的节点；
+ * 不配置时沿用原来按操作系统写死的默认路径。
+ */
+@Component
+public class TmodloaderPaths {
+
+    @Value("${tmodloader.paths.data-dir:}")
+    private String dataDir;
+
+    @Value("${tmodloader.paths.server-script:/home/abc/tmodloader/start-tModLoaderServer.sh}")
+    private String serverScript;
+
+    @PostConstruct
+    public void init() {
+        if (dataDir.isBlank()) {
+            String os = System.getProperty("os.name").toLowerCase();
+            dataDir = os.contains("win")
+                    ? "E:\\project\\java\\tmodloader_board\\src\\main\\resources\\up\\"
+                    : "/home/abc/.local/share/Terraria/tModLoader/";
+        }
+        if (!dataDir.endsWith("/") && !dataDir.endsWith(File.separator)) {
+            dataDir = dataDir + File.separator;
+        }
+        System.out.println("tModLoader 数据目录: " + dataDir);
+    }
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public String getModPath() {
+        return dataDir + "Mods" + File.separator;
+    }
+
+    public String getWorldPath() {
+        return dataDir + "Worlds" + File.separator;
+    }
+
+    /**
+     * 每组模组各自的模组目录 (模组链接 + enabled.json)，启动服务器时用 -modpath 指过去。
+     */
+    public String getProfilePath() {
+        return dataDir + "ModProfiles" + File.separator;
+    }
+
+    /**
+     * 面板直接管理服务器进程时，每个会话的管道、日志和 pid 文件放在这里。
+     */
+    public String getRunDir() {
+        return dataDir + "board-run" + File.separator;
+    }
+
+    /**
+     * 世界备份的块仓库和快照清单。
+     */
+    public String getBackupPath() {
+        return dataDir + "Backups" + File.separator;
+    }
+
+    /**
+     * 服务器崩溃或卡死时保存的最后一段控制台输出。
+     */
+    public String getCrashReportPath() {
+        return dataDir + "CrashReports" + File.separator;
+    }
+
+    /**
+     * 面板自己的状态日志 (服务器配置、生命周期事件、管理操作记录)。
+     */
+    public String getStatePath() {
+        return dataDir + "State" + File.separator;
+    }
+
+    public String getServerScript() {
+        return serverScript;
+    }
+}
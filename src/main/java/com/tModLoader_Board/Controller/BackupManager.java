@@ -0,0 +1,62 @@
+package com.tModLoader_Board.Controller;
+
+import com.tModLoader_Board.DTO.BackupRequest;
+import com.tModLoader_Board.DTO.BackupSnapshot;
+import com.tModLoader_Board.Service.BackupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+@RestController
+public class BackupManager {
+
+    @Autowired
+    private BackupService backupService;
+
+    @GetMapping("/manage/backups")
+    public List<BackupSnapshot> list(@RequestParam String world) {
+        try {
+            return backupService.listSnapshots(world);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @PostMapping("/manage/backups")
+    public BackupSnapshot backup(@RequestBody BackupRequest request) {
+        try {
+            return backupService.backup(request.getWorld(), BackupService.TRIGGER_MANUAL);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @PostMapping("/manage/backups/restore")
+    public BackupSnapshot restore(@RequestBody BackupRequest request) {
+        if ((request.getSnapshotId() == null || request.getSnapshotId().isBlank()) && request.getAt() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "snapshotId 和 at 至少要给一个");
+        }
+        try {
+            return backupService.restore(request.getWorld(), request.getSnapshotId(), request.getAt());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,17 +1,44 @@
 package com.tModLoader_Board.Controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tModLoader_Board.Config.TmodloaderPaths;
 import com.tModLoader_Board.DTO.GameConfig;
+import com.tModLoader_Board.DTO.ModInfo;
+import com.tModLoader_Board.DTO.ModStoreEntry;
+import com.tModLoader_Board.DTO.ProvisionJob;
+import com.tModLoader_Board.DTO.UploadStatus;
+import com.tModLoader_Board.DTO.WarmServer;
+import com.tModLoader_Board.DTO.WorldInfo;
 import com.tModLoader_Board.Service.ControlService;
+import com.tModLoader_Board.Service.DirectorySnapshotCache;
 import com.tModLoader_Board.Service.FileService;
+import com.tModLoader_Board.Service.ModCatalog;
+import com.tModLoader_Board.Service.ModStore;
+import com.tModLoader_Board.Service.NodeRegistry;
+import com.tModLoader_Board.Service.ProvisioningService;
 import com.tModLoader_Board.Service.StartService;
+import com.tModLoader_Board.Service.UploadService;
+import com.tModLoader_Board.Service.WarmServerPool;
+import com.tModLoader_Board.Service.WorldCatalog;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 
 
@@ -21,32 +48,50 @@ public class CreateService {
     private String modPath;
     private String worldPath;
 
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
     @Autowired
     private FileService fileService;
     @Autowired
     private  StartService startService;
     @Autowired
     private ControlService controlService;
+    @Autowired
+    private ProvisioningService provisioningService;
+    @Autowired
+    private UploadService uploadService;
+    @Autowired
+    private ModStore modStore;
+    @Autowired
+    private ModCatalog modCatalog;
+    @Autowired
+    private DirectorySnapshotCache directorySnapshotCache;
+    @Autowired
+    private WorldCatalog worldCatalog;
+    @Autowired
+    private NodeRegistry nodeRegistry;
+    @Autowired
+    private WarmServerPool warmServerPool;
+    @Autowired
+    private ObjectMapper objectMapper;
 
+    // 启动时就确定路径，上传和创建不再依赖先访问过 /create/modlist
+    @PostConstruct
     public void setPath(){
-        String os = System.getProperty("os.name").toLowerCase();
-        // 根据不同的系统执行不同的命令
-        String tmodloaderPath;
-        if (!os.contains("win")){
-            tmodloaderPath = "/home/abc/.local/share/Terraria/tModLoader/";
-            this.modPath = tmodloaderPath + "Mods/";
-            this.worldPath = tmodloaderPath + "Worlds/";
-        }
-        else {
-            tmodloaderPath = "E:\\project\\java\\tmodloader_board\\src\\main\\resources\\up\\";
-            this.modPath = tmodloaderPath + "Mods\\";
-            this.worldPath = tmodloaderPath + "Worlds\\";
-        }
+        this.modPath = tmodloaderPaths.getModPath();
+        this.worldPath = tmodloaderPaths.getWorldPath();
+        modStore.open(modPath);
+        modCatalog.open(modPath);
     }
 
     @PostMapping("/create/uploadmod")
     public String upload(MultipartFile file) {
         fileService.save_file(file, modPath);
+        try {
+            modStore.ingest(Paths.get(modPath, file.getOriginalFilename()), null);
+        } catch (IOException e) {
+            System.err.println("模组入库失败: " + e.getMessage());
+        }
         return "OK";
     }
 
@@ -56,37 +101,187 @@ public class CreateService {
         return "OK";
     }
 
-    @PostMapping("/create/create")
-    public String start(@RequestBody GameConfig config) {
-        System.out.println(config.getWorld());
+    // ===================================================================================
+    // 分块上传: 先 POST /create/upload 拿到 ID，再按顺序 PUT 各个分块，最后 commit。
+    // 分块请求体是原始字节 (application/octet-stream)，不经过 multipart 解析，直接写入目标目录。
+    // ===================================================================================
+
+    /**
+     * 上传模组时如果带上了 sha256 且模组仓库里已有相同内容，直接建立链接并返回已完成的状态，不用再传一遍。
+     */
+    @PostMapping("/create/upload")
+    public UploadStatus beginUpload(@RequestParam String fileName,
+                                    @RequestParam String type,
+                                    @RequestParam(defaultValue = "-1") long size,
+                                    @RequestParam(required = false) String sha256) {
+        String targetDir;
+        if ("mod".equals(type) && fileName.toLowerCase().endsWith(".tmod")) {
+            targetDir = modPath;
+        } else if ("world".equals(type) && fileName.toLowerCase().endsWith(".wld")) {
+            targetDir = worldPath;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "只能上传 .tmod 模组或 .wld 世界: " + fileName);
+        }
         try {
-            System.out.println(config.getMods());
-            startService.enableMods(config.getMods(), modPath + "enabled.json");
-            startService.startServer(config.getWorld(), config.getMaxPlayers(), config.getPort(), config.getPassword());
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+            if ("mod".equals(type) && modStore.contains(sha256)) {
+                String safeName = Paths.get(fileName).getFileName().toString();
+                ModStoreEntry entry = modStore.linkExisting(sha256, safeName);
+                if (entry != null) {
+                    return uploadService.completed(safeName, type, entry.getSize(), sha256);
+                }
+            }
+            return uploadService.begin(fileName, type, size, targetDir);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @GetMapping("/create/upload/{id}")
+    public UploadStatus uploadStatus(@PathVariable String id) {
+        UploadStatus status = uploadService.getStatus(id);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "上传不存在: " + id);
+        }
+        return status;
+    }
+
+    @PutMapping("/create/upload/{id}/chunk")
+    public UploadStatus uploadChunk(@PathVariable String id, @RequestParam long offset, HttpServletRequest request) {
+        try {
+            return uploadService.writeChunk(id, offset, request.getInputStream());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (UploadService.OffsetMismatchException | IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
         }
+    }
+
+    @PostMapping("/create/upload/{id}/commit")
+    public UploadStatus commitUpload(@PathVariable String id) {
+        try {
+            UploadStatus status = uploadService.commit(id);
+            if ("mod".equals(status.getType())) {
+                modStore.ingest(Paths.get(modPath, status.getFileName()), status.getSha256());
+            }
+            return status;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (UploadService.OffsetMismatchException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * 提交创建任务后立即返回任务信息，进度通过 /create/jobs/{id} 查询。
+     * 任务被分配到远程节点时，返回值里的 node 字段指明节点，之后的查询要经过 /nodes/{node}/ 转发。
+     */
+    @PostMapping("/create/create")
+    public JsonNode start(@RequestBody GameConfig config) {
+        System.out.println(config.getWorld());
+        System.out.println(config.getMods());
+        String node = config.getNode() == null || config.getNode().isBlank()
+                ? nodeRegistry.choosePlacement()
+                : config.getNode();
         try {
-            Thread.sleep(30000);
+            ObjectNode job;
+            if (nodeRegistry.isRemote(node)) {
+                // 远程节点上它自己就是本机
+                config.setNode(null);
+                job = (ObjectNode) nodeRegistry.postJson(node, "/create/create", config);
+            } else if (NodeRegistry.LOCAL.equals(node)) {
+                job = objectMapper.valueToTree(provisioningService.submit(config, modPath, worldPath));
+            } else {
+                throw new IllegalArgumentException("未知的节点: " + node);
+            }
+            job.put("node", node);
+            return job;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, e.getMessage());
         } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "请求被中断");
         }
-        return "OK";
     }
 
+    @GetMapping("/create/jobs/{id}")
+    public ProvisionJob job(@PathVariable String id) {
+        ProvisionJob job = provisioningService.getJob(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "任务不存在: " + id);
+        }
+        return job;
+    }
+
+    @GetMapping("/create/jobs")
+    public List<ProvisionJob> jobs() {
+        return provisioningService.getJobs();
+    }
+
+    /**
+     * 热备池里的实例 (已加载好模组、等待挂载世界)。
+     */
+    @GetMapping("/create/pool")
+    public List<WarmServer> pool() {
+        return warmServerPool.getInstances();
+    }
+
+    /**
+     * 模组仓库的索引。给了 name 时按模组名 (和 version，不给则取最近入库的那个版本) 查出对应的内容哈希。
+     */
+    @GetMapping("/create/modstore")
+    public List<ModStoreEntry> modstore(@RequestParam(required = false) String name,
+                                        @RequestParam(required = false) String version) {
+        if (name == null) {
+            return modStore.getEntries();
+        }
+        ModStoreEntry entry = modStore.find(name, version);
+        if (entry == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "仓库中没有模组 " + name + (version != null ? " " + version : ""));
+        }
+        return List.of(entry);
+    }
+
+    /**
+     * 带名称、版本、依赖等信息的模组列表，直接取自内存目录。
+     */
+    @GetMapping("/create/mods")
+    public List<ModInfo> mods() {
+        return modCatalog.getMods();
+    }
+
+    // 列表来自目录缓存；内容没变时返回 304，浏览器沿用缓存
     @GetMapping("/create/modlist")
-    public List<String> modlist() {
-        setPath();
-        String path = modPath;
-        String filename = ".tmod";
-        return fileService.getfilelist(path, filename);
+    public List<String> modlist(WebRequest request) {
+        DirectorySnapshotCache.Snapshot snapshot = directorySnapshotCache.getSnapshot(modPath, ".tmod");
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return snapshot.getFiles();
     }
 
     @GetMapping("/create/worldlist")
-    public List<String> worldlist() {
-        String path = worldPath;
-        String filename = ".wld";
-        return fileService.getfilelist(path, filename);
+    public List<String> worldlist(WebRequest request) {
+        DirectorySnapshotCache.Snapshot snapshot = directorySnapshotCache.getSnapshot(worldPath, ".wld");
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return snapshot.getFiles();
+    }
+
+    /**
+     * 带名称、种子、难度、尺寸等信息的世界列表，文件头解析结果按路径 + 修改时间 + 大小缓存。
+     */
+    @GetMapping("/create/worlds")
+    public List<WorldInfo> worlds() {
+        return worldCatalog.getWorlds(worldPath);
     }
 
     @PostMapping("/test1")
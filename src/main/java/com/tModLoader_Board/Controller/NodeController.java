@@ -0,0 +1,111 @@
+package com.tModLoader_Board.Controller;
+
+import com.tModLoader_Board.DTO.NodeStatus;
+import com.tModLoader_Board.Service.NodeRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class NodeController {
+
+    // 转发给节点的请求头和回传给浏览器的响应头
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of("Content-Type", "Accept", "If-None-Match", "Last-Event-ID");
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of("Content-Type", "ETag", "Cache-Control");
+
+    @Autowired
+    private NodeRegistry nodeRegistry;
+
+    /**
+     * 本机状态，供主面板轮询。
+     */
+    @GetMapping("/agent/status")
+    public NodeStatus agentStatus() {
+        return nodeRegistry.getLocalStatus();
+    }
+
+    @GetMapping("/nodes")
+    public List<NodeStatus> nodes() {
+        return nodeRegistry.getNodes();
+    }
+
+    /**
+     * 按当前资源情况，新服务器会被放到哪个节点。
+     */
+    @GetMapping("/nodes/placement")
+    public String placement() {
+        return nodeRegistry.choosePlacement();
+    }
+
+    /**
+     * 把 /nodes/{nodeId}/xxx 原样转发成节点上的 /xxx。响应体边读边写回，控制台 SSE 也能穿过去。
+     */
+    @RequestMapping("/nodes/{nodeId}/**")
+    public void proxy(@PathVariable String nodeId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!nodeRegistry.isRemote(nodeId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "未知的节点: " + nodeId);
+        }
+        String prefix = request.getContextPath() + "/nodes/" + nodeId;
+        String path = request.getRequestURI().substring(prefix.length());
+        if (request.getQueryString() != null) {
+            path += "?" + request.getQueryString();
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        HttpRequest.BodyPublisher body = request.getContentLengthLong() == 0
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        return request.getInputStream();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+
+        HttpResponse<InputStream> upstream;
+        try {
+            upstream = nodeRegistry.send(nodeId, request.getMethod(), path, headers, body);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "节点 '" + nodeId + "' 不可达: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "请求被中断");
+        }
+
+        response.setStatus(upstream.statusCode());
+        for (String name : FORWARDED_RESPONSE_HEADERS) {
+            upstream.headers().firstValue(name).ifPresent(value -> response.setHeader(name, value));
+        }
+        try (InputStream in = upstream.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+                // 每块都立即发出，SSE 的事件不能攒在缓冲区里
+                out.flush();
+            }
+        }
+    }
+}
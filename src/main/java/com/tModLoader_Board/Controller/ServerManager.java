@@ -1,13 +1,36 @@
 package com.tModLoader_Board.Controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tModLoader_Board.DTO.AllocationStatus;
+import com.tModLoader_Board.DTO.BatchRequest;
 import com.tModLoader_Board.DTO.PlayerManager;
+import com.tModLoader_Board.DTO.ServerDefinition;
+import com.tModLoader_Board.DTO.ServerEvent;
 import com.tModLoader_Board.DTO.ServerMessage;
+import com.tModLoader_Board.DTO.ServerStats;
+import com.tModLoader_Board.DTO.SupervisedServer;
+import com.tModLoader_Board.Service.BatchOperationService;
+import com.tModLoader_Board.Service.BoardEventHub;
 import com.tModLoader_Board.Service.ControlService;
+import com.tModLoader_Board.Service.PlayerRegistry;
 import com.tModLoader_Board.Service.PlayerService;
+import com.tModLoader_Board.Service.ResourceAllocator;
+import com.tModLoader_Board.Service.ResourceMonitor;
+import com.tModLoader_Board.Service.ServerSupervisor;
+import com.tModLoader_Board.Service.StateStore;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @RestController
@@ -19,8 +42,33 @@ public class ServerManager {
     @Autowired
     private PlayerService playerService;
 
+    @Autowired
+    private PlayerRegistry playerRegistry;
+
+    @Autowired
+    private BoardEventHub boardEventHub;
+
+    @Autowired
+    private BatchOperationService batchOperationService;
+
+    @Autowired
+    private ResourceMonitor resourceMonitor;
+
+    @Autowired
+    private ResourceAllocator resourceAllocator;
+
+    @Autowired
+    private ServerSupervisor serverSupervisor;
+
+    @Autowired
+    private StateStore stateStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/manage/stop")
-    public String stop(@RequestParam String sessionName) {
+    public String stop(@RequestParam String sessionName, HttpServletRequest request) {
+        stateStore.recordAction("stop", sessionName, request.getRemoteAddr(), null);
         try {
             controlService.stopServer(sessionName);
         } catch (IOException | InterruptedException e) {
@@ -30,18 +78,20 @@ public class ServerManager {
     }
 
     @PostMapping("/manage/broadcast")
-    public String broadcast(@RequestBody ServerMessage message) {
+    public String broadcast(@RequestBody ServerMessage message, HttpServletRequest request) {
         try {
             controlService.sendCommand(message.getSessionName(), "say " + message.getMessage());
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
+        stateStore.recordAction("broadcast", message.getSessionName(), request.getRemoteAddr(), message.getMessage());
         return "OK";
     }
 
     @PostMapping("/manage/kickOrban)")
-    public String kickOrban(@RequestBody PlayerManager playerManager) {
-        playerService.kickOrBanPlayer(playerManager.getPlayerName(), playerManager.getSessionName(), playerManager.getAction());
+    public String kickOrban(@RequestBody PlayerManager playerManager, HttpServletRequest request) {
+        playerService.kickOrBanPlayer(playerManager.getPlayerName(), playerManager.getSessionName(), playerManager.getAction(),
+                request.getRemoteAddr());
         return "OK";
     }
 
@@ -55,11 +105,154 @@ public class ServerManager {
     }
 
     @GetMapping("/manage/playerlist")
-    public List<String> PlayerLis(@RequestParam String sessionName){
+    public List<String> PlayerLis(@RequestParam String sessionName, WebRequest request){
+        try {
+            // 直接读取内存中的玩家列表；版本号没变时返回 304，浏览器沿用缓存
+            PlayerRegistry.Snapshot snapshot = playerRegistry.getSnapshot(sessionName);
+            if (request.checkNotModified(snapshot.getEtag())) {
+                return null;
+            }
+            return snapshot.getPlayers();
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 各服务器的 CPU、内存、磁盘 I/O: 当前值和降采样到最多 points 个点的历史。
+     */
+    @GetMapping("/manage/stats")
+    public List<ServerStats> stats(@RequestParam(required = false) String sessionName,
+                                   @RequestParam(defaultValue = "60") int points) {
+        return resourceMonitor.getStats(sessionName, points);
+    }
+
+    /**
+     * 本节点的端口范围、内存和 CPU 预算，以及各服务器的端口和资源预留。
+     */
+    @GetMapping("/manage/allocations")
+    public AllocationStatus allocations() {
+        return resourceAllocator.getStatus();
+    }
+
+    /**
+     * 各服务器的守护状态: 崩溃次数、最近一次崩溃的原因和最后几行输出、下一次自动重启的时间。
+     */
+    @GetMapping("/manage/supervisor")
+    public List<SupervisedServer> supervisor() {
+        return serverSupervisor.getServers();
+    }
+
+    /**
+     * 状态库里记录的服务器: 启动配置 (不含密码) 和最近一次已知的状态，面板重启后依然保留。
+     */
+    @GetMapping("/manage/servers/definitions")
+    public List<ServerDefinition> definitions() {
+        return stateStore.getServers();
+    }
+
+    /**
+     * 忘掉一个已经不在运行的服务器的定义，之后它崩溃或丢失都不会再被自动重启。
+     */
+    @PostMapping("/manage/servers/forget")
+    public String forget(@RequestParam String sessionName, HttpServletRequest request) {
+        try {
+            if (controlService.isSessionRunning(sessionName)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "服务器正在运行，请先停止");
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if (!stateStore.removeServer(sessionName)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "没有服务器 " + sessionName + " 的记录");
+        }
+        stateStore.recordAction("forget", sessionName, request.getRemoteAddr(), null);
+        return "OK";
+    }
+
+    /**
+     * 最近的生命周期事件和管理操作记录 (新的在前)，sessionName 为空时返回所有服务器的。
+     */
+    @GetMapping("/manage/events")
+    public List<ServerEvent> events(@RequestParam(required = false) String sessionName,
+                                    @RequestParam(defaultValue = "100") int limit) {
+        return stateStore.getEvents(sessionName, limit);
+    }
+
+    /**
+     * 推送服务器启停、玩家进出 (以及指定会话的控制台输出) 的 SSE 流。
+     */
+    @GetMapping(value = "/manage/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String sessionName) {
+        return boardEventHub.subscribe(sessionName);
+    }
+
+    // ===================================================================================
+    // 批量操作: 请求体为 BatchRequest，响应为 NDJSON，每完成一个会话输出一行 BatchResult
+    // ===================================================================================
+
+    /**
+     * 批量优雅停服: 同时向各服务器发送 exit 并等待它们各自退出。
+     */
+    @PostMapping("/manage/batch/stop")
+    public ResponseEntity<StreamingResponseBody> batchStop(@RequestBody BatchRequest request, HttpServletRequest httpRequest) {
+        String actor = httpRequest.getRemoteAddr();
+        return batch(request, sessionName -> {
+            if (!controlService.isSessionRunning(sessionName)) {
+                throw new IllegalStateException("会话未在运行");
+            }
+            stateStore.recordAction("stop", sessionName, actor, null);
+            controlService.stopServer(sessionName);
+        });
+    }
+
+    @PostMapping("/manage/batch/broadcast")
+    public ResponseEntity<StreamingResponseBody> batchBroadcast(@RequestBody BatchRequest request, HttpServletRequest httpRequest) {
+        if (request.getMessage() == null || request.getMessage().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "消息不能为空");
+        }
+        String actor = httpRequest.getRemoteAddr();
+        return batch(request, sessionName -> {
+            controlService.sendCommand(sessionName, "say " + request.getMessage());
+            stateStore.recordAction("broadcast", sessionName, actor, request.getMessage());
+        });
+    }
+
+    @PostMapping("/manage/batch/kickOrban")
+    public ResponseEntity<StreamingResponseBody> batchKickOrBan(@RequestBody BatchRequest request, HttpServletRequest httpRequest) {
+        if (!"kick".equals(request.getAction()) && !"ban".equals(request.getAction())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "action 只能是 kick 或 ban");
+        }
+        if (request.getPlayerName() == null || request.getPlayerName().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "玩家名不能为空");
+        }
+        String actor = httpRequest.getRemoteAddr();
+        return batch(request, sessionName -> {
+            controlService.sendCommand(sessionName, request.getAction() + " " + request.getPlayerName());
+            stateStore.recordAction(request.getAction(), sessionName, actor, request.getPlayerName());
+        });
+    }
+
+    private ResponseEntity<StreamingResponseBody> batch(BatchRequest request, BatchOperationService.SessionOperation operation) {
+        List<String> sessions;
         try {
-            return controlService.getPlayersOnline(sessionName);
+            sessions = batchOperationService.resolveSessions(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
+        StreamingResponseBody body = (OutputStream out) -> {
+            try {
+                batchOperationService.execute(sessions, operation, result -> {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 }
@@ -0,0 +1,155 @@
+package com.tModLoader_Board.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本节点的端口和资源分配情况: 端口范围、内存和 CPU 的预算与已预留量，以及每个服务器的预留。
+ */
+public class AllocationStatus {
+
+    /**
+     * 一个服务器 (或热备实例) 占用的端口和预留的资源。
+     */
+    public static class Reservation {
+        private String sessionName;
+        // 热备实例还没有世界，不占端口，为 0
+        private int port;
+        private long memoryBytes;
+        private double cpus;
+        private long reservedAt;
+        // 已经看到会话在运行；之后会话消失时预留会被自动释放
+        private boolean running;
+
+        public String getSessionName() {
+            return sessionName;
+        }
+
+        public void setSessionName(String sessionName) {
+            this.sessionName = sessionName;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        public void setMemoryBytes(long memoryBytes) {
+            this.memoryBytes = memoryBytes;
+        }
+
+        public double getCpus() {
+            return cpus;
+        }
+
+        public void setCpus(double cpus) {
+            this.cpus = cpus;
+        }
+
+        public long getReservedAt() {
+            return reservedAt;
+        }
+
+        public void setReservedAt(long reservedAt) {
+            this.reservedAt = reservedAt;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        public void setRunning(boolean running) {
+            this.running = running;
+        }
+    }
+
+    private int portRangeStart;
+    private int portRangeEnd;
+    private int portsUsed;
+    private long memoryBudget;
+    private long memoryReserved;
+    private double cpuBudget;
+    private double cpuReserved;
+    // 正在排队等待资源的创建任务数
+    private int waiting;
+    private List<Reservation> reservations = new ArrayList<>();
+
+    public int getPortRangeStart() {
+        return portRangeStart;
+    }
+
+    public void setPortRangeStart(int portRangeStart) {
+        this.portRangeStart = portRangeStart;
+    }
+
+    public int getPortRangeEnd() {
+        return portRangeEnd;
+    }
+
+    public void setPortRangeEnd(int portRangeEnd) {
+        this.portRangeEnd = portRangeEnd;
+    }
+
+    public int getPortsUsed() {
+        return portsUsed;
+    }
+
+    public void setPortsUsed(int portsUsed) {
+        this.portsUsed = portsUsed;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public long getMemoryReserved() {
+        return memoryReserved;
+    }
+
+    public void setMemoryReserved(long memoryReserved) {
+        this.memoryReserved = memoryReserved;
+    }
+
+    public double getCpuBudget() {
+        return cpuBudget;
+    }
+
+    public void setCpuBudget(double cpuBudget) {
+        this.cpuBudget = cpuBudget;
+    }
+
+    public double getCpuReserved() {
+        return cpuReserved;
+    }
+
+    public void setCpuReserved(double cpuReserved) {
+        this.cpuReserved = cpuReserved;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public void setWaiting(int waiting) {
+        this.waiting = waiting;
+    }
+
+    public List<Reservation> getReservations() {
+        return reservations;
+    }
+
+    public void setReservations(List<Reservation> reservations) {
+        this.reservations = reservations;
+    }
+}
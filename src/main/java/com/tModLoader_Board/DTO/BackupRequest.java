@@ -0,0 +1,35 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 手动备份或恢复一个世界的请求。恢复时 snapshotId 与 at 二选一:
+ * at 为毫秒时间戳，表示恢复到该时刻或之前的最近一个快照。
+ */
+public class BackupRequest {
+    private String world;
+    private String snapshotId;
+    private Long at;
+
+    public String getWorld() {
+        return world;
+    }
+
+    public void setWorld(String world) {
+        this.world = world;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public Long getAt() {
+        return at;
+    }
+
+    public void setAt(Long at) {
+        this.at = at;
+    }
+}
@@ -0,0 +1,162 @@
+package com.tModLoader_Board.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个世界在某一时刻的备份快照 (.wld 和 .twld)，同时也是保存在磁盘上的快照清单。
+ * 每个文件记为一串块的 SHA-256，块本身压缩后存放在共享的块仓库里。
+ */
+public class BackupSnapshot {
+
+    public static class FileEntry {
+        private String name;
+        private long size;
+        private long lastModified;
+        private String sha256;
+        // 列表接口里不返回，只在清单文件中保存
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private List<String> chunks;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+
+        public List<String> getChunks() {
+            return chunks;
+        }
+
+        public void setChunks(List<String> chunks) {
+            this.chunks = chunks;
+        }
+    }
+
+    private String id;
+    private String world;
+    // scheduled / manual / pre-restore
+    private String trigger;
+    private long createdAt;
+    // 服务器在运行并确认了存档；为 false 时快照取自停机状态或存档确认超时
+    private boolean saveConfirmed;
+    private long totalBytes;
+    // 本次新写入块仓库的压缩后字节数，其余块与之前的快照共用
+    private long storedBytes;
+    private List<FileEntry> files = new ArrayList<>();
+
+    /**
+     * 不含块列表的副本，用于列表接口。
+     */
+    public BackupSnapshot summary() {
+        BackupSnapshot copy = new BackupSnapshot();
+        copy.id = id;
+        copy.world = world;
+        copy.trigger = trigger;
+        copy.createdAt = createdAt;
+        copy.saveConfirmed = saveConfirmed;
+        copy.totalBytes = totalBytes;
+        copy.storedBytes = storedBytes;
+        for (FileEntry file : files) {
+            FileEntry entry = new FileEntry();
+            entry.name = file.name;
+            entry.size = file.size;
+            entry.lastModified = file.lastModified;
+            entry.sha256 = file.sha256;
+            copy.files.add(entry);
+        }
+        return copy;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public void setWorld(String world) {
+        this.world = world;
+    }
+
+    public String getTrigger() {
+        return trigger;
+    }
+
+    public void setTrigger(String trigger) {
+        this.trigger = trigger;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public boolean isSaveConfirmed() {
+        return saveConfirmed;
+    }
+
+    public void setSaveConfirmed(boolean saveConfirmed) {
+        this.saveConfirmed = saveConfirmed;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(long storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
+    public List<FileEntry> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<FileEntry> files) {
+        this.files = files;
+    }
+}
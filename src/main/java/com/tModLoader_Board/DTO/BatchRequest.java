@@ -0,0 +1,56 @@
+package com.tModLoader_Board.DTO;
+
+import java.util.List;
+
+/**
+ * 批量操作的请求。sessions 和 selector 二选一: selector 为 "all" 时作用于所有正在运行的服务器。
+ */
+public class BatchRequest {
+    private List<String> sessions;
+    private String selector;
+    // 批量通报的内容
+    private String message;
+    // 批量踢出/封禁的玩家名和动作 (kick 或 ban)
+    private String playerName;
+    private String action;
+
+    public List<String> getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(List<String> sessions) {
+        this.sessions = sessions;
+    }
+
+    public String getSelector() {
+        return selector;
+    }
+
+    public void setSelector(String selector) {
+        this.selector = selector;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public void setPlayerName(String playerName) {
+        this.playerName = playerName;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+}
@@ -0,0 +1,50 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 批量操作中单个会话的结果，每完成一个就以一行 JSON 推给客户端。
+ */
+public class BatchResult {
+    private String sessionName;
+    private boolean success;
+    private String error;
+    private long durationMillis;
+
+    public BatchResult() {
+    }
+
+    public BatchResult(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public void setSessionName(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+}
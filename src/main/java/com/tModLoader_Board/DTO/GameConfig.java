@@ -7,6 +7,8 @@ public class GameConfig {
     private String maxPlayers;
     private String port;
     private String password;
+    // 部署到哪个节点，为空时由面板按各节点剩余资源自动选择
+    private String node;
 
 
     // getter 和 setter（Lombok的话用 @Data 就行）
@@ -50,4 +52,12 @@ public class GameConfig {
         this.password = password;
     }
 
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
 }
\ No newline at end of file
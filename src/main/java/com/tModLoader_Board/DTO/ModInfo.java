@@ -0,0 +1,109 @@
+package com.tModLoader_Board.DTO;
+
+import java.util.List;
+
+/**
+ * 从 .tmod 文件头和 Info 清单中读出的模组信息。
+ */
+public class ModInfo {
+    private String fileName;
+    private String name;
+    private String displayName;
+    private String version;
+    private String author;
+    private String loaderVersion;
+    // 文件头中记录的 SHA-1 (十六进制)，不需要读完整个文件就能得到
+    private String hash;
+    private long size;
+    private long lastModified;
+    private List<String> dependencies;
+    private List<String> weakDependencies;
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getLoaderVersion() {
+        return loaderVersion;
+    }
+
+    public void setLoaderVersion(String loaderVersion) {
+        this.loaderVersion = loaderVersion;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(List<String> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    public List<String> getWeakDependencies() {
+        return weakDependencies;
+    }
+
+    public void setWeakDependencies(List<String> weakDependencies) {
+        this.weakDependencies = weakDependencies;
+    }
+}
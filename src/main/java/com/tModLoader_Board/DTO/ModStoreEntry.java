@@ -0,0 +1,52 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 模组仓库索引中的一条记录: 模组名 + 版本 -> 内容的 SHA-256。
+ */
+public class ModStoreEntry {
+    private String name;
+    private String version;
+    private String sha256;
+    private long size;
+    private long storedAt;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    public void setStoredAt(long storedAt) {
+        this.storedAt = storedAt;
+    }
+}
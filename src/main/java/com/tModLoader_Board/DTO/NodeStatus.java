@@ -0,0 +1,108 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 一个节点 (运行服务器的机器) 的状态和剩余资源，节点通过 /agent/status 上报。
+ */
+public class NodeStatus {
+    private String id;
+    private String url;
+    private boolean online;
+    private String error;
+    private int cpuCount;
+    // 整机 CPU 使用率 (0 ~ 1)，取不到时为负数
+    private double cpuLoad;
+    private long memoryTotal;
+    private long memoryAvailable;
+    // 内存预算中还没有被服务器预留的部分
+    private long memoryUnreserved;
+    private int servers;
+    private long lastSeen;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getCpuCount() {
+        return cpuCount;
+    }
+
+    public void setCpuCount(int cpuCount) {
+        this.cpuCount = cpuCount;
+    }
+
+    public double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    public void setCpuLoad(double cpuLoad) {
+        this.cpuLoad = cpuLoad;
+    }
+
+    public long getMemoryTotal() {
+        return memoryTotal;
+    }
+
+    public void setMemoryTotal(long memoryTotal) {
+        this.memoryTotal = memoryTotal;
+    }
+
+    public long getMemoryAvailable() {
+        return memoryAvailable;
+    }
+
+    public void setMemoryAvailable(long memoryAvailable) {
+        this.memoryAvailable = memoryAvailable;
+    }
+
+    public long getMemoryUnreserved() {
+        return memoryUnreserved;
+    }
+
+    public void setMemoryUnreserved(long memoryUnreserved) {
+        this.memoryUnreserved = memoryUnreserved;
+    }
+
+    public int getServers() {
+        return servers;
+    }
+
+    public void setServers(int servers) {
+        this.servers = servers;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(long lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+}
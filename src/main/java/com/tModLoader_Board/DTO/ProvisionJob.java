@@ -0,0 +1,193 @@
+package com.tModLoader_Board.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一次创建服务器的异步任务，以及它每个阶段的状态和耗时。
+ */
+public class ProvisionJob {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    /** 这次不需要执行的阶段，例如用了热备实例时的写模组配置和启动会话。 */
+    public static final String SKIPPED = "SKIPPED";
+
+    public static class Stage {
+        private final String name;
+        private String status = QUEUED;
+        private long startedAt;
+        private long durationMillis;
+
+        public Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    private final String id;
+    private final String sessionName;
+    private final GameConfig config;
+    private final long createdAt = System.currentTimeMillis();
+    private final List<Stage> stages = new ArrayList<>();
+    private String status = QUEUED;
+    private String error;
+    private long finishedAt;
+    // 分配到的端口，预留阶段完成前为 0
+    private int port;
+    private final CompletableFuture<ProvisionJob> completion = new CompletableFuture<>();
+
+    public ProvisionJob(String id, String sessionName, GameConfig config, List<String> stageNames) {
+        this.id = id;
+        this.sessionName = sessionName;
+        this.config = config;
+        for (String stageName : stageNames) {
+            stages.add(new Stage(stageName));
+        }
+    }
+
+    // ===================================================================================
+    // 状态推进 (由执行任务的线程调用)
+    // ===================================================================================
+
+    public synchronized void startStage(String stageName) {
+        status = RUNNING;
+        Stage stage = find(stageName);
+        stage.status = RUNNING;
+        stage.startedAt = System.currentTimeMillis();
+    }
+
+    public synchronized void finishStage(String stageName) {
+        Stage stage = find(stageName);
+        stage.status = SUCCEEDED;
+        stage.durationMillis = System.currentTimeMillis() - stage.startedAt;
+    }
+
+    public synchronized void skipStage(String stageName) {
+        Stage stage = find(stageName);
+        if (RUNNING.equals(stage.status)) {
+            stage.durationMillis = System.currentTimeMillis() - stage.startedAt;
+        }
+        stage.status = SKIPPED;
+    }
+
+    public synchronized void assignPort(int port) {
+        this.port = port;
+    }
+
+    public void succeed() {
+        synchronized (this) {
+            status = SUCCEEDED;
+            finishedAt = System.currentTimeMillis();
+        }
+        completion.complete(this);
+    }
+
+    public void fail(String error) {
+        synchronized (this) {
+            for (Stage stage : stages) {
+                if (RUNNING.equals(stage.status)) {
+                    stage.status = FAILED;
+                    stage.durationMillis = System.currentTimeMillis() - stage.startedAt;
+                }
+            }
+            this.status = FAILED;
+            this.error = error;
+            finishedAt = System.currentTimeMillis();
+        }
+        completion.complete(this);
+    }
+
+    /**
+     * 任务结束 (成功或失败) 时完成。回调在执行任务的线程上运行，不要在里面做耗时操作。
+     */
+    public CompletableFuture<ProvisionJob> whenFinished() {
+        return completion;
+    }
+
+    private Stage find(String stageName) {
+        for (Stage stage : stages) {
+            if (stage.name.equals(stageName)) {
+                return stage;
+            }
+        }
+        throw new IllegalArgumentException("未知的阶段: " + stageName);
+    }
+
+    // ===================================================================================
+    // getter
+    // ===================================================================================
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    // 配置里有服务器密码，不随任务状态返回给前端
+    @JsonIgnore
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized String getStatus() {
+        return status;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    public synchronized int getPort() {
+        return port;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized boolean isFinished() {
+        return SUCCEEDED.equals(status) || FAILED.equals(status);
+    }
+
+    /**
+     * 返回各阶段的副本，避免序列化时与执行线程互相干扰。
+     */
+    public synchronized List<Stage> getStages() {
+        List<Stage> copy = new ArrayList<>();
+        for (Stage stage : stages) {
+            Stage s = new Stage(stage.name);
+            s.status = stage.status;
+            s.startedAt = stage.startedAt;
+            s.durationMillis = stage.durationMillis;
+            copy.add(s);
+        }
+        return copy;
+    }
+}
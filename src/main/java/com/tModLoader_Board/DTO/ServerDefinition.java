@@ -0,0 +1,91 @@
+package com.tModLoader_Board.DTO;
+
+import java.util.List;
+
+/**
+ * 状态库里记录的一个服务器: 启动它用的配置 (不含密码) 和最近一次已知的状态。
+ */
+public class ServerDefinition {
+    private String sessionName;
+    private String world;
+    private List<String> mods;
+    private String maxPlayers;
+    private String port;
+    private boolean passwordProtected;
+    // RUNNING / STOPPED / CRASHED / CRASH_LOOP / LOST (面板重启时发现会话已经不在了)
+    private String status;
+    private long createdAt;
+    private long updatedAt;
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public void setSessionName(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public void setWorld(String world) {
+        this.world = world;
+    }
+
+    public List<String> getMods() {
+        return mods;
+    }
+
+    public void setMods(List<String> mods) {
+        this.mods = mods;
+    }
+
+    public String getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public void setMaxPlayers(String maxPlayers) {
+        this.maxPlayers = maxPlayers;
+    }
+
+    public String getPort() {
+        return port;
+    }
+
+    public void setPort(String port) {
+        this.port = port;
+    }
+
+    public boolean isPasswordProtected() {
+        return passwordProtected;
+    }
+
+    public void setPasswordProtected(boolean passwordProtected) {
+        this.passwordProtected = passwordProtected;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,76 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 状态库里的一条事件: 服务器的生命周期变化 (创建、停止、崩溃、重启……) 或管理操作 (踢人、封禁、通报……)。
+ */
+public class ServerEvent {
+    public static final String LIFECYCLE = "lifecycle";
+    public static final String ADMIN = "admin";
+
+    // 单调递增，面板重启后接着编号
+    private long id;
+    private long time;
+    // lifecycle / admin
+    private String category;
+    private String type;
+    private String sessionName;
+    // 发起管理操作的客户端地址；生命周期事件为 null
+    private String actor;
+    private String detail;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public void setSessionName(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public void setActor(String actor) {
+        this.actor = actor;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+}
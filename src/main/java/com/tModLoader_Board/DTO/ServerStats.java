@@ -0,0 +1,153 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 一个服务器会话的资源占用: 最近一次采样的值，外加按请求点数降采样后的历史曲线。
+ * 数值是会话整棵进程树 (启动脚本、dotnet 服务器及其子进程) 的合计。
+ */
+public class ServerStats {
+
+    /**
+     * 降采样后的历史，各数组等长，下标相同的元素属于同一个时间点。
+     */
+    public static class History {
+        private long[] timestamps;
+        // 每个时间点取该段内的平均值；内存取该段内的最大值，峰值不会被平均掉
+        private double[] cpuPercent;
+        private long[] rssBytes;
+        private double[] readBytesPerSecond;
+        private double[] writeBytesPerSecond;
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        public void setTimestamps(long[] timestamps) {
+            this.timestamps = timestamps;
+        }
+
+        public double[] getCpuPercent() {
+            return cpuPercent;
+        }
+
+        public void setCpuPercent(double[] cpuPercent) {
+            this.cpuPercent = cpuPercent;
+        }
+
+        public long[] getRssBytes() {
+            return rssBytes;
+        }
+
+        public void setRssBytes(long[] rssBytes) {
+            this.rssBytes = rssBytes;
+        }
+
+        public double[] getReadBytesPerSecond() {
+            return readBytesPerSecond;
+        }
+
+        public void setReadBytesPerSecond(double[] readBytesPerSecond) {
+            this.readBytesPerSecond = readBytesPerSecond;
+        }
+
+        public double[] getWriteBytesPerSecond() {
+            return writeBytesPerSecond;
+        }
+
+        public void setWriteBytesPerSecond(double[] writeBytesPerSecond) {
+            this.writeBytesPerSecond = writeBytesPerSecond;
+        }
+    }
+
+    private String sessionName;
+    private long pid;
+    private int processes;
+    private int threads;
+    private long sampledAt;
+    // 100 表示占满一个核，多核时可以超过 100
+    private double cpuPercent;
+    private long rssBytes;
+    // 读不到 /proc/<pid>/io (权限不足) 时为负数
+    private double readBytesPerSecond;
+    private double writeBytesPerSecond;
+    private History history;
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public void setSessionName(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    public void setPid(long pid) {
+        this.pid = pid;
+    }
+
+    public int getProcesses() {
+        return processes;
+    }
+
+    public void setProcesses(int processes) {
+        this.processes = processes;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getSampledAt() {
+        return sampledAt;
+    }
+
+    public void setSampledAt(long sampledAt) {
+        this.sampledAt = sampledAt;
+    }
+
+    public double getCpuPercent() {
+        return cpuPercent;
+    }
+
+    public void setCpuPercent(double cpuPercent) {
+        this.cpuPercent = cpuPercent;
+    }
+
+    public long getRssBytes() {
+        return rssBytes;
+    }
+
+    public void setRssBytes(long rssBytes) {
+        this.rssBytes = rssBytes;
+    }
+
+    public double getReadBytesPerSecond() {
+        return readBytesPerSecond;
+    }
+
+    public void setReadBytesPerSecond(double readBytesPerSecond) {
+        this.readBytesPerSecond = readBytesPerSecond;
+    }
+
+    public double getWriteBytesPerSecond() {
+        return writeBytesPerSecond;
+    }
+
+    public void setWriteBytesPerSecond(double writeBytesPerSecond) {
+        this.writeBytesPerSecond = writeBytesPerSecond;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public void setHistory(History history) {
+        this.history = history;
+    }
+}
@@ -0,0 +1,112 @@
+package com.tModLoader_Board.DTO;
+
+import java.util.List;
+
+/**
+ * 守护进程眼中的一个服务器: 当前状态、崩溃次数，以及最近一次崩溃 (或卡死) 的原因和最后几行控制台输出。
+ */
+public class SupervisedServer {
+    private String sessionName;
+    // STARTING / RUNNING / RESTARTING / CRASH_LOOP / CRASHED
+    private String status;
+    // 是否有启动配置，没有的 (不是由本面板创建的) 崩溃后不会自动重启
+    private boolean restartable;
+    // 崩溃窗口内的崩溃次数
+    private int recentCrashes;
+    private int restarts;
+    private long lastCrashAt;
+    private String lastCrashReason;
+    // 崩溃报告文件 (完整的最后一段控制台输出)
+    private String lastCrashReport;
+    private List<String> lastLines;
+    private long nextRestartAt;
+    private String restartJobId;
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public void setSessionName(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isRestartable() {
+        return restartable;
+    }
+
+    public void setRestartable(boolean restartable) {
+        this.restartable = restartable;
+    }
+
+    public int getRecentCrashes() {
+        return recentCrashes;
+    }
+
+    public void setRecentCrashes(int recentCrashes) {
+        this.recentCrashes = recentCrashes;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public void setRestarts(int restarts) {
+        this.restarts = restarts;
+    }
+
+    public long getLastCrashAt() {
+        return lastCrashAt;
+    }
+
+    public void setLastCrashAt(long lastCrashAt) {
+        this.lastCrashAt = lastCrashAt;
+    }
+
+    public String getLastCrashReason() {
+        return lastCrashReason;
+    }
+
+    public void setLastCrashReason(String lastCrashReason) {
+        this.lastCrashReason = lastCrashReason;
+    }
+
+    public String getLastCrashReport() {
+        return lastCrashReport;
+    }
+
+    public void setLastCrashReport(String lastCrashReport) {
+        this.lastCrashReport = lastCrashReport;
+    }
+
+    public List<String> getLastLines() {
+        return lastLines;
+    }
+
+    public void setLastLines(List<String> lastLines) {
+        this.lastLines = lastLines;
+    }
+
+    public long getNextRestartAt() {
+        return nextRestartAt;
+    }
+
+    public void setNextRestartAt(long nextRestartAt) {
+        this.nextRestartAt = nextRestartAt;
+    }
+
+    public String getRestartJobId() {
+        return restartJobId;
+    }
+
+    public void setRestartJobId(String restartJobId) {
+        this.restartJobId = restartJobId;
+    }
+}
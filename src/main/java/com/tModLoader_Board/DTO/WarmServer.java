@@ -0,0 +1,56 @@
+package com.tModLoader_Board.DTO;
+
+import java.util.List;
+
+/**
+ * 热备池里的一个服务器实例: 已经 (或正在) 加载好一组模组，还没有挂上世界。
+ */
+public class WarmServer {
+    private String sessionName;
+    // 排序后的模组内部名，与创建请求的模组组合完全一致时才会被使用
+    private List<String> mods;
+    // WARMING / READY
+    private String status;
+    private long startedAt;
+    private long readyAt;
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public void setSessionName(String sessionName) {
+        this.sessionName = sessionName;
+    }
+
+    public List<String> getMods() {
+        return mods;
+    }
+
+    public void setMods(List<String> mods) {
+        this.mods = mods;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getReadyAt() {
+        return readyAt;
+    }
+
+    public void setReadyAt(long readyAt) {
+        this.readyAt = readyAt;
+    }
+}
@@ -0,0 +1,128 @@
+package com.tModLoader_Board.DTO;
+
+/**
+ * 从 .wld 文件头中读出的世界信息。
+ */
+public class WorldInfo {
+    private String fileName;
+    private String name;
+    private String seed;
+    // classic / expert / master / journey
+    private String difficulty;
+    // small / medium / large，非标准尺寸为 custom
+    private String worldSize;
+    private int width;
+    private int height;
+    private int fileVersion;
+    private long createdAt;
+    // Terraria 自己也是用文件修改时间作为 "上次游玩" 时间
+    private long lastPlayed;
+    private long size;
+    private boolean favorite;
+    // 是否存在同名的 .twld (tModLoader 的模组数据)
+    private boolean hasModData;
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSeed() {
+        return seed;
+    }
+
+    public void setSeed(String seed) {
+        this.seed = seed;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public String getWorldSize() {
+        return worldSize;
+    }
+
+    public void setWorldSize(String worldSize) {
+        this.worldSize = worldSize;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public int getFileVersion() {
+        return fileVersion;
+    }
+
+    public void setFileVersion(int fileVersion) {
+        this.fileVersion = fileVersion;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getLastPlayed() {
+        return lastPlayed;
+    }
+
+    public void setLastPlayed(long lastPlayed) {
+        this.lastPlayed = lastPlayed;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public boolean isFavorite() {
+        return favorite;
+    }
+
+    public void setFavorite(boolean favorite) {
+        this.favorite = favorite;
+    }
+
+    public boolean isHasModData() {
+        return hasModData;
+    }
+
+    public void setHasModData(boolean hasModData) {
+        this.hasModData = hasModData;
+    }
+}
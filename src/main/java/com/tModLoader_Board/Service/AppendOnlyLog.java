@@ -0,0 +1,279 @@
+package com.tModLoader_Board.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * 【职责】: 只追加的日志，由一串定长、内存映射的段文件 (NNNNNNNN.seg) 组成。
+ * 每条记录是 [长度 4][CRC32C 4][类型 1][内容]，长度最后写入，段里长度为 0 的位置就是末尾；
+ * 写到一半断电留下的残缺记录在打开时因校验失败被截掉。
+ * 压缩时把调用方给出的当前有效记录写进一个新的 "基准" 段 (先写临时文件再原子改名)，之后它之前的段全部作废。
+ * 不是线程安全的，由调用方加锁。
+ */
+class AppendOnlyLog implements Closeable {
+
+    // "TMLS"
+    private static final int MAGIC = 0x544D4C53;
+    private static final short VERSION = 1;
+    private static final short FLAG_BASE = 1;
+    private static final int SEGMENT_HEADER = 16;
+    private static final int RECORD_HEADER = 9;
+    private static final String EXTENSION = ".seg";
+
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * payload 只在回调期间有效。
+         */
+        void accept(byte type, ByteBuffer payload) throws IOException;
+    }
+
+    /**
+     * 压缩时写入新基准段的一条记录。
+     */
+    record Entry(byte type, byte[] payload) {
+    }
+
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean sync;
+    private final CRC32C crc = new CRC32C();
+
+    private long activeIndex;
+    private MappedByteBuffer active;
+    // 当前所有段里的记录数 (包括已被覆盖的)，用来判断是否值得压缩
+    private long records;
+    private int segments;
+
+    /**
+     * @param sync 每条记录写入后立即刷到磁盘；关闭时由操作系统决定何时写回 (进程崩溃不丢，断电可能丢最后几条)
+     */
+    AppendOnlyLog(Path dir, int segmentSize, boolean sync) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+    }
+
+    /**
+     * 从最近的基准段开始按顺序回放所有记录，然后定位到末尾准备追加。
+     */
+    void open(Visitor visitor) throws IOException {
+        Files.createDirectories(dir);
+        List<Long> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // 没做完的压缩
+                    Files.delete(file);
+                } else if (name.matches("\\d+" + EXTENSION.replace(".", "\\."))) {
+                    indexes.add(Long.parseLong(name.substring(0, name.length() - EXTENSION.length())));
+                }
+            }
+        }
+        indexes.sort(null);
+
+        // 最近的基准段之前的段都已经被压缩进它里面了
+        int start = 0;
+        for (int i = indexes.size() - 1; i > 0; i--) {
+            if (isBase(indexes.get(i))) {
+                start = i;
+                break;
+            }
+        }
+        for (int i = 0; i < start; i++) {
+            Files.deleteIfExists(segmentPath(indexes.get(i)));
+        }
+        indexes = indexes.subList(start, indexes.size());
+
+        records = 0;
+        activeIndex = indexes.isEmpty() ? 0 : indexes.get(indexes.size() - 1);
+        for (int i = 0; i < indexes.size(); i++) {
+            boolean last = i == indexes.size() - 1;
+            Path path = segmentPath(indexes.get(i));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                if (buffer.capacity() < SEGMENT_HEADER || buffer.getInt(0) != MAGIC) {
+                    System.err.println("状态日志段 " + path.getFileName() + " 头部无效，已跳过");
+                    continue;
+                }
+                int end = replay(buffer, visitor);
+                if (last) {
+                    activate(indexes.get(i), buffer, end);
+                }
+            }
+        }
+        segments = indexes.size();
+        if (active == null) {
+            roll();
+        }
+    }
+
+    /**
+     * 追加一条记录，当前段放不下时换一个新段。
+     */
+    void append(byte type, byte[] payload) throws IOException {
+        int size = RECORD_HEADER + payload.length;
+        if (size > segmentSize - SEGMENT_HEADER) {
+            throw new IllegalArgumentException("记录过大: " + payload.length + " 字节");
+        }
+        if (active.position() + size > active.capacity()) {
+            roll();
+        }
+        write(active, type, payload);
+        records++;
+    }
+
+    /**
+     * 把 entries 写成新的基准段并切换过去，删除之前所有的段。
+     */
+    void compact(List<Entry> entries) throws IOException {
+        long needed = SEGMENT_HEADER;
+        for (Entry entry : entries) {
+            needed += RECORD_HEADER + entry.payload().length;
+        }
+        // 留出和普通段一样多的空间给之后的追加
+        long size = Math.min(Integer.MAX_VALUE, needed + segmentSize);
+        long index = activeIndex + 1;
+        Path tmp = dir.resolve(String.format("%08d%s.tmp", index, EXTENSION));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            writeHeader(buffer, FLAG_BASE);
+            buffer.position(SEGMENT_HEADER);
+            for (Entry entry : entries) {
+                write(buffer, entry.type(), entry.payload());
+            }
+            buffer.force();
+        }
+        Files.move(tmp, segmentPath(index), StandardCopyOption.ATOMIC_MOVE);
+
+        activate(index, buffer, buffer.position());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : files) {
+                if (!file.equals(segmentPath(index))) {
+                    Files.delete(file);
+                }
+            }
+        }
+        records = entries.size();
+        segments = 1;
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    int getSegments() {
+        return segments;
+    }
+
+    @Override
+    public void close() {
+        if (active != null) {
+            active.force();
+            active = null;
+        }
+    }
+
+    // ===================================================================================
+    // 内部实现
+    // ===================================================================================
+
+    /**
+     * 回放一个段，返回第一个无效位置 (末尾或残缺记录的起点)。残缺部分会被清零，之后的追加不会把它接上。
+     */
+    private int replay(MappedByteBuffer buffer, Visitor visitor) throws IOException {
+        int position = SEGMENT_HEADER;
+        int limit = buffer.capacity();
+        while (position + RECORD_HEADER <= limit) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + RECORD_HEADER + length > limit
+                    || checksum(buffer, position + 8, length + 1) != buffer.getInt(position + 4)) {
+                System.err.println("状态日志在偏移 " + position + " 处有残缺的记录，已截断");
+                buffer.put(position, new byte[limit - position]);
+                buffer.force();
+                break;
+            }
+            visitor.accept(buffer.get(position + 8), buffer.slice(position + RECORD_HEADER, length));
+            records++;
+            position += RECORD_HEADER + length;
+        }
+        return position;
+    }
+
+    private void write(MappedByteBuffer buffer, byte type, byte[] payload) {
+        int position = buffer.position();
+        buffer.put(position + 8, type);
+        buffer.put(position + RECORD_HEADER, payload);
+        buffer.putInt(position + 4, checksum(buffer, position + 8, payload.length + 1));
+        // 长度最后写，读到非 0 长度时记录的其余部分已经在了
+        buffer.putInt(position, payload.length);
+        buffer.position(position + RECORD_HEADER + payload.length);
+        if (sync) {
+            buffer.force(position, RECORD_HEADER + payload.length);
+        }
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        crc.reset();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.force();
+        }
+        long index = activeIndex + 1;
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            writeHeader(buffer, (short) 0);
+            buffer.force();
+            activate(index, buffer, SEGMENT_HEADER);
+        }
+        segments++;
+    }
+
+    private void activate(long index, MappedByteBuffer buffer, int position) {
+        activeIndex = index;
+        active = buffer;
+        active.position(position);
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, short flags) {
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, flags);
+    }
+
+    private boolean isBase(long index) {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+            return channel.read(header, 0) == SEGMENT_HEADER && header.getInt(0) == MAGIC
+                    && (header.getShort(6) & FLAG_BASE) != 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%08d%s", index, EXTENSION));
+    }
+}
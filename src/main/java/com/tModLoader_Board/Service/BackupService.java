@@ -0,0 +1,627 @@
+package com.tModLoader_Board.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import com.tModLoader_Board.DTO.BackupSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 【职责】: 定期 (或按请求) 为世界文件做增量备份，并支持恢复到任意一个快照。
+ * 服务器在运行时先发 "save" 并等控制台确认存档完成，再读取 .wld / .twld；
+ * 文件按内容切块 ({@link ContentDefinedChunker})，每块以 SHA-256 为名压缩后存进 Backups/chunks，
+ * 已经存在的块不再写入，所以两次备份之间只改了一小部分的世界只多占那一小部分的空间。
+ * 每个快照是 Backups/snapshots/&lt;世界&gt;/&lt;快照 ID&gt;.json 里的一份清单。
+ * 所有读写都经过同一个限速器，备份大世界时不会把同机其他服务器的磁盘 I/O 挤掉。
+ */
+@Service
+public class BackupService {
+
+    public static final String TRIGGER_SCHEDULED = "scheduled";
+    public static final String TRIGGER_MANUAL = "manual";
+    public static final String TRIGGER_PRE_RESTORE = "pre-restore";
+
+    private static final String WORLD_EXTENSION = ".wld";
+    private static final String MOD_DATA_EXTENSION = ".twld";
+    private static final String CHUNK_EXTENSION = ".z";
+    private static final String MANIFEST_EXTENSION = ".json";
+    private static final DateTimeFormatter ID_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS").withZone(ZoneId.systemDefault());
+    // 存档确认之后，文件大小和修改时间连续两次一致才开始读取
+    private static final long SETTLE_POLL_MILLIS = 500;
+    private static final long SETTLE_TIMEOUT_MILLIS = 10_000;
+    // 读取过程中文件被改写 (例如又触发了自动存档) 时重读的次数
+    private static final int READ_ATTEMPTS = 3;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private StartService startService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.backup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tmodloader.backup.keep:48}")
+    private int keep;
+
+    @Value("${tmodloader.backup.max-bytes-per-second:20971520}")
+    private long maxBytesPerSecond;
+
+    @Value("${tmodloader.backup.save-timeout-ms:30000}")
+    private long saveTimeoutMillis;
+
+    // 备份、恢复、清理都在这把锁下进行，同一时间只有一个任务在读写磁盘；
+    // 下面几个可复用的对象也只在锁内使用
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Inflater inflater = new Inflater();
+    private IoRateLimiter rateLimiter;
+
+    @PostConstruct
+    public void init() {
+        rateLimiter = new IoRateLimiter(maxBytesPerSecond);
+    }
+
+    // ===================================================================================
+    // 对外接口
+    // ===================================================================================
+
+    /**
+     * 定期备份 Worlds 目录下的所有世界；自上次快照以来没有变化的世界会被跳过。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.backup.interval-ms:3600000}",
+            initialDelayString = "${tmodloader.backup.interval-ms:3600000}")
+    public void backupAll() {
+        if (!enabled) {
+            return;
+        }
+        Path worldDir = Paths.get(tmodloaderPaths.getWorldPath());
+        if (!Files.isDirectory(worldDir)) {
+            return;
+        }
+        List<String> worlds = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(worldDir, "*" + WORLD_EXTENSION)) {
+            for (Path file : files) {
+                worlds.add(file.getFileName().toString());
+            }
+        } catch (IOException e) {
+            System.err.println("扫描世界目录失败: " + e.getMessage());
+            return;
+        }
+        for (String world : worlds) {
+            try {
+                backup(world, TRIGGER_SCHEDULED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("备份世界 '" + world + "' 失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 为一个世界做一次快照并返回它 (不含块列表)。与最近一个快照相比文件没有变化时，直接返回那个快照。
+     */
+    public BackupSnapshot backup(String world, String trigger) throws IOException, InterruptedException {
+        return backup(world, trigger, true);
+    }
+
+    /**
+     * @param prune 之后是否按保留策略清理旧快照；恢复前的快照不清理，否则可能删掉正要恢复的那个
+     */
+    private BackupSnapshot backup(String world, String trigger, boolean prune) throws IOException, InterruptedException {
+        Path worldFile = worldFile(world);
+        if (!Files.isRegularFile(worldFile)) {
+            throw new NoSuchElementException("世界文件不存在: " + world);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        lock.lock();
+        try {
+            boolean confirmed = false;
+            String sessionName = startService.sessionNameFor(world);
+            if (controlService.isSessionRunning(sessionName)) {
+                confirmed = controlService.saveWorld(sessionName, saveTimeoutMillis);
+                if (!confirmed) {
+                    System.err.println("会话 '" + sessionName + "' 未在 " + saveTimeoutMillis + "ms 内确认存档完成，按当前文件备份。");
+                }
+                awaitSettled(world);
+            }
+
+            BackupSnapshot latest = latestSnapshot(world);
+            if (latest != null && unchanged(latest, world)) {
+                outcome = "unchanged";
+                return latest.summary();
+            }
+
+            BackupSnapshot snapshot = new BackupSnapshot();
+            snapshot.setWorld(world);
+            snapshot.setTrigger(trigger);
+            snapshot.setCreatedAt(System.currentTimeMillis());
+            snapshot.setId(newSnapshotId(world, snapshot.getCreatedAt()));
+            snapshot.setSaveConfirmed(confirmed);
+            for (Path file : worldFiles(world)) {
+                snapshot.getFiles().add(storeFile(file, snapshot));
+                snapshot.setTotalBytes(snapshot.getTotalBytes() + snapshot.getFiles().getLast().getSize());
+            }
+            writeManifest(snapshot);
+            meterRegistry.counter("tmodloader.backup.stored.bytes").increment(snapshot.getStoredBytes());
+            System.out.println("世界 '" + world + "' 已备份为快照 " + snapshot.getId() + "，共 "
+                    + snapshot.getTotalBytes() + " 字节，新写入 " + snapshot.getStoredBytes() + " 字节。");
+
+            if (prune && prune(world)) {
+                collectGarbage();
+            }
+            outcome = "success";
+            return snapshot.summary();
+        } finally {
+            lock.unlock();
+            sample.stop(meterRegistry.timer("tmodloader.backup", "trigger", trigger, "outcome", outcome));
+        }
+    }
+
+    /**
+     * 一个世界的所有快照 (不含块列表)，最新的在前。
+     */
+    public List<BackupSnapshot> listSnapshots(String world) throws IOException {
+        List<BackupSnapshot> result = new ArrayList<>();
+        for (BackupSnapshot snapshot : readManifests(snapshotDir(world))) {
+            result.add(snapshot.summary());
+        }
+        result.sort(Comparator.comparingLong(BackupSnapshot::getCreatedAt).reversed());
+        return result;
+    }
+
+    /**
+     * 把世界恢复到指定快照；snapshotId 为空时取 at (毫秒时间戳) 当时或之前最近的一个快照。
+     * 服务器必须已经停止。恢复前会先给当前文件做一个 pre-restore 快照，恢复错了也能再换回来。
+     * 所有文件都先解压、校验到临时文件；替换时当前文件先改名留作退路，新文件全部就位后才删掉，
+     * 中途出错会把已经换上的文件撤掉、把原来的换回去，不会留下新旧混杂的世界。旧快照等恢复成功后才清理。
+     * (进程恰好在替换过程中被杀掉时，原来的文件以 .&lt;文件名&gt;.old 留在 Worlds 目录里，也在 pre-restore 快照里。)
+     */
+    public BackupSnapshot restore(String world, String snapshotId, Long at) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            BackupSnapshot snapshot = findSnapshot(world, snapshotId, at);
+            String sessionName = startService.sessionNameFor(world);
+            if (controlService.isSessionRunning(sessionName)) {
+                throw new IllegalStateException("服务器 '" + sessionName + "' 正在运行，请先停止再恢复。");
+            }
+            if (Files.isRegularFile(worldFile(world))) {
+                backup(world, TRIGGER_PRE_RESTORE, false);
+            }
+
+            List<Path> inflated = new ArrayList<>();
+            boolean ready = false;
+            try {
+                for (BackupSnapshot.FileEntry entry : snapshot.getFiles()) {
+                    inflated.add(inflate(entry));
+                }
+                ready = true;
+            } finally {
+                if (!ready) {
+                    for (Path tmp : inflated) {
+                        Files.deleteIfExists(tmp);
+                    }
+                }
+            }
+            // 快照里没有的文件 (例如当时还没有 .twld) 也要去掉才算回到那个时刻，所以当前的文件全部先改名
+            List<Path> setAside = new ArrayList<>();
+            List<Path> placed = new ArrayList<>();
+            boolean swapped = false;
+            try {
+                for (Path file : worldFiles(world)) {
+                    Files.move(file, asideOf(file), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    setAside.add(file);
+                }
+                for (int i = 0; i < inflated.size(); i++) {
+                    Path target = restoreTarget(snapshot.getFiles().get(i).getName());
+                    Files.move(inflated.get(i), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    placed.add(target);
+                }
+                swapped = true;
+            } finally {
+                if (!swapped) {
+                    rollBack(placed, setAside, inflated);
+                }
+            }
+            for (Path file : setAside) {
+                Files.deleteIfExists(asideOf(file));
+            }
+            System.out.println("世界 '" + world + "' 已恢复到快照 " + snapshot.getId() + "。");
+            if (prune(world)) {
+                collectGarbage();
+            }
+            return snapshot.summary();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 写入
+    // ===================================================================================
+
+    /**
+     * 切块、存块，返回文件的清单记录。读取期间文件被改写则重读。
+     */
+    private BackupSnapshot.FileEntry storeFile(Path file, BackupSnapshot snapshot) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+            MessageDigest fileDigest = sha256();
+            List<String> chunks = new ArrayList<>();
+            long[] stored = {0};
+            try (InputStream in = Files.newInputStream(file)) {
+                chunker.split(in, (data, length) -> {
+                    rateLimiter.acquire(length);
+                    fileDigest.update(data, 0, length);
+                    MessageDigest chunkDigest = sha256();
+                    chunkDigest.update(data, 0, length);
+                    String hash = HexFormat.of().formatHex(chunkDigest.digest());
+                    chunks.add(hash);
+                    stored[0] += storeChunk(hash, data, length);
+                });
+            }
+            BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+            if (before.size() == after.size() && before.lastModifiedTime().equals(after.lastModifiedTime())) {
+                BackupSnapshot.FileEntry entry = new BackupSnapshot.FileEntry();
+                entry.setName(file.getFileName().toString());
+                entry.setSize(after.size());
+                entry.setLastModified(after.lastModifiedTime().toMillis());
+                entry.setSha256(HexFormat.of().formatHex(fileDigest.digest()));
+                entry.setChunks(chunks);
+                snapshot.setStoredBytes(snapshot.getStoredBytes() + stored[0]);
+                return entry;
+            }
+            if (attempt == READ_ATTEMPTS) {
+                throw new IOException("文件在备份过程中不断被改写: " + file.getFileName());
+            }
+            // 已写入的块不浪费，重读时会直接复用
+            snapshot.setStoredBytes(snapshot.getStoredBytes() + stored[0]);
+        }
+    }
+
+    /**
+     * 块不存在时压缩写入，返回新写入的字节数 (已存在返回 0)。
+     */
+    private long storeChunk(String hash, byte[] data, int length) throws IOException, InterruptedException {
+        Path chunk = chunkPath(hash);
+        if (Files.exists(chunk)) {
+            return 0;
+        }
+        Files.createDirectories(chunk.getParent());
+        Path tmp = chunk.resolveSibling(hash + ".tmp");
+        deflater.reset();
+        try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tmp), deflater, 64 * 1024)) {
+            out.write(data, 0, length);
+        }
+        long size = Files.size(tmp);
+        rateLimiter.acquire(size);
+        Files.move(tmp, chunk, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+
+    private void writeManifest(BackupSnapshot snapshot) throws IOException {
+        Path dir = snapshotDir(snapshot.getWorld());
+        Files.createDirectories(dir);
+        Path file = dir.resolve(snapshot.getId() + MANIFEST_EXTENSION);
+        Path tmp = dir.resolve(snapshot.getId() + MANIFEST_EXTENSION + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), snapshot);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // ===================================================================================
+    // 恢复
+    // ===================================================================================
+
+    /**
+     * 把块依次解压写进目标文件同目录的临时文件并校验整体 SHA-256，返回临时文件；由调用方替换目标文件。
+     */
+    private Path inflate(BackupSnapshot.FileEntry entry) throws IOException, InterruptedException {
+        Path target = restoreTarget(entry.getName());
+        Path tmp = target.resolveSibling("." + entry.getName() + ".restore");
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            for (String hash : entry.getChunks()) {
+                inflater.reset();
+                try (InputStream in = new InflaterInputStream(Files.newInputStream(chunkPath(hash)), inflater, buffer.length)) {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        rateLimiter.acquire(n);
+                        digest.update(buffer, 0, n);
+                        out.write(buffer, 0, n);
+                    }
+                } catch (NoSuchFileException e) {
+                    throw new IOException("快照缺少数据块 " + hash + "，无法恢复 " + entry.getName());
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!actual.equals(entry.getSha256())) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("恢复出的 " + entry.getName() + " 校验失败");
+        }
+        Files.setLastModifiedTime(tmp, FileTime.fromMillis(entry.getLastModified()));
+        return tmp;
+    }
+
+    /**
+     * 替换失败时撤掉已经换上的新文件，把改过名的原文件换回去。尽量把每一步都做完，不因为一步失败就放弃后面的。
+     */
+    private void rollBack(List<Path> placed, List<Path> setAside, List<Path> inflated) {
+        for (Path target : placed) {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException e) {
+                System.err.println("撤回恢复的文件 " + target.getFileName() + " 失败: " + e.getMessage());
+            }
+        }
+        for (Path file : setAside) {
+            try {
+                Files.move(asideOf(file), file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.err.println("换回原文件 " + file.getFileName() + " 失败，它还在 " + asideOf(file).getFileName() + ": " + e.getMessage());
+            }
+        }
+        for (Path tmp : inflated) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                System.err.println("删除临时文件 " + tmp.getFileName() + " 失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Path asideOf(Path file) {
+        return file.resolveSibling("." + file.getFileName() + ".old");
+    }
+
+    private Path restoreTarget(String name) {
+        return Paths.get(tmodloaderPaths.getWorldPath()).resolve(name);
+    }
+
+    private BackupSnapshot findSnapshot(String world, String snapshotId, Long at) throws IOException {
+        List<BackupSnapshot> snapshots = readManifests(snapshotDir(world));
+        BackupSnapshot found = null;
+        for (BackupSnapshot snapshot : snapshots) {
+            if (snapshotId != null && !snapshotId.isBlank()) {
+                if (snapshotId.equals(snapshot.getId())) {
+                    found = snapshot;
+                }
+            } else if (at != null && snapshot.getCreatedAt() <= at
+                    && (found == null || snapshot.getCreatedAt() > found.getCreatedAt())) {
+                found = snapshot;
+            }
+        }
+        if (found == null) {
+            throw new NoSuchElementException("找不到世界 '" + world + "' 的对应快照");
+        }
+        return found;
+    }
+
+    // ===================================================================================
+    // 保留策略与清理
+    // ===================================================================================
+
+    /**
+     * 每个世界只保留最近 keep 个快照，返回是否删掉了旧快照。
+     */
+    private boolean prune(String world) throws IOException {
+        Path dir = snapshotDir(world);
+        List<BackupSnapshot> snapshots = readManifests(dir);
+        if (snapshots.size() <= keep) {
+            return false;
+        }
+        snapshots.sort(Comparator.comparingLong(BackupSnapshot::getCreatedAt));
+        for (BackupSnapshot old : snapshots.subList(0, snapshots.size() - keep)) {
+            Files.deleteIfExists(dir.resolve(old.getId() + MANIFEST_EXTENSION));
+        }
+        return true;
+    }
+
+    /**
+     * 删除不再被任何快照引用的块 (以及中断时留下的临时文件)。
+     */
+    private void collectGarbage() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        Path snapshotsRoot = backupRoot().resolve("snapshots");
+        if (Files.isDirectory(snapshotsRoot)) {
+            try (DirectoryStream<Path> worlds = Files.newDirectoryStream(snapshotsRoot)) {
+                for (Path dir : worlds) {
+                    for (BackupSnapshot snapshot : readManifests(dir)) {
+                        for (BackupSnapshot.FileEntry entry : snapshot.getFiles()) {
+                            referenced.addAll(entry.getChunks());
+                        }
+                    }
+                }
+            }
+        }
+        Path chunksRoot = backupRoot().resolve("chunks");
+        if (!Files.isDirectory(chunksRoot)) {
+            return;
+        }
+        long[] freed = {0};
+        try (Stream<Path> files = Files.walk(chunksRoot)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(CHUNK_EXTENSION)
+                        || !referenced.contains(name.substring(0, name.length() - CHUNK_EXTENSION.length()))) {
+                    try {
+                        freed[0] += Files.size(file);
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        System.err.println("删除备份块失败 " + name + ": " + e.getMessage());
+                    }
+                }
+            });
+        }
+        System.out.println("清理旧备份，释放了 " + freed[0] + " 字节。");
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    /**
+     * 存档确认之后 .twld 可能还在写，等世界的文件连续两次观察都不再变化。
+     */
+    private void awaitSettled(String world) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+        String previous = fingerprint(world);
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(SETTLE_POLL_MILLIS);
+            String current = fingerprint(world);
+            if (current.equals(previous)) {
+                return;
+            }
+            previous = current;
+        }
+    }
+
+    private String fingerprint(String world) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Path file : worldFiles(world)) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            sb.append(file.getFileName()).append(':').append(attributes.size())
+                    .append(':').append(attributes.lastModifiedTime().toMillis()).append(';');
+        }
+        return sb.toString();
+    }
+
+    private boolean unchanged(BackupSnapshot latest, String world) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (BackupSnapshot.FileEntry entry : latest.getFiles()) {
+            sb.append(entry.getName()).append(':').append(entry.getSize())
+                    .append(':').append(entry.getLastModified()).append(';');
+        }
+        return sb.toString().equals(fingerprint(world));
+    }
+
+    private BackupSnapshot latestSnapshot(String world) throws IOException {
+        return readManifests(snapshotDir(world)).stream()
+                .max(Comparator.comparingLong(BackupSnapshot::getCreatedAt))
+                .orElse(null);
+    }
+
+    private List<BackupSnapshot> readManifests(Path dir) throws IOException {
+        List<BackupSnapshot> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + MANIFEST_EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    snapshots.add(objectMapper.readValue(file.toFile(), BackupSnapshot.class));
+                } catch (IOException e) {
+                    System.err.println("读取快照清单失败 " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * 世界本身和 tModLoader 的附加数据 (.twld)，按这个顺序，只返回存在的文件。
+     */
+    private List<Path> worldFiles(String world) {
+        Path wld = worldFile(world);
+        String base = world.substring(0, world.length() - WORLD_EXTENSION.length());
+        List<Path> files = new ArrayList<>();
+        for (Path file : List.of(wld, wld.resolveSibling(base + MOD_DATA_EXTENSION))) {
+            if (Files.isRegularFile(file)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private Path worldFile(String world) {
+        if (world == null || !world.toLowerCase().endsWith(WORLD_EXTENSION)
+                || world.contains("/") || world.contains("\\") || world.startsWith(".")) {
+            throw new IllegalArgumentException("世界文件名无效: " + world);
+        }
+        return Paths.get(tmodloaderPaths.getWorldPath()).resolve(world);
+    }
+
+    private String newSnapshotId(String world, long createdAt) {
+        String id = ID_FORMAT.format(Instant.ofEpochMilli(createdAt));
+        Path dir = snapshotDir(world);
+        String candidate = id;
+        for (int i = 1; Files.exists(dir.resolve(candidate + MANIFEST_EXTENSION)); i++) {
+            candidate = id + "-" + i;
+        }
+        return candidate;
+    }
+
+    private Path backupRoot() {
+        return Paths.get(tmodloaderPaths.getBackupPath());
+    }
+
+    private Path snapshotDir(String world) {
+        worldFile(world);
+        return backupRoot().resolve("snapshots").resolve(world.substring(0, world.length() - WORLD_EXTENSION.length()));
+    }
+
+    private Path chunkPath(String hash) {
+        return backupRoot().resolve("chunks").resolve(hash.substring(0, 2)).resolve(hash + CHUNK_EXTENSION);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.DTO.BatchRequest;
+import com.tModLoader_Board.DTO.BatchResult;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 【职责】: 把停止、通报、踢出/封禁这类操作同时分发到多个会话上执行。
+ * 每个会话一个虚拟线程，用信号量限制同时进行的数量；每完成一个就把结果交给调用方，
+ * 所以 15 台服务器一起停机的耗时约等于最慢的那一台，而不是所有服务器之和。
+ */
+@Service
+public class BatchOperationService {
+
+    public static final String SELECT_ALL = "all";
+
+    /**
+     * 对单个会话执行的操作，抛出的异常会记进该会话的结果里。
+     */
+    @FunctionalInterface
+    public interface SessionOperation {
+        void apply(String sessionName) throws Exception;
+    }
+
+    /**
+     * 接收每个会话的结果。总是在调用 execute 的线程上被依次调用，实现不需要考虑并发。
+     */
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(BatchResult result) throws IOException;
+    }
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Value("${tmodloader.batch.max-concurrent:8}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        // 所有批量请求共用同一组许可，两个批量请求同时到达也不会把并发翻倍
+        permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * 解析请求里的目标会话: selector 为 "all" 时取当前所有服务器，否则取 sessions (去重，保持顺序)。
+     */
+    public List<String> resolveSessions(BatchRequest request) throws IOException, InterruptedException {
+        if (SELECT_ALL.equalsIgnoreCase(request.getSelector())) {
+            return controlService.getServerList();
+        }
+        if (request.getSelector() != null && !request.getSelector().isBlank()) {
+            throw new IllegalArgumentException("不支持的选择器: " + request.getSelector());
+        }
+        if (request.getSessions() == null || request.getSessions().isEmpty()) {
+            throw new IllegalArgumentException("必须指定 sessions 或 selector");
+        }
+        return new ArrayList<>(new LinkedHashSet<>(request.getSessions()));
+    }
+
+    /**
+     * 并行地对每个会话执行 operation，按完成顺序把结果交给 sink，全部完成后返回。
+     * sink 抛出异常 (例如客户端断开) 时不再回调，但已经开始的操作会照常完成。
+     */
+    public void execute(List<String> sessions, SessionOperation operation, ResultSink sink)
+            throws IOException, InterruptedException {
+        BlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+        for (String sessionName : sessions) {
+            processExecutor.execute(() -> results.add(run(sessionName, operation)));
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            sink.accept(results.take());
+        }
+    }
+
+    private BatchResult run(String sessionName, SessionOperation operation) {
+        BatchResult result = new BatchResult(sessionName);
+        long start = System.currentTimeMillis();
+        try {
+            permits.acquire();
+            try {
+                start = System.currentTimeMillis();
+                operation.apply(sessionName);
+                result.setSuccess(true);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.setError("操作被中断");
+        } catch (Exception e) {
+            result.setError(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+}
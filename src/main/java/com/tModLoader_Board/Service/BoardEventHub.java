@@ -0,0 +1,435 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 【职责】: 把后端观察到的变化 (服务器启停、玩家进出、控制台新行) 推送给所有打开的看板页面 (SSE)。
+ * 每个变化只在后端观察一次，再分发给任意多个订阅者，后端开销与打开的页面数量无关。
+ * 每个订阅者有自己的有界队列和发送线程；慢客户端积压时同类事件会被合并，超出上限则改发一个 resync 事件。
+ */
+@Service
+public class BoardEventHub {
+
+    private static final int QUEUE_LIMIT = 256;
+    private static final int CONSOLE_LINES_PER_EVENT = 500;
+    private static final int CONSOLE_HISTORY_LINES = 100;
+    private static final long SERVER_REFRESH_DEBOUNCE_MILLIS = 200;
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private PlayerRegistry playerRegistry;
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    // 发送给慢客户端时会阻塞，每个订阅者的发送任务都跑在虚拟线程上
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService senders;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "board-event-hub");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean serverRefreshPending = new AtomicBoolean(false);
+
+    // 上一次观察到的服务器列表，用来计算启停差异
+    private volatile Set<String> knownServers = null;
+
+    @PostConstruct
+    public void init() {
+        // 有会话创建/销毁时刷新一次服务器列表
+        processBackend.addSessionsChangedListener(this::scheduleServerRefresh);
+        playerRegistry.addChangeListener(this::onPlayersChanged);
+        consoleStreamService.addAttachListener(buffer -> buffer.addListener(new ConsoleBuffer.LineListener() {
+            @Override
+            public void onLine(long sequence, String line) {
+                onConsoleLine(buffer.getSessionName(), sequence, line);
+            }
+
+            @Override
+            public void onClosed() {
+                scheduleServerRefresh();
+            }
+        }));
+    }
+
+    /**
+     * 新建一个订阅。sessionName 为空时只推送服务器和玩家变化；
+     * 不为空时只推送该会话的玩家变化，外加它的控制台输出。
+     */
+    public SseEmitter subscribe(String sessionName) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, sessionName);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // 先登记再生成快照: 这期间的增量先排在队列里，等快照放到队首后才开始发送，一个都不会漏。
+        // 登记在返回 emitter 之前完成，不会出现 emitter 已经结束、移除回调跑过之后才登记的情况
+        subscribers.add(subscriber);
+        senders.execute(() -> {
+            List<Event> initial = new ArrayList<>();
+            try {
+                initial.add(serversSnapshotEvent());
+                if (sessionName != null) {
+                    PlayerRegistry.Snapshot players = playerRegistry.getSnapshot(sessionName);
+                    initial.add(playersEvent(sessionName, players, players.getPlayers(), List.of()));
+                    ConsoleBuffer buffer = consoleStreamService.getBuffer(sessionName);
+                    if (buffer != null) {
+                        long last = buffer.getLastSequence();
+                        List<String> lines = buffer.linesAfter(last - CONSOLE_HISTORY_LINES);
+                        initial.add(consoleEvent(sessionName, last - lines.size() + 1, lines));
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                System.err.println("生成初始推送数据失败: " + e.getMessage());
+            }
+            subscriber.start(initial);
+            drain(subscriber);
+        });
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    // ===================================================================================
+    // 事件来源
+    // ===================================================================================
+
+    /**
+     * 兜底: 控制模式不可用时收不到 %sessions-changed，只在有订阅者时低频刷新服务器列表。
+     * 同时给每个订阅者发一个心跳，及时发现已经断开的连接。
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        scheduleServerRefresh();
+        publish(new Event("ping", "ping", null, Map.of()));
+    }
+
+    private void scheduleServerRefresh() {
+        if (serverRefreshPending.compareAndSet(false, true)) {
+            scheduler.schedule(this::refreshServers, SERVER_REFRESH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refreshServers() {
+        serverRefreshPending.set(false);
+        Set<String> current;
+        try {
+            current = new LinkedHashSet<>(controlService.getServerList());
+        } catch (IOException | InterruptedException e) {
+            System.err.println("刷新服务器列表失败: " + e.getMessage());
+            return;
+        }
+        Set<String> previous = knownServers;
+        knownServers = current;
+        if (previous == null) {
+            return;
+        }
+        for (String sessionName : current) {
+            if (!previous.contains(sessionName)) {
+                publish(new Event("server-started", "server:" + sessionName, null, Map.of("session", sessionName)));
+            }
+        }
+        for (String sessionName : previous) {
+            if (!current.contains(sessionName)) {
+                publish(new Event("server-stopped", "server:" + sessionName, null, Map.of("session", sessionName)));
+            }
+        }
+    }
+
+    private void onPlayersChanged(String sessionName, PlayerRegistry.Snapshot previous, PlayerRegistry.Snapshot current) {
+        List<String> joined = new ArrayList<>(current.getPlayers());
+        joined.removeAll(previous.getPlayers());
+        List<String> left = new ArrayList<>(previous.getPlayers());
+        left.removeAll(current.getPlayers());
+        publish(playersEvent(sessionName, current, joined, left));
+    }
+
+    private void onConsoleLine(String sessionName, long sequence, String line) {
+        // 没有人在看这个会话的控制台时，连事件对象都不创建
+        for (Subscriber subscriber : subscribers) {
+            if (sessionName.equals(subscriber.sessionName)) {
+                subscriber.offer(consoleEvent(sessionName, sequence, List.of(line)));
+                drain(subscriber);
+            }
+        }
+    }
+
+    private void publish(Event event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(event)) {
+                subscriber.offer(event);
+                drain(subscriber);
+            }
+        }
+    }
+
+    // ===================================================================================
+    // 事件构造
+    // ===================================================================================
+
+    private Event serversSnapshotEvent() throws IOException, InterruptedException {
+        Set<String> servers = knownServers;
+        if (servers == null) {
+            servers = new LinkedHashSet<>(controlService.getServerList());
+            knownServers = servers;
+        }
+        return new Event("servers", "servers", null, Map.of("servers", new ArrayList<>(servers)));
+    }
+
+    private Event playersEvent(String sessionName, PlayerRegistry.Snapshot snapshot, List<String> joined, List<String> left) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("session", sessionName);
+        data.put("version", snapshot.getVersion());
+        data.put("players", snapshot.getPlayers());
+        data.put("joined", joined);
+        data.put("left", left);
+        return new Event("players", "players:" + sessionName, sessionName, data);
+    }
+
+    private Event consoleEvent(String sessionName, long fromSequence, List<String> lines) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("session", sessionName);
+        data.put("from", fromSequence);
+        data.put("lines", new ArrayList<>(lines));
+        data.put("dropped", 0L);
+        return new Event("console", "console:" + sessionName, sessionName, data);
+    }
+
+    // ===================================================================================
+    // 订阅者 & 发送
+    // ===================================================================================
+
+    /**
+     * 一个待发送的事件。key 相同的事件在积压时可以合并；sessionName 用于订阅过滤，null 表示全局事件。
+     */
+    private static class Event {
+        final String type;
+        final String key;
+        final String sessionName;
+        final Map<String, Object> data;
+
+        Event(String type, String key, String sessionName, Map<String, Object> data) {
+            this.type = type;
+            this.key = key;
+            this.sessionName = sessionName;
+            this.data = data;
+        }
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final String sessionName;
+        final ArrayDeque<Event> queue = new ArrayDeque<>();
+        boolean draining = false;
+        // 初始快照放进队列之前不发送
+        boolean started = false;
+
+        Subscriber(SseEmitter emitter, String sessionName) {
+            this.emitter = emitter;
+            this.sessionName = sessionName;
+        }
+
+        boolean accepts(Event event) {
+            return event.sessionName == null
+                    || (sessionName == null && !event.type.equals("console"))
+                    || event.sessionName.equals(sessionName);
+        }
+
+        /**
+         * 入队并尽量与队列里尚未发出的同类事件合并。
+         */
+        synchronized void offer(Event event) {
+            Event pending = findPending(event.key);
+            if (pending != null && merge(pending, event)) {
+                return;
+            }
+            if (queue.size() >= QUEUE_LIMIT) {
+                // 客户端实在跟不上: 丢掉积压，让它自己重新拉取一次完整状态
+                queue.clear();
+                queue.add(new Event("resync", "resync", null, Map.of()));
+                return;
+            }
+            // 同一个事件会分发给多个订阅者，入队时复制一份，合并时就不会互相影响
+            queue.add(new Event(event.type, event.key, event.sessionName, new LinkedHashMap<>(event.data)));
+        }
+
+        private Event findPending(String key) {
+            Iterator<Event> it = queue.descendingIterator();
+            while (it.hasNext()) {
+                Event e = it.next();
+                if (e.key.equals(key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean merge(Event pending, Event event) {
+            switch (event.type) {
+                case "ping":
+                case "resync":
+                    return true;
+                case "console": {
+                    List<String> lines = new ArrayList<>((List<String>) pending.data.get("lines"));
+                    lines.addAll((List<String>) event.data.get("lines"));
+                    int removed = 0;
+                    while (lines.size() > CONSOLE_LINES_PER_EVENT) {
+                        lines.remove(0);
+                        removed++;
+                    }
+                    pending.data.put("lines", lines);
+                    pending.data.put("from", (Long) pending.data.get("from") + removed);
+                    pending.data.put("dropped", (Long) pending.data.get("dropped") + removed);
+                    return true;
+                }
+                case "players": {
+                    // 保留最新的完整列表，进出差异按先后顺序合并 (先进后出的玩家相互抵消)
+                    Set<String> joined = new LinkedHashSet<>((List<String>) pending.data.get("joined"));
+                    Set<String> left = new LinkedHashSet<>((List<String>) pending.data.get("left"));
+                    for (String name : (List<String>) event.data.get("joined")) {
+                        if (!left.remove(name)) {
+                            joined.add(name);
+                        }
+                    }
+                    for (String name : (List<String>) event.data.get("left")) {
+                        if (!joined.remove(name)) {
+                            left.add(name);
+                        }
+                    }
+                    pending.data.put("version", event.data.get("version"));
+                    pending.data.put("players", event.data.get("players"));
+                    pending.data.put("joined", new ArrayList<>(joined));
+                    pending.data.put("left", new ArrayList<>(left));
+                    return true;
+                }
+                default:
+                    // 服务器启停: 还没发出去的 "启动" 遇到 "停止" (或反过来) 直接抵消
+                    if (!pending.type.equals(event.type)) {
+                        queue.remove(pending);
+                        return true;
+                    }
+                    return false;
+            }
+        }
+
+        /**
+         * 把初始快照放到队首并允许发送。快照是在登记之后生成的，排在它后面、已经被它包含的增量要去掉:
+         * 版本不比快照新的玩家列表，以及序号不超过快照末尾的控制台行。
+         */
+        @SuppressWarnings("unchecked")
+        synchronized void start(List<Event> initial) {
+            for (Event snapshot : initial) {
+                Iterator<Event> it = queue.iterator();
+                while (it.hasNext()) {
+                    Event event = it.next();
+                    if (!event.key.equals(snapshot.key)) {
+                        continue;
+                    }
+                    if (event.type.equals("players")) {
+                        if ((Long) event.data.get("version") <= (Long) snapshot.data.get("version")) {
+                            it.remove();
+                        }
+                    } else if (event.type.equals("console")) {
+                        long covered = (Long) snapshot.data.get("from") + ((List<String>) snapshot.data.get("lines")).size();
+                        List<String> lines = (List<String>) event.data.get("lines");
+                        int skip = (int) Math.max(0, Math.min(lines.size(), covered - (Long) event.data.get("from")));
+                        if (skip == lines.size()) {
+                            it.remove();
+                        } else if (skip > 0) {
+                            event.data.put("lines", new ArrayList<>(lines.subList(skip, lines.size())));
+                            event.data.put("from", (Long) event.data.get("from") + skip);
+                        }
+                    }
+                }
+            }
+            for (int i = initial.size() - 1; i >= 0; i--) {
+                queue.addFirst(initial.get(i));
+            }
+            started = true;
+        }
+
+        synchronized Event next() {
+            Event event = queue.poll();
+            if (event == null) {
+                draining = false;
+            }
+            return event;
+        }
+
+        synchronized boolean startDraining() {
+            if (!started || draining || queue.isEmpty()) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+    }
+
+    /**
+     * 每个订阅者同一时间最多只有一个发送任务；发送阻塞 (慢客户端) 只会拖住它自己。
+     */
+    private void drain(Subscriber subscriber) {
+        if (!subscriber.startDraining()) {
+            return;
+        }
+        senders.execute(() -> {
+            Event event;
+            while ((event = subscriber.next()) != null) {
+                try {
+                    if (event.type.equals("ping")) {
+                        subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event().name(event.type).data(event.data));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    subscribers.remove(subscriber);
+                    subscriber.emitter.completeWithError(e);
+                    return;
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,370 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 【职责】: 向服务器控制台发送命令，并异步地等待这条命令的输出。
+ * 每条命令带一个 "完成规则"，只要控制台缓冲区里出现满足规则的行就立即完成，
+ * 不再用固定的 Thread.sleep 去猜服务器什么时候输出完。
+ */
+@Service
+public class CommandExecutor {
+
+    /** "playing" 的输出以 "No players connected." / "1 player connected." / "N players connected." 结尾。 */
+    private static final Pattern PLAYERS_SUMMARY = Pattern.compile("(No players|\\d+ players?) connected\\.");
+
+    public static final Predicate<String> PLAYERS_LISTED = line -> PLAYERS_SUMMARY.matcher(line).find();
+    /** 永远不匹配: 只有在控制台流结束 (服务器退出) 或超时时才完成，用于 exit。 */
+    public static final Predicate<String> UNTIL_EXIT = line -> false;
+    /** 只认行首的 "Server started"，聊天里的同样文字不算，见 {@link ConsoleLineParser#isServerStarted}。 */
+    public static final Predicate<String> SERVER_STARTED = ConsoleLineParser::isServerStarted;
+    /** "save" 依次输出 "Saving world data" 和 "Validating world save" 的进度，后者到 100% 即存档写完。 */
+    public static final Predicate<String> WORLD_SAVED = line -> line.contains("Validating world save: 100%");
+
+    private static final long FALLBACK_POLL_MILLIS = 500;
+    /** 秘密输入在日志里显示成这个，不出现真实内容。 */
+    private static final String SECRET_LABEL = "<隐藏的输入>";
+
+    /** 作为指标标签的命令名；其余命令统一记为 "other"，避免玩家名、消息内容之类撑爆标签基数。 */
+    private static final Set<String> KNOWN_COMMANDS = Set.of(
+            "playing", "say", "kick", "ban", "exit", "save", "help", "motd", "time", "settle");
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.command.timeout-ms:5000}")
+    private long defaultTimeoutMillis;
+
+    // 超时任务大多会在命令完成时被取消，取消后立即移出队列，不在里面堆积到原定时间
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "command-executor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    {
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    // 每个会话最近一次命令超时的时间，守护进程据此判断服务器是否可能卡死
+    private final Map<String, Long> lastTimeouts = new ConcurrentHashMap<>();
+
+    // ===================================================================================
+    // 对外接口
+    // ===================================================================================
+
+    /**
+     * 发送命令，只要看到命令的回显就算完成 (返回空字符串)，适用于 say、kick 这类没有明确结果行的命令。
+     */
+    public CompletableFuture<String> execute(String sessionName, String command) {
+        return execute(sessionName, command, UNTIL_EXIT, true, defaultTimeoutMillis);
+    }
+
+    public CompletableFuture<String> execute(String sessionName, String command, Predicate<String> completion) {
+        return execute(sessionName, command, completion, defaultTimeoutMillis);
+    }
+
+    /**
+     * 发送命令，并在满足完成规则时返回命令回显之后的输出 (包含匹配的那一行)。
+     * 超时并不算失败: 此时返回到目前为止收集到的输出，与以前 "等一会儿再抓取" 的行为一致。
+     */
+    public CompletableFuture<String> execute(String sessionName, String command, Predicate<String> completion, long timeoutMillis) {
+        return execute(sessionName, command, completion, false, timeoutMillis);
+    }
+
+    private CompletableFuture<String> execute(String sessionName, String command, Predicate<String> completion,
+                                              boolean completeOnEcho, long timeoutMillis) {
+        // 记录从发出命令到拿到输出的往返耗时
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String commandTag = commandTag(command);
+        CompletableFuture<String> future = dispatch(sessionName, command, completion, completeOnEcho, timeoutMillis);
+        future.whenComplete((output, error) -> sample.stop(meterRegistry.timer("tmodloader.command.latency",
+                "command", commandTag, "outcome", error == null ? "success" : "error")));
+        return future;
+    }
+
+    /**
+     * 输入一行不能出现在控制台输出里的内容 (服务器密码)，等待之后满足完成规则的输出。
+     * 回显被隐藏了，所以不等回显，直接从输入之后的第一行开始收集。
+     */
+    public CompletableFuture<String> executeSecret(String sessionName, String secret, Predicate<String> completion, long timeoutMillis) {
+        ConsoleBuffer buffer;
+        try {
+            buffer = consoleStreamService.attach(sessionName);
+        } catch (IOException | InterruptedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (buffer == null) {
+            return CompletableFuture.failedFuture(new IOException("会话 '" + sessionName + "' 没有控制台输出流"));
+        }
+        OutputCollector collector = new OutputCollector(buffer.getLastSequence(), SECRET_LABEL, completion, false, false);
+        buffer.addListener(collector);
+        ScheduledFuture<?> timeout = scheduler.schedule(collector::finishWithPartialOutput, timeoutMillis, TimeUnit.MILLISECONDS);
+        collector.future.whenComplete((output, error) -> {
+            buffer.removeListener(collector);
+            timeout.cancel(false);
+        });
+        try {
+            processBackend.sendSecret(sessionName, secret);
+        } catch (IOException | InterruptedException | UnsupportedOperationException e) {
+            collector.future.completeExceptionally(e);
+        }
+        return collector.future;
+    }
+
+    private CompletableFuture<String> dispatch(String sessionName, String command, Predicate<String> completion,
+                                               boolean completeOnEcho, long timeoutMillis) {
+        ConsoleBuffer buffer;
+        try {
+            buffer = consoleStreamService.attach(sessionName);
+            if (buffer == null) {
+                send(sessionName, command);
+                return pollPane(sessionName, command, completion, completeOnEcho, timeoutMillis);
+            }
+        } catch (IOException | InterruptedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        OutputCollector collector = new OutputCollector(buffer.getLastSequence(), command, completion, true, completeOnEcho);
+        buffer.addListener(collector);
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+            if (collector.finishWithPartialOutput()) {
+                lastTimeouts.put(sessionName, System.currentTimeMillis());
+                meterRegistry.counter("tmodloader.command.timeouts", "command", commandTag(command)).increment();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        collector.future.whenComplete((output, error) -> {
+            buffer.removeListener(collector);
+            timeout.cancel(false);
+        });
+
+        try {
+            send(sessionName, command);
+        } catch (IOException | InterruptedException e) {
+            collector.future.completeExceptionally(e);
+        }
+        return collector.future;
+    }
+
+    /**
+     * 不发送命令，只等待控制台出现满足规则的一行 (已在缓冲区里的行也算)，返回该行。
+     * 超时则以 {@link TimeoutException} 失败。
+     */
+    public CompletableFuture<String> waitForLine(String sessionName, Predicate<String> matcher, long timeoutMillis) {
+        ConsoleBuffer buffer;
+        try {
+            buffer = consoleStreamService.attach(sessionName);
+        } catch (IOException | InterruptedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (buffer == null) {
+            return pollPane(sessionName, null, matcher, false, timeoutMillis)
+                    .thenCompose(output -> output.isEmpty()
+                            ? CompletableFuture.failedFuture(new TimeoutException("等待控制台输出超时: " + sessionName))
+                            : CompletableFuture.completedFuture(output));
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        ConsoleBuffer.LineListener listener = new ConsoleBuffer.LineListener() {
+            @Override
+            public void onLine(long sequence, String line) {
+                if (matcher.test(line)) {
+                    future.complete(line);
+                }
+            }
+
+            @Override
+            public void onClosed() {
+                future.completeExceptionally(new IOException("会话 '" + sessionName + "' 的控制台已结束"));
+            }
+        };
+        buffer.addListener(listener);
+        // 注册之前已经输出的行也要检查一遍，避免错过
+        for (String line : buffer.linesAfter(0)) {
+            if (matcher.test(line)) {
+                future.complete(line);
+                break;
+            }
+        }
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> future.completeExceptionally(
+                new TimeoutException("等待控制台输出超时: " + sessionName)), timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((line, error) -> {
+            buffer.removeListener(listener);
+            timeout.cancel(false);
+        });
+        return future;
+    }
+
+    /**
+     * 该会话最近一次有命令等不到结果 (超时) 的时间；从来没有超时过返回 0。
+     */
+    public long getLastTimeout(String sessionName) {
+        return lastTimeouts.getOrDefault(sessionName, 0L);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // ===================================================================================
+    // 内部实现
+    // ===================================================================================
+
+    private void send(String sessionName, String command) throws IOException, InterruptedException {
+        processBackend.send(sessionName, command);
+    }
+
+    private static String commandTag(String command) {
+        int space = command.indexOf(' ');
+        String name = space == -1 ? command : command.substring(0, space);
+        return KNOWN_COMMANDS.contains(name) ? name : "other";
+    }
+
+    /**
+     * 收集某个序号之后、命令回显之后的输出，直到完成规则满足或控制台结束。
+     */
+    private static class OutputCollector implements ConsoleBuffer.LineListener {
+        private final long mark;
+        private final String command;
+        private final Predicate<String> completion;
+        private final boolean completeOnEcho;
+        private final List<String> output = new ArrayList<>();
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private boolean echoSeen;
+
+        /**
+         * @param awaitEcho      为 false 时不等回显，输入之后的所有输出都算 (回显被隐藏的秘密输入)
+         * @param completeOnEcho 看到回显即完成，不再检查完成规则
+         */
+        OutputCollector(long mark, String command, Predicate<String> completion, boolean awaitEcho, boolean completeOnEcho) {
+            this.mark = mark;
+            this.command = command;
+            this.completion = completion;
+            this.completeOnEcho = completeOnEcho;
+            this.echoSeen = !awaitEcho;
+        }
+
+        @Override
+        public synchronized void onLine(long sequence, String line) {
+            if (sequence <= mark || future.isDone()) {
+                return;
+            }
+            if (!echoSeen && line.contains(command)) {
+                echoSeen = true;
+                if (completeOnEcho) {
+                    future.complete("");
+                }
+                return;
+            }
+            output.add(line);
+            if (completion.test(line)) {
+                future.complete(String.join(System.lineSeparator(), output).trim());
+            }
+        }
+
+        @Override
+        public synchronized void onClosed() {
+            future.complete(String.join(System.lineSeparator(), output).trim());
+        }
+
+        /**
+         * 超时时以已收集到的输出完成；返回 true 表示确实是因为超时才完成的。
+         */
+        synchronized boolean finishWithPartialOutput() {
+            if (future.isDone()) {
+                return false;
+            }
+            System.err.println("命令 '" + command + "' 等待输出超时，返回已收集到的部分输出。");
+            return future.complete(String.join(System.lineSeparator(), output).trim());
+        }
+    }
+
+    /**
+     * 定时器线程只负责计时，真正阻塞的抓取放到虚拟线程上执行。
+     */
+    private void schedulePoll(Runnable poll) {
+        scheduler.schedule(() -> processExecutor.execute(poll), FALLBACK_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 没有控制台输出流时的退路: 定期抓取最近的输出，在命令回显之后的行里检查完成规则。
+     * 超时后返回最后一次抓到的输出；command 为 null 时在整个窗格里查找。
+     */
+    private CompletableFuture<String> pollPane(String sessionName, String command, Predicate<String> completion,
+                                               boolean completeOnEcho, long timeoutMillis) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Runnable poll = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<String> lines = processBackend.capture(sessionName, 200);
+                    if (lines == null) {
+                        // 会话已经不在了，对 exit 来说就是完成
+                        future.complete("");
+                        return;
+                    }
+                    int start = 0;
+                    boolean echoFound = command == null;
+                    if (command != null) {
+                        for (int i = lines.size() - 1; i >= 0; i--) {
+                            if (lines.get(i).contains(command)) {
+                                start = i + 1;
+                                echoFound = true;
+                                break;
+                            }
+                        }
+                    }
+                    List<String> output = echoFound ? lines.subList(start, lines.size()) : new ArrayList<>();
+                    boolean done = completeOnEcho ? echoFound : output.stream().anyMatch(completion);
+                    if (done || System.currentTimeMillis() >= deadline) {
+                        if (command == null) {
+                            future.complete(output.stream().filter(completion).findFirst().orElse(""));
+                        } else {
+                            future.complete(String.join(System.lineSeparator(), output).trim());
+                        }
+                        return;
+                    }
+                    schedulePoll(this);
+                } catch (IOException | InterruptedException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        schedulePoll(poll);
+        return future;
+    }
+}
@@ -0,0 +1,148 @@
+package com.tModLoader_Board.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 【职责】: 保存一个服务器会话最近的控制台输出。
+ * 这是一个定长的环形缓冲区，每一行都有一个单调递增的序号 (从 1 开始)，
+ * 读取方只需要记住自己看到的最后一个序号，就能拿到 "之后的所有新行"，而不用重新抓取整个窗格。
+ */
+public class ConsoleBuffer {
+
+    /**
+     * 新行到达时的回调。回调在读取线程上执行，实现必须足够轻量。
+     */
+    public interface LineListener {
+        void onLine(long sequence, String line);
+
+        /** 控制台流结束 (会话退出或管道关闭) 时调用。 */
+        default void onClosed() {
+        }
+    }
+
+    /**
+     * 识别出已知格式的新行时的回调 (玩家进出、聊天、启动完成等，见 {@link ConsoleLineParser.Kind})。
+     * event 是复用的对象，只在回调期间有效；回调在读取线程上执行，实现必须足够轻量。
+     */
+    public interface ParsedLineListener {
+        void onParsedLine(ConsoleLineParser.Event event);
+    }
+
+    private final String sessionName;
+    private final String[] lines;
+    private final List<LineListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ParsedLineListener> parsedListeners = new CopyOnWriteArrayList<>();
+
+    // 最后一行的序号；0 表示还没有任何输出
+    private long lastSequence = 0;
+    private volatile boolean closed = false;
+
+    public ConsoleBuffer(String sessionName, int capacity) {
+        this.sessionName = sessionName;
+        this.lines = new String[capacity];
+    }
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    /**
+     * 追加一行输出，返回它的序号。
+     */
+    public long append(String line) {
+        long sequence;
+        synchronized (this) {
+            sequence = ++lastSequence;
+            lines[(int) (sequence % lines.length)] = line;
+        }
+        for (LineListener listener : listeners) {
+            listener.onLine(sequence, line);
+        }
+        return sequence;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * 仍保留在缓冲区里的最早一行的序号。
+     */
+    public synchronized long getFirstSequence() {
+        return Math.max(1, lastSequence - lines.length + 1);
+    }
+
+    /**
+     * 返回序号大于 sequence 的所有行。已经被覆盖掉的旧行会被跳过。
+     */
+    public synchronized List<String> linesAfter(long sequence) {
+        long from = Math.max(sequence + 1, getFirstSequence());
+        List<String> result = new ArrayList<>((int) Math.max(0, lastSequence - from + 1));
+        for (long s = from; s <= lastSequence; s++) {
+            result.add(lines[(int) (s % lines.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * 在最近 within 行里从后往前查找包含 text 的一行，返回它的序号；找不到返回 -1。
+     */
+    public synchronized long findLast(String text, int within) {
+        long stop = Math.max(getFirstSequence(), lastSequence - within + 1);
+        for (long s = lastSequence; s >= stop; s--) {
+            if (lines[(int) (s % lines.length)].contains(text)) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    public void addListener(LineListener listener) {
+        listeners.add(listener);
+        if (closed) {
+            listener.onClosed();
+        }
+    }
+
+    public void removeListener(LineListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void addParsedLineListener(ParsedLineListener listener) {
+        parsedListeners.add(listener);
+    }
+
+    public void removeParsedLineListener(ParsedLineListener listener) {
+        parsedListeners.remove(listener);
+    }
+
+    boolean hasParsedLineListeners() {
+        return !parsedListeners.isEmpty();
+    }
+
+    /**
+     * 由读取线程在 append 之后调用，把识别结果交给各个监听器。
+     */
+    void publish(ConsoleLineParser.Event event) {
+        for (ParsedLineListener listener : parsedListeners) {
+            listener.onParsedLine(event);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        for (LineListener listener : listeners) {
+            listener.onClosed();
+        }
+    }
+}
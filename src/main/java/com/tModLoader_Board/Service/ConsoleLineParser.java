@@ -0,0 +1,273 @@
+package com.tModLoader_Board.Service;
+
+/**
+ * 【职责】: 识别一行控制台输出属于哪种已知格式，并给出其中字段的位置。
+ * 直接在 CharSequence (例如读取线程里拼行用的 StringBuilder) 的某一段上逐字符匹配，
+ * 不切分、不 trim、不用正则；结果写进一个复用的 {@link Event}，
+ * 只有调用方真正取用玩家名、聊天内容这些字段时才会生成对应的 String。
+ * <p>
+ * 一个实例同一时间只能被一个线程使用 (每个读取循环各持有一个)。
+ */
+public final class ConsoleLineParser {
+
+    public enum Kind {
+        /** "playing" 输出中的一行 ": 名字 (IP:端口)"。 */
+        PLAYER_ENTRY,
+        /** "playing" 输出的汇总行 "No players connected." / "N player(s) connected."。 */
+        PLAYER_COUNT,
+        /** "名字 has joined."。 */
+        PLAYER_JOINED,
+        /** "名字 has left."。 */
+        PLAYER_LEFT,
+        /** "&lt;名字&gt; 内容"。 */
+        CHAT,
+        /** 服务器启动完成，可以接受命令。 */
+        SERVER_STARTED,
+        /** 异常堆栈或 ERROR 级别的日志。 */
+        ERROR,
+        OTHER
+    }
+
+    /**
+     * 一次解析的结果。每次调用 parse 都会覆盖同一个对象，只在下一次 parse 之前有效；
+     * 需要保留的字段请在回调里取出。
+     */
+    public static final class Event {
+        private Kind kind = Kind.OTHER;
+        private long sequence;
+        private CharSequence text;
+        private int nameStart;
+        private int nameEnd;
+        private int valueStart;
+        private int valueEnd;
+        private int count;
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /** 该行在 {@link ConsoleBuffer} 中的序号；不是从缓冲区来的行为 0。 */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /** PLAYER_ENTRY、PLAYER_JOINED、PLAYER_LEFT、CHAT 的玩家名。 */
+        public String playerName() {
+            return text.subSequence(nameStart, nameEnd).toString();
+        }
+
+        /** PLAYER_ENTRY 的 "IP:端口"，CHAT 的消息内容，ERROR 的整行。 */
+        public String value() {
+            return text.subSequence(valueStart, valueEnd).toString();
+        }
+
+        /** PLAYER_COUNT 的人数。 */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private static final String PROMPT = ": ";
+    private static final String JOINED = " has joined.";
+    private static final String LEFT = " has left.";
+    private static final String CONNECTED = " connected.";
+    private static final String NO_PLAYERS = "No players";
+    private static final String SERVER_STARTED = "Server started";
+    private static final String ERROR_LEVEL = "/ERROR]";
+    private static final String EXCEPTION = "Exception:";
+    private static final String STACK_FRAME = "at ";
+
+    /** 服务器在交互式菜单 (不带 -world 启动时) 里等待输入时打印的提示，后面不换行。 */
+    private static final String[] INPUT_PROMPTS = {
+            "Choose World", "Enter world name", "Max players", "Server port",
+            "Automatically forward port", "Server password"};
+
+    private final Event event = new Event();
+
+    /**
+     * 一段还没有换行的输出是否是等待输入的提示，例如 "Choose World: "、"Server port (press enter for 7777): "。
+     * 提示之后服务器会一直等输入，读取线程据此把它当作完整的一行，不必等换行。
+     */
+    public static boolean isInputPrompt(CharSequence text) {
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end == 0 || text.charAt(end - 1) != ':') {
+            return false;
+        }
+        for (String prompt : INPUT_PROMPTS) {
+            if (regionMatches(text, 0, end, prompt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一行输出是否是服务器启动完成的提示。"Server started" 必须出现在行首 (可以带 ": " 提示符)，
+     * 玩家在聊天里打出同样的字 ("&lt;Bob&gt; Server started") 不算。
+     */
+    public static boolean isServerStarted(CharSequence text) {
+        int start = 0;
+        while (start < text.length() && text.charAt(start) <= ' ') {
+            start++;
+        }
+        if (regionMatches(text, start, text.length(), PROMPT)) {
+            start += PROMPT.length();
+        }
+        return regionMatches(text, start, text.length(), SERVER_STARTED);
+    }
+
+    /**
+     * 解析整段文本 (不含换行符)。
+     */
+    public Event parse(CharSequence text, long sequence) {
+        return parse(text, 0, text.length(), sequence);
+    }
+
+    /**
+     * 解析 text 中 [start, end) 这一段，首尾空白 (包括 '\r') 会被忽略。
+     */
+    public Event parse(CharSequence text, int start, int end, long sequence) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        event.text = text;
+        event.sequence = sequence;
+        event.kind = classify(text, start, end);
+        return event;
+    }
+
+    private Kind classify(CharSequence text, int start, int end) {
+        boolean prompted = regionMatches(text, start, end, PROMPT);
+        int body = prompted ? start + PROMPT.length() : start;
+
+        if (body < end && text.charAt(body) == '<') {
+            int close = indexOf(text, body + 1, end, '>');
+            if (close > body + 1) {
+                setName(body + 1, close);
+                int message = close + 1;
+                if (message < end && text.charAt(message) == ' ') {
+                    message++;
+                }
+                setValue(message, end);
+                return Kind.CHAT;
+            }
+        }
+        // 在 "playing" 输出里，名字在最后一个 " (" 之前，名字本身带括号也不会切错
+        if (prompted && end - body > 3 && text.charAt(end - 1) == ')') {
+            int open = lastIndexOf(text, body, end, " (");
+            if (open > body) {
+                setName(body, open);
+                setValue(open + 2, end - 1);
+                return Kind.PLAYER_ENTRY;
+            }
+        }
+        if (endsWith(text, body, end, JOINED) && end - JOINED.length() > body) {
+            setName(body, end - JOINED.length());
+            return Kind.PLAYER_JOINED;
+        }
+        if (endsWith(text, body, end, LEFT) && end - LEFT.length() > body) {
+            setName(body, end - LEFT.length());
+            return Kind.PLAYER_LEFT;
+        }
+        if (endsWith(text, body, end, CONNECTED)) {
+            int count = parseCount(text, body, end - CONNECTED.length());
+            if (count >= 0) {
+                event.count = count;
+                return Kind.PLAYER_COUNT;
+            }
+        }
+        if (regionMatches(text, body, end, SERVER_STARTED)) {
+            return Kind.SERVER_STARTED;
+        }
+        if (indexOf(text, body, end, ERROR_LEVEL) != -1 || indexOf(text, body, end, EXCEPTION) != -1
+                || (regionMatches(text, body, end, STACK_FRAME) && indexOf(text, body, end, '(') != -1)) {
+            setValue(start, end);
+            return Kind.ERROR;
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * "No players" -> 0, "1 player" -> 1, "N players" -> N；不是这几种格式返回 -1。
+     */
+    private static int parseCount(CharSequence text, int start, int end) {
+        if (regionMatches(text, start, end, NO_PLAYERS) && start + NO_PLAYERS.length() == end) {
+            return 0;
+        }
+        int count = 0;
+        int i = start;
+        while (i < end && Character.isDigit(text.charAt(i)) && count < 100_000) {
+            count = count * 10 + (text.charAt(i) - '0');
+            i++;
+        }
+        if (i == start) {
+            return -1;
+        }
+        String unit = count == 1 ? " player" : " players";
+        return regionMatches(text, i, end, unit) && i + unit.length() == end ? count : -1;
+    }
+
+    private void setName(int start, int end) {
+        event.nameStart = start;
+        event.nameEnd = end;
+    }
+
+    private void setValue(int start, int end) {
+        event.valueStart = start;
+        event.valueEnd = end;
+    }
+
+    // ===================================================================================
+    // CharSequence 上的字符串操作，均不产生新对象
+    // ===================================================================================
+
+    private static boolean regionMatches(CharSequence text, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWith(CharSequence text, int start, int end, String suffix) {
+        return end - start >= suffix.length() && regionMatches(text, end - suffix.length(), end, suffix);
+    }
+
+    private static int indexOf(CharSequence text, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence text, int start, int end, String target) {
+        char first = target.charAt(0);
+        for (int i = start; i <= end - target.length(); i++) {
+            if (text.charAt(i) == first && regionMatches(text, i, end, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(CharSequence text, int start, int end, String target) {
+        for (int i = end - target.length(); i >= start; i--) {
+            if (regionMatches(text, i, end, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
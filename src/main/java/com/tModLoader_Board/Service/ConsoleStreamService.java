@@ -0,0 +1,239 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 【职责】: 把每个 tmodloader-* 会话的控制台输出持续地流进各自的 {@link ConsoleBuffer}。
+ * 输出从 {@link ServerProcessBackend} 给出的通道读取 (tmux 的 pipe-pane 管道，或直接运行时的日志文件)，这里只负责解码并按行切分。
+ * 这样查询命令结果时只需要读缓冲区里 "某个序号之后的行"，不必每次重新抓取整个窗格。
+ */
+@Service
+public class ConsoleStreamService {
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.console.buffer-lines:5000}")
+    private int bufferLines;
+
+    // 读取循环里每次 read 都要计数，计数器只查找一次
+    private Counter bytesRead;
+    private Counter linesRead;
+
+    private final Map<String, ConsoleBuffer> buffers = new ConcurrentHashMap<>();
+    private final Map<String, ServerProcessBackend.ConsoleSource> sources = new ConcurrentHashMap<>();
+    private final List<Consumer<ConsoleBuffer>> attachListeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock attachLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        bytesRead = meterRegistry.counter("tmodloader.console.bytes");
+        linesRead = meterRegistry.counter("tmodloader.console.lines");
+        meterRegistry.gaugeMapSize("tmodloader.console.streams", List.of(), buffers);
+    }
+
+    /**
+     * 返回会话的控制台缓冲区，如果还没有接上输出流就先接上。
+     *
+     * @return 缓冲区；无法建立输出流 (例如 Windows 或 tmux 不可用) 时返回 null。
+     */
+    public ConsoleBuffer attach(String sessionName) throws IOException, InterruptedException {
+        ConsoleBuffer existing = buffers.get(sessionName);
+        if (existing != null) {
+            return existing;
+        }
+        attachLock.lock();
+        try {
+            existing = buffers.get(sessionName);
+            if (existing != null) {
+                return existing;
+            }
+            return openStream(sessionName);
+        } finally {
+            attachLock.unlock();
+        }
+    }
+
+    /**
+     * 仅返回已经接上的缓冲区，不会触发 attach。
+     */
+    public ConsoleBuffer getBuffer(String sessionName) {
+        return buffers.get(sessionName);
+    }
+
+    /**
+     * 订阅 "新的会话接上了输出流" 事件。回调在读取线程启动之前执行，
+     * 因此在回调里给缓冲区注册的监听器不会错过任何一行新输出。
+     */
+    public void addAttachListener(Consumer<ConsoleBuffer> listener) {
+        attachListeners.add(listener);
+    }
+
+    /**
+     * 断开会话的输出流并丢弃它的缓冲区，不会停止服务器。会话改名之前调用，改名后再用新名字 attach。
+     */
+    public void detach(String sessionName) {
+        attachLock.lock();
+        try {
+            buffers.remove(sessionName);
+            ServerProcessBackend.ConsoleSource source = sources.remove(sessionName);
+            if (source != null) {
+                source.close();
+            }
+        } finally {
+            attachLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ServerProcessBackend.ConsoleSource source : sources.values()) {
+            source.close();
+        }
+    }
+
+    // ===================================================================================
+    // 管道建立 & 读取
+    // ===================================================================================
+
+    private ConsoleBuffer openStream(String sessionName) throws IOException, InterruptedException {
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            return null;
+        }
+
+        // 先把已有的历史输出放进缓冲区，之后的新输出由 source 接着写入
+        ConsoleBuffer buffer = new ConsoleBuffer(sessionName, bufferLines);
+        ServerProcessBackend.ConsoleSource source = processBackend.openConsole(sessionName, buffer);
+        if (source == null) {
+            return null;
+        }
+
+        buffers.put(sessionName, buffer);
+        sources.put(sessionName, source);
+        for (Consumer<ConsoleBuffer> listener : attachListeners) {
+            listener.accept(buffer);
+        }
+        // 每个会话一个读取任务，阻塞等待输出时不占用平台线程
+        processExecutor.execute(() -> readLoop(buffer, source));
+        System.out.println("已为会话 '" + sessionName + "' 接上控制台输出流。");
+        return buffer;
+    }
+
+    /**
+     * 读取线程: 读字节，解码成字符，去掉终端控制序列后按行写入缓冲区。
+     * 服务器退出 (或 tmux 管道被替换) 时读到 EOF，缓冲区随之关闭。
+     */
+    private void readLoop(ConsoleBuffer buffer, ServerProcessBackend.ConsoleSource source) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(8192);
+        CharBuffer chars = CharBuffer.allocate(8192);
+        LineAssembler assembler = new LineAssembler(buffer);
+
+        try (ReadableByteChannel channel = source.open()) {
+            int read;
+            while ((read = channel.read(bytes)) != -1) {
+                bytesRead.increment(read);
+                long before = buffer.getLastSequence();
+                bytes.flip();
+                decoder.decode(bytes, chars, false);
+                bytes.compact();
+                chars.flip();
+                assembler.feed(chars);
+                chars.clear();
+                linesRead.increment(buffer.getLastSequence() - before);
+            }
+        } catch (IOException e) {
+            // 被 detach 主动断开时读取会失败，不算错误
+            if (sources.get(buffer.getSessionName()) == source) {
+                System.err.println("读取会话 '" + buffer.getSessionName() + "' 的控制台输出时出错: " + e.getMessage());
+            }
+        }
+
+        buffers.remove(buffer.getSessionName(), buffer);
+        sources.remove(buffer.getSessionName(), source);
+        buffer.close();
+        System.out.println("会话 '" + buffer.getSessionName() + "' 的控制台输出流已结束。");
+    }
+
+    /**
+     * 把连续的字符流切成行，顺带丢掉 "\r" 和 ESC [ ... 形式的终端控制序列。
+     * 每一行写入缓冲区之后，再直接在拼行用的 StringBuilder 上识别格式并通知监听器。
+     */
+    private static class LineAssembler {
+        private final ConsoleBuffer buffer;
+        private final StringBuilder current = new StringBuilder();
+        private final ConsoleLineParser parser = new ConsoleLineParser();
+        // 0: 普通字符; 1: 刚读到 ESC; 2: 在 CSI 序列内部
+        private int escapeState = 0;
+
+        LineAssembler(ConsoleBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void feed(CharBuffer chars) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (escapeState == 1) {
+                    escapeState = c == '[' ? 2 : 0;
+                } else if (escapeState == 2) {
+                    if (c >= '@' && c <= '~') {
+                        escapeState = 0;
+                    }
+                } else if (c == 0x1B) {
+                    escapeState = 1;
+                } else if (c == '\n') {
+                    emitLine();
+                } else if (c != '\r') {
+                    current.append(c);
+                }
+            }
+            // 交互式提示没有换行，服务器打印完就停下来等输入，这时把它单独作为一行
+            if (current.length() > 0 && escapeState == 0 && ConsoleLineParser.isInputPrompt(current)) {
+                emitLine();
+            }
+        }
+
+        private void emitLine() {
+            long sequence = buffer.append(current.toString());
+            if (buffer.hasParsedLineListeners()) {
+                ConsoleLineParser.Event event = parser.parse(current, sequence);
+                if (event.getKind() != ConsoleLineParser.Kind.OTHER) {
+                    buffer.publish(event);
+                }
+            }
+            current.setLength(0);
+        }
+    }
+}
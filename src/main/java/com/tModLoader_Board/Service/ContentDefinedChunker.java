@@ -0,0 +1,86 @@
+package com.tModLoader_Board.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 【职责】: 按内容把一个文件切成大小不等的块 (gear 滚动哈希，思路同 FastCDC)。
+ * 切点只取决于附近 64 字节的内容，文件中间插入或删除一段数据时，只有附近的块会变，
+ * 其余块的哈希不变，备份时就不用再存一遍。块大小在 MIN_CHUNK 与 MAX_CHUNK 之间，平均约 64KB。
+ */
+class ContentDefinedChunker {
+
+    static final int MIN_CHUNK = 16 * 1024;
+    static final int MAX_CHUNK = 256 * 1024;
+    // 最高 16 位全为 0 时切开，期望间隔 2^16 = 64KB
+    private static final long MASK = 0xFFFF_0000_0000_0000L;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // 固定种子的 SplitMix64；切点必须在不同版本、不同机器之间保持一致，否则旧块都无法复用
+        long state = 0x7A6D_6F64_6C6F_6164L;
+        for (int i = 0; i < GEAR.length; i++) {
+            state += 0x9E37_79B9_7F4A_7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * 每切出一块调用一次。data 在回调返回后会被复用，需要保留的内容请在回调里处理完。
+     */
+    @FunctionalInterface
+    interface ChunkSink {
+        void accept(byte[] data, int length) throws IOException, InterruptedException;
+    }
+
+    private final byte[] window = new byte[MAX_CHUNK * 2];
+    private final byte[] chunk = new byte[MAX_CHUNK];
+
+    /**
+     * 读完 in 并把所有块依次交给 sink。
+     */
+    void split(InputStream in, ChunkSink sink) throws IOException, InterruptedException {
+        int length = 0;
+        boolean eof = false;
+        while (true) {
+            while (!eof && length < window.length) {
+                int n = in.read(window, length, window.length - length);
+                if (n == -1) {
+                    eof = true;
+                } else {
+                    length += n;
+                }
+            }
+            if (length == 0) {
+                return;
+            }
+            int cut = cutPoint(length);
+            System.arraycopy(window, 0, chunk, 0, cut);
+            System.arraycopy(window, cut, window, 0, length - cut);
+            length -= cut;
+            sink.accept(chunk, cut);
+        }
+    }
+
+    /**
+     * window[0, length) 中第一个切点的位置 (即第一块的长度)。
+     */
+    private int cutPoint(int length) {
+        if (length <= MIN_CHUNK) {
+            return length;
+        }
+        int limit = Math.min(length, MAX_CHUNK);
+        long hash = 0;
+        // 从最小长度之前 64 字节开始滚动，使最小长度处的哈希也只取决于内容本身
+        for (int i = MIN_CHUNK - Long.SIZE; i < limit; i++) {
+            hash = (hash << 1) + GEAR[window[i] & 0xFF];
+            if (i >= MIN_CHUNK && (hash & MASK) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
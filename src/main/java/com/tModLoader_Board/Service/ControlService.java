@@ -1,98 +1,123 @@
 package com.tModLoader_Board.Service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
- * 【职责】: 负责与一个已经存在的、正在运行的 tModLoader 服务器 tmux 会话进行交互。
+ * 【职责】: 负责与一个已经存在的、正在运行的 tModLoader 服务器会话进行交互。
  * 这个服务就像一个服务器的"遥控器"。
  */
 @Service
 public class ControlService {
 
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    @Autowired
+    private CommandExecutor commandExecutor;
+
+    @Autowired
+    private ResourceAllocator resourceAllocator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.command.stop-timeout-ms:15000}")
+    private long stopTimeoutMillis;
+
+    private final List<Consumer<String>> stopListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 订阅 "服务器被主动停止" 事件，在发送 exit 之前调用，用来区分正常退出和崩溃。
+     */
+    public void addStopListener(Consumer<String> listener) {
+        stopListeners.add(listener);
+    }
+
+    /**
+     * 通知订阅者这个会话接下来是被有意结束的。stopServer 会自己调用；不经过 stopServer 直接结束会话的地方要先调用它。
+     */
+    public void notifyStopping(String sessionName) {
+        for (Consumer<String> listener : stopListeners) {
+            listener.accept(sessionName);
+        }
+    }
+
     // ===================================================================================
     // 核心交互方法 (发送命令 & 获取输出)
     // ===================================================================================
 
     /**
-     * 向指定的 tmux 会话发送一条指令。
+     * 向指定的会话发送一条指令。
      */
     public void sendCommand(String sessionName, String commandString) throws IOException, InterruptedException {
-        List<String> command = new ArrayList<>();
-        command.add("tmux");
-        command.add("send-keys");
-        command.add("-t");
-        command.add(sessionName);
-        command.add(commandString);
-        command.add("C-m");
-
-        Process p = new ProcessBuilder(command).start();
-        p.waitFor(5, TimeUnit.SECONDS);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            processBackend.send(sessionName, commandString);
+            outcome = "success";
+        } finally {
+            sample.stop(meterRegistry.timer("tmodloader.control.send", "outcome", outcome));
+        }
     }
 
     /**
-     * 从指定的 tmux 会话中抓取最新的屏幕输出内容。
+     * 从指定的会话中抓取最新的屏幕输出内容。
      */
         /**
      * 【重写后】智能地抓取指定命令的输出。
      * 此方法会从下往上查找包含 commandString 的行，并只返回该行之后的所有内容。
      *
      * @param commandString  您刚刚发送的命令（例如 "playing"），用于在输出中定位。
-     * @param sessionName    目标 tmux 会话名。
+     * @param sessionName    目标会话名。
      * @param linesToCapture 要抓取的最新行数（这个数字应足够大以包含命令和其完整输出）。
      * @return               命令的精确输出。如果找不到命令，则返回空字符串。
      */
     public String getTmuxOutput(String commandString, String sessionName, int linesToCapture) throws IOException, InterruptedException {
-        // 步骤 1: 像以前一样，执行 tmux capture-pane 获取原始输出
-        List<String> command = new ArrayList<>();
-        command.add("tmux");
-        command.add("capture-pane");
-        command.add("-p");
-        command.add("-t");
-        command.add(sessionName);
-        command.add("-S");
-        command.add("-" + linesToCapture);
-
-        Process process = new ProcessBuilder(command).start();
-
-        StringBuilder rawOutputBuilder = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                rawOutputBuilder.append(line).append(System.lineSeparator());
-            }
+        // 优先从持续流入的控制台缓冲区里查找，只扫描最近 linesToCapture 行，不再重新抓取窗格
+        ConsoleBuffer buffer = consoleStreamService.attach(sessionName);
+        if (buffer != null) {
+            long commandSequence = buffer.findLast(commandString, linesToCapture);
+            return commandSequence == -1 ? "" : joinLines(buffer.linesAfter(commandSequence));
         }
-        process.waitFor(5, TimeUnit.SECONDS);
-        String rawOutput = rawOutputBuilder.toString();
 
-        // 步骤 2: 将原始输出分割成行数组
-        String[] lines = rawOutput.split(System.lineSeparator());
+        // 步骤 1 & 2: 直接抓取最近的输出，结果已经按行分好
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<String> captured = processBackend.capture(sessionName, linesToCapture);
+        sample.stop(meterRegistry.timer("tmodloader.control.capture"));
+        if (captured == null) {
+            return "";
+        }
+        meterRegistry.summary("tmodloader.control.capture.lines").record(captured.size());
 
         // 步骤 3: 从下往上遍历，查找包含命令的行
         int commandLineIndex = -1;
-        for (int i = lines.length - 1; i >= 0; i--) {
+        for (int i = captured.size() - 1; i >= 0; i--) {
             // A simple .contains() is usually robust enough to find the command prompt line.
             // e.g., it will match "> playing"
-            if (lines[i].contains(commandString)) {
+            if (captured.get(i).contains(commandString)) {
                 commandLineIndex = i;
                 break; // 找到最近的一次命令，停止搜索
             }
         }
 
-        // 步骤 4: 如果找到了命令，提取其之后的所有行
+        // 步骤 4: 如果找到了命令，提取其之后的所有行 (直接在列表上取子区间，不再整体复制成数组)
         if (commandLineIndex != -1) {
-            StringBuilder commandResult = new StringBuilder();
-            for (int i = commandLineIndex + 1; i < lines.length; i++) {
-                commandResult.append(lines[i]).append(System.lineSeparator());
-            }
-            // 返回提取到的精确输出，并去除首尾可能存在的空白
-            return commandResult.toString().trim();
+            return joinLines(captured.subList(commandLineIndex + 1, captured.size()));
         }
 
         // 如果在捕获的行中找不到命令，返回空字符串
@@ -107,27 +132,45 @@ public class ControlService {
      * 获取指定服务器上的在线玩家列表。
      */
     public List<String> getPlayersOnline(String sessionName) throws IOException, InterruptedException {
-        sendCommand(sessionName, "playing");
-        Thread.sleep(500); // 等待服务器响应
-        String output = getTmuxOutput("playing", sessionName, 30);
-        // 【重点】调用下面已修改的解析方法
-        return parsePlayerList(output);
+        // 看到 "N players connected." 这一行就立即返回，不再固定等待 500ms
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            String output = await(commandExecutor.execute(sessionName, "playing", CommandExecutor.PLAYERS_LISTED));
+            // 【重点】调用下面已修改的解析方法
+            List<String> players = parsePlayerList(output);
+            outcome = "success";
+            return players;
+        } finally {
+            sample.stop(meterRegistry.timer("tmodloader.control.players", "outcome", outcome));
+        }
     }
 
     /**
-     * 优雅地停止服务器。
+     * 优雅地停止服务器，并释放它占用的端口和预留的资源。
      */
     public void stopServer(String sessionName) throws IOException, InterruptedException {
+        notifyStopping(sessionName);
         if (isSessionRunning(sessionName)) {
             System.out.println("正在向会话 '" + sessionName + "' 发送 'exit' 命令以关闭服务器...");
-            sendCommand(sessionName, "exit");
-            Thread.sleep(2000);
-            if (isSessionRunning(sessionName)) {
-                new ProcessBuilder("tmux", "kill-session", "-t", sessionName).start();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "failure";
+            try {
+                // 控制台输出流结束即说明服务器已退出；超时仍未退出的再强制结束会话
+                await(commandExecutor.execute(sessionName, "exit", CommandExecutor.UNTIL_EXIT, stopTimeoutMillis));
+                if (isSessionRunning(sessionName)) {
+                    processBackend.kill(sessionName);
+                    outcome = "killed";
+                } else {
+                    outcome = "graceful";
+                }
+            } finally {
+                sample.stop(meterRegistry.timer("tmodloader.control.stop", "outcome", outcome));
             }
         } else {
             System.out.println("会话 '" + sessionName + "' 未在运行。");
         }
+        resourceAllocator.release(sessionName);
     }
 
     // ===================================================================================
@@ -135,84 +178,101 @@ public class ControlService {
     // ===================================================================================
 
     /**
-     * 检查指定的 tmux 会话当前是否正在运行。
+     * 检查指定的会话当前是否正在运行。
      */
     public boolean isSessionRunning(String sessionName) throws IOException, InterruptedException {
-        Process process = new ProcessBuilder("tmux", "has-session", "-t", sessionName).start();
-        process.waitFor(5, TimeUnit.SECONDS);
-        return process.exitValue() == 0;
+        return processBackend.isRunning(sessionName);
+    }
+
+    /**
+     * 让服务器立即存档，并等待控制台报告存档完成。
+     *
+     * @return 控制台确认了存档完成时返回 true；超时返回 false (存档可能仍在进行)。
+     */
+    public boolean saveWorld(String sessionName, long timeoutMillis) throws IOException, InterruptedException {
+        String output = await(commandExecutor.execute(sessionName, "save", CommandExecutor.WORLD_SAVED, timeoutMillis));
+        return output.lines().anyMatch(CommandExecutor.WORLD_SAVED);
     }
 
     /**
      * 私有辅助方法，从 tModLoader 的原始输出中解析出玩家列表。
      * 此方法已根据实际输出格式 ": PlayerName (IP:Port)" 进行重写。
      *
+     * 包内可见，供 benchmarks 模块单独测量解析的开销。
+     *
      * @param rawOutput 从 tmux 抓取的原始文本。
      * @return 解析后的玩家名列表。
      */
-    private List<String> parsePlayerList(String rawOutput) {
+    List<String> parsePlayerList(String rawOutput) {
         List<String> players = new ArrayList<>();
-        String[] lines = rawOutput.split(System.lineSeparator());
+        int reportedCount = -1;
 
-        for (String line : lines) {
-            String trimmedLine = line.trim();
-
-            // 1. 检查行是否以 ": " 开头。
-            // 2. 检查行是否包含 " ("，这是玩家名和IP地址的分隔符。
-            if (trimmedLine.startsWith(": ") && trimmedLine.contains(" (")) {
-                try {
-                    // 玩家名是从第3个字符(索引为2)开始，直到 " (" 出现之前的位置。
-                    int nameEndIndex = trimmedLine.indexOf(" (");
-                    String playerName = trimmedLine.substring(2, nameEndIndex);
-                    players.add(playerName);
-                } catch (Exception e) {
-                    // 如果解析出现意外，打印错误但程序不中断
-                    System.err.println("解析玩家行时出错: " + trimmedLine);
-                }
+        // 按换行符逐段交给解析器，不切分数组、不 trim，只有玩家名会生成新的 String
+        ConsoleLineParser parser = new ConsoleLineParser();
+        int start = 0;
+        while (start < rawOutput.length()) {
+            int end = rawOutput.indexOf('\n', start);
+            if (end == -1) {
+                end = rawOutput.length();
+            }
+            ConsoleLineParser.Event event = parser.parse(rawOutput, start, end, 0);
+            if (event.getKind() == ConsoleLineParser.Kind.PLAYER_ENTRY) {
+                players.add(event.playerName());
+            } else if (event.getKind() == ConsoleLineParser.Kind.PLAYER_COUNT) {
+                reportedCount = event.getCount();
             }
+            start = end + 1;
+        }
+
+        // 汇总行的人数和解析出的行数对不上，说明有玩家行的格式没认出来
+        if (reportedCount != -1 && reportedCount != players.size()) {
+            meterRegistry.counter("tmodloader.parse.failures", "kind", "player").increment();
+            System.err.println("解析玩家列表时出错: 汇总为 " + reportedCount + " 人，实际解析出 " + players.size() + " 人");
         }
         System.out.println(players);
         return players;
     }
 
     /**
-     * 获取所有正在运行的 tModLoader 服务器 tmux 会话列表。
+     * 等待一个命令执行结果，把异步异常还原成本类方法声明的 IOException。
+     */
+    private String await(CompletableFuture<String> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 把若干行拼成一个字符串，并去除首尾可能存在的空白。
+     */
+    private String joinLines(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * 获取所有正在运行的 tModLoader 服务器会话列表。
      *
      * @return 一个包含所有 tModLoader 会话名称的 List<String>。
      */
     public List<String> getServerList() throws IOException, InterruptedException {
         List<String> serverList = new ArrayList<>();
-        List<String> command = new ArrayList<>();
-        command.add("tmux");
-        command.add("ls"); // "ls" 命令用于列出所有会话
-
-        Process process = new ProcessBuilder(command).start();
-
-        // 读取 tmux ls 的输出
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // tmux ls 的输出格式通常是: "session_name: 1 windows (created ...)"
-                // 我们需要提取冒号 ":" 之前的部分
-                int colonIndex = line.indexOf(':');
-                if (colonIndex != -1) {
-                    String sessionName = line.substring(0, colonIndex);
-                    // 只添加 tmodloader 的会话
-                    if (sessionName.startsWith("tmodloader-")) {
-                        serverList.add(sessionName);
-                    }
-                }
+        for (String sessionName : processBackend.listSessions()) {
+            // 只添加 tmodloader 的会话
+            if (sessionName.startsWith("tmodloader-")) {
+                serverList.add(sessionName);
+                // 确保每个服务器的控制台输出都在持续流入缓冲区
+                consoleStreamService.attach(sessionName);
             }
         }
-
-        process.waitFor(5, TimeUnit.SECONDS);
-
-        // 如果 tmux 命令执行失败 (例如 tmux 服务未运行)，返回空列表
-        if (process.exitValue() != 0) {
-            System.err.println("执行 'tmux ls' 失败，可能 tmux 服务未运行。");
-            return new ArrayList<>(); // 返回空列表而不是null，更安全
-        }
-
         return serverList;
     }
 }
\ No newline at end of file
@@ -0,0 +1,532 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 【职责】: 面板直接把启动脚本作为子进程运行，不经过 tmux。
+ * 每个会话在 board-run/<会话名>/ 下有三个文件:
+ * stdin (命名管道，服务器的标准输入)、console.log (标准输出和错误)、pid (进程号和启动时间)。
+ *
+ * 服务器由一个很小的 sh 包装启动: 它用读写方式打开 stdin 管道再 exec 启动脚本，
+ * 所以服务器自己一直持有管道的写端，面板断开或重启都不会让它读到 EOF；输出直接追加进 console.log。
+ * 输出没有经过管道转给面板: 面板不在时管道写满会卡住服务器，写文件不会。
+ * 面板通过 FileChannel 追读 console.log 拿到完整、有序的输出，读到末尾后阻塞到文件监视 (Linux 上是 inotify)
+ * 报告 console.log 被写入或进程退出，不轮询；写命令就是往管道里写一行，重启后根据 pid 文件重新接上，不需要任何额外进程。
+ * console.log 超过 console-log-max-bytes 时复制为 console.log.1 后原地截断 (服务器以追加方式写入，截断后接着从头写)。
+ */
+@Component
+@ConditionalOnProperty(name = "tmodloader.process.backend", havingValue = "direct", matchIfMissing = true)
+public class DirectProcessBackend implements ServerProcessBackend {
+
+    private static final String STDIN_FILE = "stdin";
+    private static final String LOG_FILE = "console.log";
+    private static final String PREVIOUS_LOG_FILE = "console.log.1";
+    private static final String PID_FILE = "pid";
+    // $1 是 stdin 管道，之后是启动脚本和参数。以读写方式打开管道不会阻塞，且服务器永远读不到 EOF
+    private static final String WRAPPER = "in=\"$1\"; shift; exec \"$@\" 0<>\"$in\"";
+    private static final Pattern SESSION_NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+    // 重新接上输出时最多回读的日志字节数
+    private static final int HISTORY_BYTES = 1024 * 1024;
+    // 无法监视目录时，日志没有新内容的等待间隔
+    private static final long TAIL_POLL_MILLIS = 20;
+    // 有文件监视时也定期醒来检查一次，防止事件丢失
+    private static final long TAIL_WATCH_TIMEOUT_MILLIS = 1000;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DirectoryWatchService directoryWatchService;
+
+    @Value("${tmodloader.process.console-log-max-bytes:16777216}")
+    private long consoleLogMaxBytes;
+
+    // 会话名 -> 正在运行的服务器进程
+    private final Map<String, ProcessHandle> processes = new ConcurrentHashMap<>();
+    // 保证 "回显 + 写入" 两步对同一个会话是原子的，并发的命令不会交错
+    private final Map<String, ReentrantLock> inputLocks = new ConcurrentHashMap<>();
+    private final List<Runnable> sessionsChangedListeners = new CopyOnWriteArrayList<>();
+    private volatile Boolean setsidAvailable;
+
+    @Override
+    public boolean start(String sessionName, List<String> command) throws IOException, InterruptedException {
+        Path dir = sessionDir(sessionName);
+        Files.createDirectories(dir);
+        Path stdin = dir.resolve(STDIN_FILE);
+        Path log = dir.resolve(LOG_FILE);
+
+        Files.deleteIfExists(stdin);
+        meterRegistry.counter("tmodloader.process.forks", "reason", "mkfifo").increment();
+        Process mkfifo = new ProcessBuilder("mkfifo", stdin.toString()).start();
+        if (!mkfifo.waitFor(5, TimeUnit.SECONDS) || mkfifo.exitValue() != 0) {
+            System.err.println("创建命名管道失败: " + stdin);
+            return false;
+        }
+        // 上一次运行的日志留一份，方便排查崩溃原因
+        if (Files.exists(log)) {
+            Files.move(log, dir.resolve(PREVIOUS_LOG_FILE), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Process process;
+        try {
+            meterRegistry.counter("tmodloader.process.forks", "reason", "server").increment();
+            process = launch(command, stdin, log);
+        } catch (IOException e) {
+            System.err.println("启动服务器进程失败: " + e.getMessage());
+            return false;
+        }
+        ProcessHandle handle = process.toHandle();
+        long startedAt = handle.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+        Files.writeString(dir.resolve(PID_FILE), handle.pid() + " " + startedAt);
+        track(sessionName, handle);
+        fireSessionsChanged();
+        return true;
+    }
+
+    @Override
+    public void send(String sessionName, String line) throws IOException, InterruptedException {
+        write(sessionName, line, false);
+    }
+
+    @Override
+    public void sendSecret(String sessionName, String line) throws IOException, InterruptedException {
+        write(sessionName, line, true);
+    }
+
+    @Override
+    public boolean supportsSecretInput() {
+        return true;
+    }
+
+    private void write(String sessionName, String line, boolean secret) throws IOException {
+        if (processOf(sessionName) == null) {
+            throw new IOException("会话 '" + sessionName + "' 未在运行");
+        }
+        Path dir = sessionDir(sessionName);
+        String input = line.replace('\r', ' ').replace('\n', ' ');
+        ReentrantLock lock = inputLocks.computeIfAbsent(sessionName, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            // 管道输入没有终端回显，自己把命令写进日志，命令输出就能以它为界定位
+            try (FileChannel channel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                String echo = secret ? "*".repeat(8) : input;
+                writeFully(channel, ByteBuffer.wrap(("> " + echo + "\n").getBytes(StandardCharsets.UTF_8)));
+            }
+            // 服务器持有管道的读端，这里打开写端不会阻塞；一行命令远小于 PIPE_BUF，写入是原子的
+            try (FileChannel channel = FileChannel.open(dir.resolve(STDIN_FILE), StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap((input + "\n").getBytes(StandardCharsets.UTF_8)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning(String sessionName) {
+        return processOf(sessionName) != null;
+    }
+
+    @Override
+    public void kill(String sessionName) {
+        ProcessHandle handle = processOf(sessionName);
+        if (handle != null) {
+            // 启动脚本会再拉起 dotnet，整棵进程树一起结束
+            handle.descendants().forEach(ProcessHandle::destroyForcibly);
+            handle.destroyForcibly();
+        }
+    }
+
+    @Override
+    public long getPid(String sessionName) {
+        ProcessHandle handle = processOf(sessionName);
+        return handle == null ? -1 : handle.pid();
+    }
+
+    /**
+     * 服务器按文件描述符读写 stdin 管道和 console.log，整个会话目录改名不影响它。
+     * 新名字之前留下的目录 (上一次运行) 会被替换，它的日志改存为新目录里的 console.log.1。
+     */
+    @Override
+    public void rename(String sessionName, String newName) throws IOException {
+        ProcessHandle handle = processOf(sessionName);
+        if (handle == null) {
+            throw new IOException("会话 '" + sessionName + "' 未在运行");
+        }
+        if (processOf(newName) != null) {
+            throw new IOException("会话 '" + newName + "' 已在运行");
+        }
+        Path from = sessionDir(sessionName);
+        Path to = sessionDir(newName);
+        if (Files.isDirectory(to)) {
+            Path previousLog = to.resolve(LOG_FILE);
+            if (Files.exists(previousLog)) {
+                Files.move(previousLog, from.resolve(PREVIOUS_LOG_FILE), StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (Stream<Path> files = Files.list(to)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(to);
+        }
+        Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+        processes.remove(sessionName, handle);
+        inputLocks.remove(sessionName);
+        track(newName, handle);
+        fireSessionsChanged();
+    }
+
+    @Override
+    public List<String> listSessions() throws IOException {
+        Path runDir = Paths.get(tmodloaderPaths.getRunDir());
+        if (!Files.isDirectory(runDir)) {
+            return new ArrayList<>();
+        }
+        List<String> sessions = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(runDir)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String sessionName = dir.getFileName().toString();
+                if (SESSION_NAME.matcher(sessionName).matches() && processOf(sessionName) != null) {
+                    sessions.add(sessionName);
+                }
+            }
+        }
+        return sessions;
+    }
+
+    @Override
+    public List<String> capture(String sessionName, int lines) throws IOException {
+        if (processOf(sessionName) == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(sessionDir(sessionName).resolve(LOG_FILE), StandardOpenOption.READ)) {
+            List<String> history = readTail(channel, channel.size()).lines();
+            return history.subList(Math.max(0, history.size() - lines), history.size());
+        }
+    }
+
+    @Override
+    public ConsoleSource openConsole(String sessionName, ConsoleBuffer buffer) throws IOException {
+        ProcessHandle handle = processOf(sessionName);
+        if (handle == null) {
+            return null;
+        }
+        Path dir = sessionDir(sessionName);
+        FileChannel channel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.READ);
+        try {
+            // 历史部分一次读完，之后从最后一个完整行的末尾开始追读，未写完的那一行留给读取线程
+            Tail tail = readTail(channel, channel.size());
+            List<String> history = tail.lines();
+            for (String line : history.subList(Math.max(0, history.size() - buffer.getCapacity()), history.size())) {
+                buffer.append(line);
+            }
+            channel.position(tail.end());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        LogTail tail = new LogTail(sessionName, dir, channel, handle);
+        return new ConsoleSource() {
+            @Override
+            public ReadableByteChannel open() {
+                return tail;
+            }
+
+            @Override
+            public void close() {
+                tail.close();
+            }
+        };
+    }
+
+    @Override
+    public void addSessionsChangedListener(Runnable listener) {
+        sessionsChangedListeners.add(listener);
+    }
+
+    // ===================================================================================
+    // 进程管理
+    // ===================================================================================
+
+    private Process launch(List<String> command, Path stdin, Path log) throws IOException {
+        List<String> args = new ArrayList<>(Arrays.asList("sh", "-c", WRAPPER, "tmodloader-server", stdin.toString()));
+        args.addAll(command);
+
+        File script = new File(command.get(0));
+        ProcessBuilder builder = new ProcessBuilder()
+                .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")))
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                .redirectErrorStream(true);
+        if (script.getParentFile() != null && script.getParentFile().isDirectory()) {
+            builder.directory(script.getParentFile());
+        }
+
+        // setsid 让服务器脱离面板的进程组，在终端里 Ctrl+C 结束面板时不会连带杀掉服务器
+        if (!Boolean.FALSE.equals(setsidAvailable)) {
+            List<String> withSetsid = new ArrayList<>(args);
+            withSetsid.add(0, "setsid");
+            try {
+                Process process = builder.command(withSetsid).start();
+                setsidAvailable = true;
+                return process;
+            } catch (IOException e) {
+                System.err.println("找不到 setsid，服务器将留在面板的进程组里: " + e.getMessage());
+                setsidAvailable = false;
+            }
+        }
+        return builder.command(args).start();
+    }
+
+    /**
+     * 返回会话正在运行的进程，没有则返回 null。面板重启后第一次查询时从 pid 文件恢复，
+     * 并核对进程启动时间，防止 pid 被系统复用给了别的进程。
+     */
+    private ProcessHandle processOf(String sessionName) {
+        ProcessHandle handle = processes.get(sessionName);
+        if (handle != null && handle.isAlive()) {
+            return handle;
+        }
+        Path pidFile;
+        try {
+            pidFile = sessionDir(sessionName).resolve(PID_FILE);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!Files.isRegularFile(pidFile)) {
+            return null;
+        }
+        try {
+            String[] parts = Files.readString(pidFile).trim().split(" ");
+            long pid = Long.parseLong(parts[0]);
+            long startedAt = parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+            Optional<ProcessHandle> found = ProcessHandle.of(pid).filter(ProcessHandle::isAlive);
+            if (found.isEmpty()) {
+                return null;
+            }
+            long actualStart = found.get().info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+            if (startedAt != 0 && actualStart != 0 && Math.abs(actualStart - startedAt) > 1000) {
+                return null;
+            }
+            track(sessionName, found.get());
+            return found.get();
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void track(String sessionName, ProcessHandle handle) {
+        if (processes.put(sessionName, handle) == handle) {
+            return;
+        }
+        handle.onExit().thenRun(() -> {
+            if (processes.remove(sessionName, handle)) {
+                System.out.println("会话 '" + sessionName + "' 的服务器进程已退出。");
+                fireSessionsChanged();
+            }
+        });
+    }
+
+    private void fireSessionsChanged() {
+        for (Runnable listener : sessionsChangedListeners) {
+            listener.run();
+        }
+    }
+
+    private Path sessionDir(String sessionName) {
+        if (!SESSION_NAME.matcher(sessionName).matches()) {
+            throw new IllegalArgumentException("非法的会话名: " + sessionName);
+        }
+        return Paths.get(tmodloaderPaths.getRunDir(), sessionName);
+    }
+
+    // ===================================================================================
+    // 日志读取
+    // ===================================================================================
+
+    /**
+     * 日志末尾若干完整行，以及最后一个完整行结束的位置。
+     */
+    private record Tail(List<String> lines, long end) {
+    }
+
+    private static Tail readTail(FileChannel channel, long size) throws IOException {
+        long start = Math.max(0, size - HISTORY_BYTES);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (size - start));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) <= 0) {
+                break;
+            }
+        }
+        byte[] data = bytes.array();
+        int length = bytes.position();
+
+        int lastNewline = length - 1;
+        while (lastNewline >= 0 && data[lastNewline] != '\n') {
+            lastNewline--;
+        }
+        int first = 0;
+        if (start > 0) {
+            // 从文件中间开始读时，第一行多半是不完整的
+            while (first <= lastNewline && data[first] != '\n') {
+                first++;
+            }
+            first++;
+        }
+        List<String> lines = new ArrayList<>();
+        if (first <= lastNewline) {
+            for (String line : new String(data, first, lastNewline - first, StandardCharsets.UTF_8).split("\n", -1)) {
+                lines.add(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+            }
+        }
+        return new Tail(lines, start + lastNewline + 1);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 像 tail -f 一样追读日志: 读到末尾后等待文件监视报告 console.log 有变化 (或进程退出)，进程退出且日志读完后返回 -1。
+     * 读完并且日志超过上限时负责轮转。
+     */
+    private class LogTail implements ReadableByteChannel, DirectoryWatchService.Listener {
+        private final String sessionName;
+        private final Path dir;
+        private final FileChannel channel;
+        private final ProcessHandle process;
+        private final boolean watched;
+        private boolean changed;
+
+        LogTail(String sessionName, Path dir, FileChannel channel, ProcessHandle process) {
+            this.sessionName = sessionName;
+            this.dir = dir;
+            this.channel = channel;
+            this.process = process;
+            this.watched = directoryWatchService.watch(dir, this);
+            process.onExit().thenRun(this::signal);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            while (true) {
+                int n = channel.read(dst);
+                if (n > 0) {
+                    return n;
+                }
+                if (!process.isAlive()) {
+                    // 进程退出前最后写出的内容
+                    n = channel.read(dst);
+                    return n > 0 ? n : -1;
+                }
+                if (channel.position() > channel.size()) {
+                    // 被截断了 (轮转)，从头接着读
+                    channel.position(0);
+                    continue;
+                }
+                if (channel.position() >= consoleLogMaxBytes) {
+                    rotate();
+                    continue;
+                }
+                try {
+                    await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("追读日志被中断");
+                }
+            }
+        }
+
+        /**
+         * 此时已经读到末尾。拿着输入锁复制再截断，命令回显不会落在两步之间丢掉；服务器恰好在这一瞬间写出的内容会丢失。
+         */
+        private void rotate() throws IOException {
+            Path log = dir.resolve(LOG_FILE);
+            ReentrantLock lock = inputLocks.computeIfAbsent(sessionName, k -> new ReentrantLock());
+            lock.lock();
+            try (FileChannel writer = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                Files.copy(log, dir.resolve(PREVIOUS_LOG_FILE), StandardCopyOption.REPLACE_EXISTING);
+                writer.truncate(0);
+            } finally {
+                lock.unlock();
+            }
+            channel.position(0);
+            meterRegistry.counter("tmodloader.process.log.rotations").increment();
+        }
+
+        private synchronized void await() throws InterruptedException {
+            if (!changed) {
+                wait(watched ? TAIL_WATCH_TIMEOUT_MILLIS : TAIL_POLL_MILLIS);
+            }
+            changed = false;
+        }
+
+        private synchronized void signal() {
+            changed = true;
+            notifyAll();
+        }
+
+        @Override
+        public void onChange(Path file, WatchEvent.Kind<?> kind) {
+            if (file.getFileName().toString().equals(LOG_FILE)) {
+                signal();
+            }
+        }
+
+        @Override
+        public void onOverflow(Path dir) {
+            signal();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            directoryWatchService.unwatch(dir, this);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            signal();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.tModLoader_Board.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 【职责】: 缓存 Mods、Worlds 等目录的文件列表，列表请求不再每次扫描磁盘。
+ * 列表由 DirectoryWatchService 的事件增量更新，每次变化生成新的 ETag；
+ * 事件溢出时标记为过期，下次读取时重扫。另外按固定周期全量校准一次，
+ * 兜住 NFS 上其他机器写入时本机收不到事件的情况。
+ */
+@Service
+public class DirectorySnapshotCache {
+
+    // 进程启动时间，拼进 ETag，避免重启后版本号重新计数时与浏览器缓存的旧 ETag 撞上
+    private static final long EPOCH = System.currentTimeMillis();
+
+    /**
+     * 某一时刻的目录列表 (按文件名排序，不可变)。
+     */
+    public static class Snapshot {
+        private final String etag;
+        private final List<String> files;
+
+        public Snapshot(String etag, List<String> files) {
+            this.etag = etag;
+            this.files = files;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public List<String> getFiles() {
+            return files;
+        }
+    }
+
+    @Autowired
+    private DirectoryWatchService directoryWatchService;
+
+    // 目录 + 扩展名 -> 列表
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+
+    /**
+     * 返回 dir 下以 extension 结尾 (不区分大小写) 的文件名列表。第一次访问某个目录时扫描并开始监视。
+     */
+    public Snapshot getSnapshot(String dir, String extension) {
+        Path path = Paths.get(dir).toAbsolutePath().normalize();
+        String ext = extension.toLowerCase();
+        Listing listing = listings.computeIfAbsent(path + "|" + ext, key -> new Listing(path, ext));
+        listing.ensureFresh();
+        return listing.snapshot;
+    }
+
+    /**
+     * 周期性全量校准所有已缓存的目录。内容没变时 ETag 保持不变。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.listing.rescan-ms:60000}")
+    public void rescanAll() {
+        for (Listing listing : listings.values()) {
+            listing.rescan();
+        }
+    }
+
+    private class Listing implements DirectoryWatchService.Listener {
+        private final Path dir;
+        private final String extension;
+        private final Set<String> files = new HashSet<>();
+        private long version;
+        private volatile Snapshot snapshot;
+        private volatile boolean stale = true;
+        private volatile boolean watching;
+
+        Listing(Path dir, String extension) {
+            this.dir = dir;
+            this.extension = extension;
+        }
+
+        void ensureFresh() {
+            if (!watching) {
+                // 先注册再扫描，扫描期间发生的变化不会漏掉
+                watching = directoryWatchService.watch(dir, this);
+                stale = true;
+            }
+            if (stale) {
+                rescan();
+            }
+        }
+
+        @Override
+        public synchronized void onChange(Path file, WatchEvent.Kind<?> kind) {
+            String fileName = file.getFileName().toString();
+            if (!matches(fileName)) {
+                return;
+            }
+            boolean changed = kind == StandardWatchEventKinds.ENTRY_DELETE
+                    ? files.remove(fileName)
+                    : files.add(fileName);
+            if (changed) {
+                publish();
+            }
+        }
+
+        @Override
+        public void onOverflow(Path dir) {
+            stale = true;
+            // 监视失效时下次读取会重新注册
+            watching = false;
+        }
+
+        synchronized void rescan() {
+            // 在读取前清除标记，扫描期间再次溢出时下次读取仍会重扫
+            stale = false;
+            Set<String> current = new HashSet<>();
+            if (Files.isDirectory(dir)) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        String fileName = entry.getFileName().toString();
+                        if (matches(fileName)) {
+                            current.add(fileName);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("扫描目录失败 " + dir + ": " + e.getMessage());
+                    stale = true;
+                    if (snapshot == null) {
+                        publish();
+                    }
+                    return;
+                }
+            }
+            if (snapshot == null || !current.equals(files)) {
+                files.clear();
+                files.addAll(current);
+                publish();
+            }
+        }
+
+        private void publish() {
+            List<String> sorted = new ArrayList<>(files);
+            sorted.sort(null);
+            version++;
+            snapshot = new Snapshot("\"" + EPOCH + "-" + version + "\"", List.copyOf(sorted));
+        }
+
+        private boolean matches(String fileName) {
+            return !fileName.startsWith(".") && fileName.toLowerCase().endsWith(extension);
+        }
+    }
+}
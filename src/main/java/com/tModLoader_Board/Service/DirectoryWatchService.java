@@ -0,0 +1,158 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 【职责】: 用一个 WatchService 监视 Mods、Worlds 等目录，把文件的新增/修改/删除分发给注册的监听器。
+ * 事件队列溢出时通知监听器整体重扫。所有目录共用一个虚拟线程读取事件。
+ */
+@Service
+public class DirectoryWatchService {
+
+    /**
+     * 目录变化的监听器。回调在监视线程上执行，应尽快返回。
+     */
+    public interface Listener {
+        /**
+         * @param file 发生变化的文件的完整路径
+         * @param kind ENTRY_CREATE / ENTRY_MODIFY / ENTRY_DELETE
+         */
+        void onChange(Path file, WatchEvent.Kind<?> kind);
+
+        /**
+         * 事件丢失 (队列溢出或监视失效)，需要整体重扫目录。
+         */
+        void onOverflow(Path dir);
+    }
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    private final Map<WatchKey, Path> dirsByKey = new ConcurrentHashMap<>();
+    private final Map<Path, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private volatile boolean closed;
+
+    /**
+     * 开始监视 dir。目录不存在或系统不支持监视时返回 false，调用方需要自己定期重扫。
+     * 同一个监听器重复注册同一目录不会收到重复事件。
+     */
+    public synchronized boolean watch(Path dir, Listener listener) {
+        Path normalized = dir.toAbsolutePath().normalize();
+        if (!Files.isDirectory(normalized) || closed) {
+            return false;
+        }
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                WatchService service = watchService;
+                processExecutor.execute(() -> pollLoop(service));
+            }
+            if (!listeners.containsKey(normalized)) {
+                WatchKey key = normalized.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                dirsByKey.put(key, normalized);
+            }
+            List<Listener> dirListeners = listeners.computeIfAbsent(normalized, d -> new CopyOnWriteArrayList<>());
+            if (!dirListeners.contains(listener)) {
+                dirListeners.add(listener);
+                System.out.println("开始监视目录: " + normalized);
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("无法监视目录 " + normalized + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 取消监听器对 dir 的监视；目录没有监听器之后不再监视。
+     */
+    public synchronized void unwatch(Path dir, Listener listener) {
+        Path normalized = dir.toAbsolutePath().normalize();
+        List<Listener> dirListeners = listeners.get(normalized);
+        if (dirListeners == null || !dirListeners.remove(listener) || !dirListeners.isEmpty()) {
+            return;
+        }
+        listeners.remove(normalized);
+        dirsByKey.entrySet().removeIf(entry -> {
+            if (entry.getValue().equals(normalized)) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void pollLoop(WatchService service) {
+        try {
+            while (!closed) {
+                WatchKey key = service.take();
+                Path dir = dirsByKey.get(key);
+                List<Listener> dirListeners = dir == null ? null : listeners.get(dir);
+                if (dirListeners == null) {
+                    key.cancel();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        dirListeners.forEach(l -> l.onOverflow(dir));
+                        continue;
+                    }
+                    Path file = dir.resolve((Path) event.context());
+                    for (Listener listener : dirListeners) {
+                        try {
+                            listener.onChange(file, event.kind());
+                        } catch (RuntimeException e) {
+                            System.err.println("处理目录事件失败 " + file + ": " + e.getMessage());
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    // 目录被删除或卸载，之后的变化只能靠监听器自己重扫
+                    dirsByKey.remove(key);
+                    listeners.remove(dir);
+                    dirListeners.forEach(l -> l.onOverflow(dir));
+                    System.err.println("目录监视已失效: " + dir);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // 应用关闭
+        }
+    }
+}
@@ -1,4 +1,7 @@
 package com.tModLoader_Board.Service;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.File;
@@ -8,15 +11,24 @@ import java.util.List;
 
 @Service
 public class FileService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public void save_file(MultipartFile file, String path) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
             String fileName = file.getOriginalFilename();
             path = path + fileName;
             file.transferTo(new File(path));
+            meterRegistry.counter("tmodloader.upload.bytes", "path", "multipart").increment(file.getSize());
+            outcome = "success";
         }
         catch (Exception e) {
             System.out.println(e);
         }
+        sample.stop(meterRegistry.timer("tmodloader.upload", "path", "multipart", "outcome", outcome));
     }
 
 
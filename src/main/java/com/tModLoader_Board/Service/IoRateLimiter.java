@@ -0,0 +1,52 @@
+package com.tModLoader_Board.Service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 【职责】: 限制后台任务 (备份、恢复) 的磁盘读写速率，避免一次大文件读写把同机其他服务器的 I/O 挤掉。
+ * 令牌桶: 每秒补充 bytesPerSecond 个令牌，最多攒一秒的量；不够时调用线程睡到攒够为止。
+ */
+class IoRateLimiter {
+
+    private final long bytesPerSecond;
+    // 只在锁内计算额度，睡眠放在锁外: 不会把虚拟线程钉在载体线程上
+    private final ReentrantLock lock = new ReentrantLock();
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond 每秒允许的字节数，小于等于 0 表示不限速。
+     */
+    IoRateLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = bytesPerSecond;
+    }
+
+    /**
+     * 申请 bytes 个字节的额度，必要时阻塞。单次申请超过一秒的量也可以，只是会等更久。
+     */
+    void acquire(long bytes) throws InterruptedException {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+        long waitNanos;
+        lock.lock();
+        try {
+            refill();
+            // 先把额度记成负数再去睡: 后来的申请者看到的欠额包含前面所有人的，总速率仍不超过上限
+            available -= bytes;
+            waitNanos = available < 0 ? (long) (-available * 1_000_000_000L / bytesPerSecond) : 0;
+        } finally {
+            lock.unlock();
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(bytesPerSecond, available + (now - lastRefill) * (double) bytesPerSecond / 1_000_000_000L);
+        lastRefill = now;
+    }
+}
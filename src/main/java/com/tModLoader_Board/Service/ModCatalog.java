@@ -0,0 +1,183 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.ModInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 【职责】: Mods 目录下所有 .tmod 的内存目录 (内部名、版本、tML 版本、依赖等)。
+ * 启动时扫描一次，之后由 DirectoryWatchService 的事件逐个文件更新；
+ * 查询不再访问磁盘。文件大小和修改时间都没变的模组不会重新解析。
+ */
+@Service
+public class ModCatalog implements DirectoryWatchService.Listener {
+
+    private static final String MOD_EXTENSION = ".tmod";
+
+    @Autowired
+    private DirectoryWatchService directoryWatchService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 文件名 -> 模组信息
+    private final Map<String, ModInfo> mods = new ConcurrentHashMap<>();
+    private volatile Path modDir;
+    private volatile boolean watching;
+
+    /**
+     * 以 Mods 目录打开目录并开始监视。重复调用无副作用。
+     */
+    public void open(String modPath) {
+        Path dir = Paths.get(modPath).toAbsolutePath().normalize();
+        synchronized (this) {
+            if (dir.equals(modDir)) {
+                return;
+            }
+            modDir = dir;
+            mods.clear();
+        }
+        rescan();
+        watching = directoryWatchService.watch(dir, this);
+    }
+
+    public List<ModInfo> getMods() {
+        ensureFresh();
+        List<ModInfo> list = new ArrayList<>(mods.values());
+        list.sort(Comparator.comparing(ModInfo::getFileName));
+        return list;
+    }
+
+    public ModInfo findByFileName(String fileName) {
+        ensureFresh();
+        return mods.get(fileName);
+    }
+
+    /**
+     * 返回 enabled.json 里要写的内部模组名。优先用文件头里的名字，文件被改过名也不会出错；
+     * 目录里没有这个文件时退回到去掉扩展名的文件名。
+     */
+    public String internalNameOf(String fileName) {
+        ModInfo info = findByFileName(fileName);
+        if (info != null && info.getName() != null) {
+            return info.getName();
+        }
+        return stripExtension(fileName);
+    }
+
+    // ===================================================================================
+    // 目录事件
+    // ===================================================================================
+
+    @Override
+    public void onChange(Path file, WatchEvent.Kind<?> kind) {
+        String fileName = file.getFileName().toString();
+        if (!isModFile(fileName)) {
+            return;
+        }
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            mods.remove(fileName);
+        } else {
+            refresh(file);
+        }
+    }
+
+    @Override
+    public void onOverflow(Path dir) {
+        rescan();
+        // 监视失效 (例如目录被删后重建) 时尝试重新注册
+        watching = directoryWatchService.watch(dir, this);
+    }
+
+    // ===================================================================================
+    // 内部实现
+    // ===================================================================================
+
+    /**
+     * 没能注册监视时 (例如启动时目录还不存在)，退回到每次查询前重扫，并再试一次注册。
+     */
+    private void ensureFresh() {
+        if (!watching && modDir != null) {
+            rescan();
+            watching = directoryWatchService.watch(modDir, this);
+        }
+    }
+
+    private void rescan() {
+        Path dir = modDir;
+        if (dir == null || !Files.isDirectory(dir)) {
+            mods.clear();
+            return;
+        }
+        Set<String> present = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (isModFile(fileName)) {
+                    present.add(fileName);
+                    refresh(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("扫描模组目录失败: " + e.getMessage());
+            return;
+        }
+        mods.keySet().retainAll(present);
+    }
+
+    private void refresh(Path file) {
+        String fileName = file.getFileName().toString();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            mods.remove(fileName);
+            return;
+        }
+        ModInfo cached = mods.get(fileName);
+        if (cached != null && cached.getSize() == attributes.size()
+                && cached.getLastModified() == attributes.lastModifiedTime().toMillis()) {
+            return;
+        }
+        ModInfo info;
+        try {
+            info = TmodParser.parse(file);
+        } catch (IOException e) {
+            // 解析失败 (文件损坏或还在写入) 时仍然列出，只是没有详细信息
+            meterRegistry.counter("tmodloader.parse.failures", "kind", "mod").increment();
+            System.err.println("解析模组文件失败 " + fileName + ": " + e.getMessage());
+            info = new ModInfo();
+            info.setFileName(fileName);
+            info.setSize(attributes.size());
+            info.setLastModified(attributes.lastModifiedTime().toMillis());
+        }
+        mods.put(fileName, info);
+    }
+
+    private static boolean isModFile(String fileName) {
+        return !fileName.startsWith(".") && fileName.toLowerCase().endsWith(MOD_EXTENSION);
+    }
+
+    private static String stripExtension(String fileName) {
+        return fileName.toLowerCase().endsWith(MOD_EXTENSION)
+                ? fileName.substring(0, fileName.length() - MOD_EXTENSION.length())
+                : fileName;
+    }
+}
@@ -0,0 +1,160 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 【职责】: 为每组模组准备一个独立的模组目录 ModProfiles/&lt;ID&gt;/ : 指向模组仓库里选中内容的链接 (见 {@link ModStore#materialize})
+ * 加上它自己的 enabled.json，启动服务器时用 -modpath 指过去。
+ * 服务器之间不再共用 Mods/enabled.json，同时创建多个服务器也不会读到别人的模组列表，创建任务之间不用互相等待。
+ * 目录 ID 由排好序的模组文件名决定，用同一组模组的服务器共用同一个目录；
+ * 组合和各模组文件都没变时直接返回，不会重写链接或 enabled.json。
+ */
+@Service
+public class ModProfileService {
+
+    private static final String ENABLED_JSON = "enabled.json";
+
+    @Autowired
+    private ModStore modStore;
+
+    @Autowired
+    private StartService startService;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.profiles.retention-ms:604800000}")
+    private long retentionMillis;
+
+    // 目录 ID -> 上次准备好时各模组文件的标识 (inode，拿不到时用大小 + 修改时间)
+    private final Map<String, List<Object>> prepared = new ConcurrentHashMap<>();
+    // 只有同一个目录的准备工作需要串行
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 返回这组模组的模组目录 (以分隔符结尾，可直接作为 -modpath)，需要时创建或更新。
+     */
+    public String prepare(List<String> modFiles) throws IOException {
+        List<String> files = modFiles == null ? List.of() : modFiles.stream().sorted().distinct().toList();
+        String id = profileId(files);
+        Path dir = Paths.get(tmodloaderPaths.getProfilePath(), id);
+        ReentrantLock lock = locks.computeIfAbsent(id, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            List<Object> fileKeys = fileKeysOf(files);
+            if (fileKeys.equals(prepared.get(id)) && Files.isRegularFile(dir.resolve(ENABLED_JSON))) {
+                meterRegistry.counter("tmodloader.profiles.prepare", "outcome", "cached").increment();
+            } else {
+                boolean relinked = modStore.materialize(dir, modStore.resolve(files));
+                startService.enableMods(files, dir.resolve(ENABLED_JSON).toString());
+                prepared.put(id, fileKeys);
+                meterRegistry.counter("tmodloader.profiles.prepare", "outcome", relinked ? "written" : "verified").increment();
+            }
+            // 目录的修改时间记录最近一次使用，长期不用的目录会被清理
+            Files.setLastModifiedTime(dir, FileTime.fromMillis(System.currentTimeMillis()));
+        } finally {
+            lock.unlock();
+        }
+        return dir + File.separator;
+    }
+
+    /**
+     * 删除长期没有服务器用过的模组目录。里面只有链接，已经启动的服务器早已把模组读进内存，不受影响。
+     */
+    @Scheduled(fixedDelay = 6 * 60 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+    public void purgeUnused() {
+        Path root = Paths.get(tmodloaderPaths.getProfilePath());
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        List<Path> dirs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+            stream.forEach(dirs::add);
+        } catch (IOException e) {
+            System.err.println("扫描模组目录失败: " + e.getMessage());
+            return;
+        }
+        for (Path dir : dirs) {
+            String id = dir.getFileName().toString();
+            ReentrantLock lock = locks.computeIfAbsent(id, k -> new ReentrantLock());
+            lock.lock();
+            try {
+                if (Files.getLastModifiedTime(dir).toMillis() >= cutoff) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(dir);
+                prepared.remove(id);
+                System.out.println("已清理长期未使用的模组目录 " + id);
+            } catch (IOException e) {
+                System.err.println("清理模组目录 " + id + " 失败: " + e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // ===================================================================================
+    // 内部实现
+    // ===================================================================================
+
+    /**
+     * Mods 目录下各模组文件的标识。同名文件被新上传的内容替换后标识就会变，目录随之重新同步。
+     */
+    private List<Object> fileKeysOf(List<String> files) throws IOException {
+        Path modDir = Paths.get(tmodloaderPaths.getModPath());
+        List<Object> keys = new ArrayList<>(files.size());
+        for (String file : files) {
+            BasicFileAttributes attributes = Files.readAttributes(modDir.resolve(file), BasicFileAttributes.class);
+            keys.add(attributes.fileKey() != null
+                    ? attributes.fileKey()
+                    : attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+        }
+        return keys;
+    }
+
+    private static String profileId(List<String> files) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String file : files) {
+                digest.update(file.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
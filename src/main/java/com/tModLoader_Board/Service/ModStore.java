@@ -0,0 +1,389 @@
+package com.tModLoader_Board.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.DTO.ModInfo;
+import com.tModLoader_Board.DTO.ModStoreEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * 【职责】: 以 SHA-256 为键的模组仓库 (与 Mods 目录同级的 ModStore 目录)。
+ * 每个不同内容的 .tmod 只在 ModStore/blobs 里存一份，Mods 目录以及每组模组各自的模组目录 (ModProfiles)
+ * 里放的都是指向它的硬链接 (不支持时退化为符号链接，再不行才复制)。
+ * 每组模组的模组目录直接链接到仓库里的内容 (见 {@link #materialize})，不经过 Mods 目录。
+ * 同样的内容换个文件名再传一次，只会多一个链接，不会多占磁盘；
+ * 同名但内容不同的上传只会把链接指向新内容，旧内容仍留在仓库里，其他模组组合可以继续使用。
+ * 索引 (模组名 + 版本 -> 哈希) 保存在 ModStore/index.json。
+ */
+@Service
+public class ModStore {
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final String MOD_EXTENSION = ".tmod";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    // 保护索引和目录里的链接替换，入库/建链接都不频繁，一把锁足够
+    private final ReentrantLock lock = new ReentrantLock();
+    // 模组名@版本 -> 索引记录
+    private final Map<String, ModStoreEntry> index = new ConcurrentHashMap<>();
+    // 文件标识 (inode) -> 哈希。Mods 里的硬链接和仓库里的内容是同一个 inode，查一下就知道是哪份内容，不用重新计算
+    private final Map<Object, String> hashByFileKey = new ConcurrentHashMap<>();
+    private Path modDir;
+    private Path storeDir;
+    private Path blobDir;
+
+    /**
+     * 以 Mods 目录打开仓库，加载索引，并在后台把 Mods 里还不是链接的旧文件收进仓库。重复调用无副作用。
+     */
+    public void open(String modPath) {
+        Path mods = Paths.get(modPath).toAbsolutePath().normalize();
+        lock.lock();
+        try {
+            if (mods.equals(modDir)) {
+                return;
+            }
+            modDir = mods;
+            storeDir = mods.getParent().resolve("ModStore");
+            blobDir = storeDir.resolve("blobs");
+            loadIndex();
+        } finally {
+            lock.unlock();
+        }
+        processExecutor.execute(this::importExisting);
+    }
+
+    // ===================================================================================
+    // 入库
+    // ===================================================================================
+
+    /**
+     * 把 Mods 目录下的一个文件收进仓库，并把原位置换成指向仓库的链接。
+     * 仓库里已有相同内容时直接丢弃这份文件，不会再写一遍。
+     *
+     * @param sha256 已知的哈希 (例如分块上传时边收边算的)，为 null 时现算
+     */
+    public ModStoreEntry ingest(Path file, String sha256) throws IOException {
+        if (sha256 == null) {
+            sha256 = hash(file);
+        }
+        String fileName = file.getFileName().toString();
+        ModInfo info = parseQuietly(file);
+        lock.lock();
+        try {
+            Path blob = blobFor(sha256);
+            long size = Files.size(file);
+            if (Files.exists(blob)) {
+                if (!Files.isSameFile(blob, file)) {
+                    link(blob, file);
+                    System.out.println("模组 " + fileName + " 与仓库中已有内容相同，复用 " + sha256);
+                }
+            } else {
+                Files.createDirectories(blob.getParent());
+                try {
+                    Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // 仓库和 Mods 不在同一个文件系统上时只能复制
+                    Files.move(file, blob);
+                }
+                link(blob, file);
+            }
+            remember(blob, sha256);
+            remember(file, sha256);
+            return record(info != null ? info.getName() : nameOf(fileName), info != null ? info.getVersion() : null, sha256, size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 如果仓库里已有该哈希的内容，直接在 Mods 目录下以 fileName 建立链接，返回索引记录；否则返回 null。
+     * 客户端事先知道哈希时可以借此完全跳过上传。
+     */
+    public ModStoreEntry linkExisting(String sha256, String fileName) throws IOException {
+        lock.lock();
+        try {
+            Path blob = blobFor(sha256);
+            if (!Files.exists(blob)) {
+                return null;
+            }
+            link(blob, modDir.resolve(fileName));
+            remember(modDir.resolve(fileName), sha256);
+            ModInfo info = parseQuietly(blob);
+            return record(info != null ? info.getName() : nameOf(fileName), info != null ? info.getVersion() : null,
+                    sha256, Files.size(blob));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 找出 Mods 目录下这些文件在仓库里对应的内容 (文件名 -> 哈希)。还没入库的文件 (例如直接拷进 Mods 的) 先入库。
+     */
+    public Map<String, String> resolve(Collection<String> fileNames) throws IOException {
+        if (modDir == null) {
+            throw new IllegalStateException("模组仓库尚未打开");
+        }
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String fileName : fileNames) {
+            Path file = modDir.resolve(fileName);
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("模组文件不存在: " + fileName);
+            }
+            Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            String sha256 = fileKey != null ? hashByFileKey.get(fileKey) : null;
+            if (sha256 == null || !Files.exists(blobFor(sha256))) {
+                sha256 = ingest(file, null).getSha256();
+            }
+            hashes.put(fileName, sha256);
+        }
+        return hashes;
+    }
+
+    /**
+     * 让 dir 里的 .tmod 恰好是仓库里这组内容 (文件名 -> 哈希) 的链接: 已经指向同一份内容的不动，
+     * 缺的补上，内容换过的重新链接，多余的删掉。返回是否有改动。用于给服务器拼出自己的模组目录。
+     */
+    public boolean materialize(Path dir, Map<String, String> fileNameToSha256) throws IOException {
+        Files.createDirectories(dir);
+        lock.lock();
+        try {
+            boolean changed = false;
+            for (Map.Entry<String, String> mod : fileNameToSha256.entrySet()) {
+                Path blob = blobFor(mod.getValue());
+                Path target = dir.resolve(mod.getKey());
+                if (!Files.exists(blob)) {
+                    throw new IOException("仓库中不存在模组内容: " + mod.getValue());
+                }
+                if (Files.exists(target) && Files.isSameFile(blob, target)) {
+                    continue;
+                }
+                link(blob, target);
+                changed = true;
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + MOD_EXTENSION)) {
+                for (Path file : files) {
+                    if (!fileNameToSha256.containsKey(file.getFileName().toString())) {
+                        Files.delete(file);
+                        changed = true;
+                    }
+                }
+            }
+            return changed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 查询
+    // ===================================================================================
+
+    public boolean contains(String sha256) {
+        return sha256 != null && SHA256.matcher(sha256).matches() && Files.exists(blobFor(sha256));
+    }
+
+    /**
+     * 按模组名和版本查找；version 为 null 时返回该模组最近入库的一条。
+     */
+    public ModStoreEntry find(String name, String version) {
+        if (version != null) {
+            return index.get(keyOf(name, version, null));
+        }
+        ModStoreEntry latest = null;
+        for (ModStoreEntry entry : index.values()) {
+            if (entry.getName().equals(name) && (latest == null || entry.getStoredAt() > latest.getStoredAt())) {
+                latest = entry;
+            }
+        }
+        return latest;
+    }
+
+    public List<ModStoreEntry> getEntries() {
+        return new ArrayList<>(index.values());
+    }
+
+    // ===================================================================================
+    // 内部实现
+    // ===================================================================================
+
+    /**
+     * 把 Mods 目录里还不是链接的 .tmod 收进仓库。只在打开仓库时跑一次。
+     */
+    private void importExisting() {
+        if (!Files.isDirectory(modDir)) {
+            return;
+        }
+        int imported = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(modDir, "*" + MOD_EXTENSION)) {
+            for (Path file : files) {
+                if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || isHardLinked(file)) {
+                    continue;
+                }
+                ingest(file, null);
+                imported++;
+            }
+        } catch (IOException e) {
+            System.err.println("导入已有模组到仓库失败: " + e.getMessage());
+        }
+        if (imported > 0) {
+            System.out.println("已将 " + imported + " 个已有模组导入模组仓库。");
+        }
+    }
+
+    private boolean isHardLinked(Path file) {
+        try {
+            return ((Number) Files.getAttribute(file, "unix:nlink")).intValue() > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 先在旁边建好临时链接，再原子地替换目标，替换过程中目标文件始终可读。
+     */
+    private void link(Path blob, Path target) throws IOException {
+        Path tmp = target.resolveSibling("." + target.getFileName() + ".link");
+        Files.deleteIfExists(tmp);
+        try {
+            Files.createLink(tmp, blob);
+        } catch (UnsupportedOperationException | IOException e) {
+            try {
+                Files.createSymbolicLink(tmp, blob.toAbsolutePath());
+            } catch (UnsupportedOperationException | IOException e2) {
+                Files.copy(blob, tmp);
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void remember(Path file, String sha256) {
+        try {
+            Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            if (fileKey != null) {
+                hashByFileKey.put(fileKey, sha256);
+            }
+        } catch (IOException e) {
+            // 只是缓存，下次用到时重新计算哈希
+        }
+    }
+
+    private ModStoreEntry record(String name, String version, String sha256, long size) throws IOException {
+        ModStoreEntry entry = new ModStoreEntry();
+        entry.setName(name);
+        entry.setVersion(version);
+        entry.setSha256(sha256);
+        entry.setSize(size);
+        entry.setStoredAt(System.currentTimeMillis());
+        index.put(keyOf(name, version, sha256), entry);
+        saveIndex();
+        return entry;
+    }
+
+    /**
+     * 版本未知时用哈希前缀代替，避免同名不同内容的记录互相覆盖。
+     */
+    private static String keyOf(String name, String version, String sha256) {
+        return name + "@" + (version != null ? version : sha256 == null ? "" : sha256.substring(0, 12));
+    }
+
+    private static ModInfo parseQuietly(Path file) {
+        try {
+            return TmodParser.parse(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String nameOf(String fileName) {
+        return fileName.toLowerCase().endsWith(MOD_EXTENSION)
+                ? fileName.substring(0, fileName.length() - MOD_EXTENSION.length())
+                : fileName;
+    }
+
+    private Path blobFor(String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("无效的 SHA-256: " + sha256);
+        }
+        return blobDir.resolve(sha256.substring(0, 2)).resolve(sha256 + MOD_EXTENSION);
+    }
+
+    private void loadIndex() {
+        index.clear();
+        Path file = storeDir.resolve("index.json");
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<ModStoreEntry> entries = objectMapper.readValue(file.toFile(), new TypeReference<List<ModStoreEntry>>() {});
+            for (ModStoreEntry entry : entries) {
+                index.put(keyOf(entry.getName(), entry.getVersion(), entry.getSha256()), entry);
+                if (contains(entry.getSha256())) {
+                    remember(blobFor(entry.getSha256()), entry.getSha256());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("读取模组仓库索引失败: " + e.getMessage());
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        Files.createDirectories(storeDir);
+        Path file = storeDir.resolve("index.json");
+        Path tmp = storeDir.resolve("index.json.tmp");
+        objectMapper.writeValue(tmp.toFile(), new ArrayList<>(index.values()));
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
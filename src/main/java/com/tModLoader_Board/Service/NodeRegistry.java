@@ -0,0 +1,257 @@
+package com.tModLoader_Board.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.DTO.NodeStatus;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 【职责】: 管理面板能控制的所有节点。本机始终是 "local" 节点；其他节点是以 agent 方式运行的同一个程序，
+ * 在 tmodloader.nodes 里配置 (例如 "node1=http://10.0.0.2:8089,node2=http://10.0.0.3:8089")。
+ * 定期拉取各节点的 /agent/status，创建服务器时按剩余内存和 CPU 选择节点，请求通过 HTTP 转发给对应节点。
+ */
+@Service
+public class NodeRegistry {
+
+    public static final String LOCAL = "local";
+
+    // CPU 使用率超过这个值的节点只在没有更空闲的节点时才会被选中
+    private static final double CPU_BUSY_THRESHOLD = 0.85;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private ResourceAllocator resourceAllocator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Value("${tmodloader.nodes:}")
+    private String nodesConfig;
+
+    // 节点 ID -> 基础 URL (不含末尾的 /)
+    private final Map<String, String> nodeUrls = new LinkedHashMap<>();
+    private final Map<String, NodeStatus> remoteStatus = new ConcurrentHashMap<>();
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        for (String entry : nodesConfig.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String id = entry.substring(0, eq).trim();
+            String url = entry.substring(eq + 1).trim().replaceAll("/+$", "");
+            if (LOCAL.equals(id)) {
+                throw new IllegalStateException("节点 ID '" + LOCAL + "' 保留给本机使用");
+            }
+            nodeUrls.put(id, url);
+        }
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(3))
+                .executor(processExecutor)
+                .build();
+        if (!nodeUrls.isEmpty()) {
+            System.out.println("已配置的远程节点: " + nodeUrls);
+        }
+    }
+
+    // ===================================================================================
+    // 节点状态
+    // ===================================================================================
+
+    /**
+     * 本机的状态和剩余资源。
+     */
+    public NodeStatus getLocalStatus() {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        NodeStatus status = new NodeStatus();
+        status.setId(LOCAL);
+        status.setOnline(true);
+        status.setCpuCount(os.getAvailableProcessors());
+        status.setCpuLoad(os.getCpuLoad());
+        status.setMemoryTotal(os.getTotalMemorySize());
+        status.setMemoryAvailable(availableMemory(os));
+        status.setMemoryUnreserved(resourceAllocator.getMemoryUnreserved());
+        status.setLastSeen(System.currentTimeMillis());
+        try {
+            status.setServers(controlService.getServerList().size());
+        } catch (IOException | InterruptedException e) {
+            status.setError(e.getMessage());
+        }
+        return status;
+    }
+
+    /**
+     * 所有节点 (本机在第一个) 的最近状态。
+     */
+    public List<NodeStatus> getNodes() {
+        List<NodeStatus> nodes = new ArrayList<>();
+        nodes.add(getLocalStatus());
+        for (String id : nodeUrls.keySet()) {
+            NodeStatus status = remoteStatus.get(id);
+            if (status == null) {
+                status = new NodeStatus();
+                status.setId(id);
+                status.setUrl(nodeUrls.get(id));
+            }
+            nodes.add(status);
+        }
+        return nodes;
+    }
+
+    public boolean isRemote(String nodeId) {
+        return nodeUrls.containsKey(nodeId);
+    }
+
+    /**
+     * 为新服务器选择节点: 在线节点中优先选 CPU 不忙的，再比可用内存 (取实际可用和尚未预留两者中较小的)。
+     */
+    public String choosePlacement() {
+        if (nodeUrls.isEmpty()) {
+            return LOCAL;
+        }
+        return getNodes().stream()
+                .filter(NodeStatus::isOnline)
+                .max(Comparator.comparing((NodeStatus s) -> s.getCpuLoad() < CPU_BUSY_THRESHOLD)
+                        .thenComparingLong(s -> Math.min(s.getMemoryAvailable(), s.getMemoryUnreserved())))
+                .map(NodeStatus::getId)
+                .orElse(LOCAL);
+    }
+
+    /**
+     * 定期拉取所有远程节点的状态。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.node.poll-ms:10000}")
+    public void pollNodes() {
+        for (Map.Entry<String, String> node : nodeUrls.entrySet()) {
+            String id = node.getKey();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(node.getValue() + "/agent/status"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+                NodeStatus status;
+                if (error == null && response.statusCode() == 200) {
+                    try {
+                        status = objectMapper.readValue(response.body(), NodeStatus.class);
+                        status.setOnline(true);
+                        status.setLastSeen(System.currentTimeMillis());
+                    } catch (IOException e) {
+                        status = offline(id, "状态格式错误: " + e.getMessage());
+                    }
+                } else {
+                    status = offline(id, error != null ? String.valueOf(error.getMessage()) : "HTTP " + response.statusCode());
+                }
+                status.setId(id);
+                status.setUrl(node.getValue());
+                NodeStatus previous = remoteStatus.put(id, status);
+                if (previous != null && previous.isOnline() != status.isOnline()) {
+                    System.out.println("节点 '" + id + "' " + (status.isOnline() ? "已上线" : "已离线: " + status.getError()));
+                }
+            });
+        }
+    }
+
+    // ===================================================================================
+    // 转发
+    // ===================================================================================
+
+    /**
+     * 把一个请求原样发给远程节点，响应体以流的形式返回 (控制台推送这类长连接也能转发)。
+     *
+     * @param pathAndQuery 以 / 开头的路径和查询串，例如 "/manage/stop?sessionName=tmodloader-a"
+     */
+    public HttpResponse<InputStream> send(String nodeId, String method, String pathAndQuery,
+                                          Map<String, String> headers, HttpRequest.BodyPublisher body)
+            throws IOException, InterruptedException {
+        String url = nodeUrls.get(nodeId);
+        if (url == null) {
+            throw new IllegalArgumentException("未知的节点: " + nodeId);
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url + pathAndQuery)).method(method, body);
+        headers.forEach(builder::header);
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * 向远程节点 POST 一个 JSON 请求并读取 JSON 响应。节点返回错误状态时抛出 IOException，消息为响应内容。
+     */
+    public JsonNode postJson(String nodeId, String path, Object body) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = send(nodeId, "POST", path,
+                Map.of("Content-Type", "application/json"),
+                HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        try (InputStream in = response.body()) {
+            byte[] bytes = in.readAllBytes();
+            if (response.statusCode() >= 400) {
+                throw new IOException("节点 '" + nodeId + "' 返回 " + response.statusCode() + ": " + new String(bytes));
+            }
+            return objectMapper.readTree(bytes);
+        }
+    }
+
+    // ===================================================================================
+    // 辅助方法
+    // ===================================================================================
+
+    private static NodeStatus offline(String id, String error) {
+        NodeStatus status = new NodeStatus();
+        status.setId(id);
+        status.setOnline(false);
+        status.setError(error);
+        return status;
+    }
+
+    /**
+     * Linux 上取 /proc/meminfo 的 MemAvailable (包含可回收的页缓存)，比 JVM 报告的空闲内存更接近真实余量。
+     */
+    private static long availableMemory(com.sun.management.OperatingSystemMXBean os) {
+        Path meminfo = Paths.get("/proc/meminfo");
+        if (Files.isReadable(meminfo)) {
+            try {
+                for (String line : Files.readAllLines(meminfo)) {
+                    if (line.startsWith("MemAvailable:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+                // 退回到 JVM 的数值
+            }
+        }
+        return os.getFreeMemorySize();
+    }
+}
@@ -0,0 +1,218 @@
+package com.tModLoader_Board.Service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 【职责】: 在内存中维护每个服务器的在线玩家列表。
+ * 平时靠解析控制台里的 "xxx has joined." / "xxx has left." 增量更新，
+ * 只按较慢的周期发送一次 "playing" 做全量校准，因此查询玩家列表不再打扰游戏控制台。
+ */
+@Service
+public class PlayerRegistry {
+
+    // 进程启动时间，拼进 ETag，避免重启后版本号重新计数时与浏览器缓存的旧 ETag 撞上
+    private static final long EPOCH = System.currentTimeMillis();
+
+    /**
+     * 某一时刻的在线玩家列表。version 取自所有会话共用的计数器，每次列表变化都会变大；
+     * 会话被移除后再建起来也不会与之前的版本重复。
+     */
+    public static class Snapshot {
+        private final long version;
+        private final List<String> players;
+
+        public Snapshot(long version, List<String> players) {
+            this.version = version;
+            this.players = players;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getEtag() {
+            return "\"" + EPOCH + "-" + version + "\"";
+        }
+
+        public List<String> getPlayers() {
+            return players;
+        }
+    }
+
+    /**
+     * 在线玩家列表变化的回调，previous 与 current 是变化前后的快照。
+     */
+    public interface ChangeListener {
+        void onChange(String sessionName, Snapshot previous, Snapshot current);
+    }
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    private final Map<String, SessionPlayers> sessions = new ConcurrentHashMap<>();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 每个会话接上控制台输出流时，顺便挂上玩家进出的监听
+        consoleStreamService.addAttachListener(buffer -> {
+            // 热备池里还没有世界的实例不接受 playing 之类的命令
+            if (!buffer.getSessionName().startsWith("tmodloader-")) {
+                return;
+            }
+            SessionPlayers players = sessions.computeIfAbsent(buffer.getSessionName(), this::newSessionPlayers);
+            players.streaming = true;
+            buffer.addListener(players);
+            buffer.addParsedLineListener(players);
+            // 服务器退出后不再保留它的记录；同名会话重启时会重新建一个
+            buffer.addListener(new ConsoleBuffer.LineListener() {
+                @Override
+                public void onLine(long sequence, String line) {
+                }
+
+                @Override
+                public void onClosed() {
+                    sessions.remove(buffer.getSessionName(), players);
+                }
+            });
+        });
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * 返回会话当前的在线玩家。第一次查询某个会话时会同步做一次全量校准，之后直接读内存。
+     */
+    public Snapshot getSnapshot(String sessionName) throws IOException, InterruptedException {
+        SessionPlayers players = sessions.get(sessionName);
+        if (players == null) {
+            consoleStreamService.attach(sessionName);
+            players = sessions.computeIfAbsent(sessionName, this::newSessionPlayers);
+        }
+        // 没有控制台输出流就收不到进出事件，只能像以前一样每次都查询
+        if (!players.synced || !players.streaming) {
+            resync(players);
+        }
+        return players.snapshot;
+    }
+
+    /**
+     * 定期用 "playing" 的结果校准所有会话，修正可能漏掉的进出事件。
+     * 顺便清掉已经不在运行的会话 (没有控制台输出流的会话收不到结束通知，只能靠这里清理)。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.players.resync-ms:60000}",
+            initialDelayString = "${tmodloader.players.resync-ms:60000}")
+    public void resyncAll() {
+        try {
+            List<String> running = controlService.getServerList();
+            // 有输出流的会话在流结束时自己移除，这里只管没有流的，免得误删刚接上的新会话
+            sessions.values().removeIf(players -> !players.streaming && !running.contains(players.sessionName));
+        } catch (IOException | InterruptedException e) {
+            System.err.println("获取服务器列表失败，本轮不清理玩家记录: " + e.getMessage());
+        }
+        for (SessionPlayers players : sessions.values()) {
+            if (players.streaming) {
+                try {
+                    resync(players);
+                } catch (IOException | InterruptedException e) {
+                    System.err.println("校准会话 '" + players.sessionName + "' 的玩家列表失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private SessionPlayers newSessionPlayers(String sessionName) {
+        return new SessionPlayers(sessionName, changeListeners, versions);
+    }
+
+    private void resync(SessionPlayers players) throws IOException, InterruptedException {
+        players.replaceAll(controlService.getPlayersOnline(players.sessionName));
+        players.synced = true;
+    }
+
+    /**
+     * 单个会话的在线玩家集合。所有修改都会生成一个新的不可变快照，读取方无需加锁。
+     */
+    private static class SessionPlayers implements ConsoleBuffer.LineListener, ConsoleBuffer.ParsedLineListener {
+
+        private final String sessionName;
+        private final List<ChangeListener> changeListeners;
+        private final AtomicLong versions;
+        private final Set<String> online = new LinkedHashSet<>();
+        private volatile Snapshot snapshot = new Snapshot(0, List.of());
+        private volatile boolean streaming = false;
+        private volatile boolean synced = false;
+
+        SessionPlayers(String sessionName, List<ChangeListener> changeListeners, AtomicLong versions) {
+            this.sessionName = sessionName;
+            this.changeListeners = changeListeners;
+            this.versions = versions;
+        }
+
+        @Override
+        public void onLine(long sequence, String line) {
+            // 进出事件由 onParsedLine 处理，这里只需要 onClosed
+        }
+
+        @Override
+        public void onParsedLine(ConsoleLineParser.Event event) {
+            // 聊天消息 "<玩家> xxx has joined." 会被识别成 CHAT，不会误当成进出事件
+            if (event.getKind() == ConsoleLineParser.Kind.PLAYER_JOINED) {
+                update(event.playerName(), true);
+            } else if (event.getKind() == ConsoleLineParser.Kind.PLAYER_LEFT) {
+                update(event.playerName(), false);
+            }
+        }
+
+        @Override
+        public synchronized void onClosed() {
+            // 会话结束，所有玩家自然都已离开
+            streaming = false;
+            if (!online.isEmpty()) {
+                online.clear();
+                publish();
+            }
+        }
+
+        private synchronized void update(String playerName, boolean joined) {
+            boolean changed = joined ? online.add(playerName) : online.remove(playerName);
+            if (changed) {
+                publish();
+            }
+        }
+
+        synchronized void replaceAll(List<String> players) {
+            if (!online.equals(new LinkedHashSet<>(players))) {
+                online.clear();
+                online.addAll(players);
+                publish();
+            }
+        }
+
+        private void publish() {
+            Snapshot previous = snapshot;
+            snapshot = new Snapshot(versions.incrementAndGet(), List.copyOf(online));
+            for (ChangeListener listener : changeListeners) {
+                listener.onChange(sessionName, previous, snapshot);
+            }
+        }
+    }
+}
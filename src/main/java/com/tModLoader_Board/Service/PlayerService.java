@@ -11,12 +11,19 @@ public class PlayerService {
     @Autowired
     private ControlService controlService;
 
-    public void kickOrBanPlayer(String playerName, String sessionName, String action) {
+    @Autowired
+    private StateStore stateStore;
+
+    /**
+     * 踢出或封禁玩家，并记进管理操作记录。actor 为发起请求的客户端地址。
+     */
+    public void kickOrBanPlayer(String playerName, String sessionName, String action, String actor) {
         try {
             controlService.sendCommand(sessionName, action + " " + playerName);
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
+        stateStore.recordAction(action, sessionName, actor, playerName);
     }
 
 }
@@ -0,0 +1,132 @@
+package com.tModLoader_Board.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按 .NET BinaryReader 的格式 (小端整数，7 位变长长度前缀的 UTF-8 字符串) 读取 .tmod / .wld 等文件。
+ * 在文件上滑动一个小窗口: 窗口里的数据不够时才从当前位置做一次定位读，不会顺序读完整个文件。
+ * channel 为 null 时只读给定的缓冲区 (例如已经解压到内存里的小条目)。
+ */
+class PositionalReader {
+
+    private final FileChannel channel;
+    private ByteBuffer window;
+    // 窗口第 0 个字节在文件中的位置
+    private long windowStart;
+
+    PositionalReader(FileChannel channel, int windowSize) {
+        this.channel = channel;
+        this.window = ByteBuffer.allocate(windowSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.window.limit(0);
+    }
+
+    PositionalReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.window = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    long position() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * 跳到文件中的绝对位置。目标仍在当前窗口内时不产生 I/O。
+     */
+    void seek(long position) throws IOException {
+        long offset = position - windowStart;
+        if (offset >= 0 && offset <= window.limit()) {
+            window.position((int) offset);
+            return;
+        }
+        if (channel == null) {
+            throw new EOFException();
+        }
+        windowStart = position;
+        window.clear();
+        window.limit(0);
+    }
+
+    byte readByte() throws IOException {
+        ensure(1);
+        return window.get();
+    }
+
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    short readShort() throws IOException {
+        ensure(2);
+        return window.getShort();
+    }
+
+    int readInt() throws IOException {
+        ensure(4);
+        return window.getInt();
+    }
+
+    long readLong() throws IOException {
+        ensure(8);
+        return window.getLong();
+    }
+
+    byte[] readBytes(int n) throws IOException {
+        ensure(n);
+        byte[] bytes = new byte[n];
+        window.get(bytes);
+        return bytes;
+    }
+
+    void skip(int n) throws IOException {
+        ensure(n);
+        window.position(window.position() + n);
+    }
+
+    String readString() throws IOException {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("字符串长度格式错误");
+            }
+            b = readByte();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (length < 0) {
+            throw new IOException("字符串长度格式错误");
+        }
+        ensure(length);
+        String s = new String(window.array(), window.arrayOffset() + window.position(), length, StandardCharsets.UTF_8);
+        window.position(window.position() + length);
+        return s;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (window.remaining() >= n) {
+            return;
+        }
+        if (channel == null) {
+            throw new EOFException();
+        }
+        long position = position();
+        if (n > window.capacity()) {
+            window = ByteBuffer.allocate(n).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        window.clear();
+        windowStart = position;
+        while (window.position() < n) {
+            if (channel.read(window, position + window.position()) < 0) {
+                window.flip();
+                throw new EOFException();
+            }
+        }
+        window.flip();
+    }
+}
@@ -0,0 +1,267 @@
+package com.tModLoader_Board.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 【职责】: 读取 Linux 的 /proc/&lt;pid&gt;/stat、status、io，累加到一个 {@link Totals} 里；需要时连同所有子孙进程一起。
+ * 文件内容读进一个复用的缓冲区后直接按字节解析数字，不生成 String，也不分行。
+ * 不是线程安全的，由采样线程独占使用。
+ */
+class ProcStatReader {
+
+    /**
+     * 一棵进程树在某一时刻的累计值。
+     */
+    static class Totals {
+        /** 用户态 + 内核态 CPU 时间，单位是时钟滴答 (USER_HZ)。 */
+        long cpuTicks;
+        long rssBytes;
+        int threads;
+        int processes;
+        long readBytes;
+        long writeBytes;
+        /** /proc/&lt;pid&gt;/io 只有同一用户 (或 root) 才能读，读不到时为 false。 */
+        boolean ioAvailable = true;
+
+        void clear() {
+            cpuTicks = 0;
+            rssBytes = 0;
+            threads = 0;
+            processes = 0;
+            readBytes = 0;
+            writeBytes = 0;
+            ioAvailable = true;
+        }
+    }
+
+    private static final byte[] VM_RSS = "VmRSS:".getBytes();
+    private static final byte[] READ_BYTES = "read_bytes:".getBytes();
+    private static final byte[] WRITE_BYTES = "write_bytes:".getBytes();
+
+    private final Path proc;
+    private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    // 遍历进程树用的队列，不够时加倍
+    private long[] queue = new long[64];
+
+    ProcStatReader() {
+        this(Path.of("/proc"));
+    }
+
+    /**
+     * @param proc procfs 的挂载点，测试时指向一个按同样结构摆好文件的目录
+     */
+    ProcStatReader(Path proc) {
+        this.proc = proc;
+    }
+
+    /**
+     * 把 pid 及其所有子孙进程的数值加进 totals。pid 本身已经退出时返回 false。
+     * 子进程从 /proc/&lt;pid&gt;/task/&lt;tid&gt;/children 里找 (每个线程只记自己创建的子进程)，按层展开；
+     * 不用 ProcessHandle.descendants()，它每次都要扫一遍系统里的全部进程，再为结果建一串 Stream。
+     */
+    boolean accumulateTree(long pid, Totals totals) {
+        if (!accumulate(pid, totals)) {
+            return false;
+        }
+        queue[0] = pid;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            long parent = queue[head++];
+            if (parent < 0) {
+                continue;
+            }
+            int first = tail;
+            tail = appendChildren(parent, tail);
+            for (int i = first; i < tail; i++) {
+                // 期间退出的子进程不再往下找
+                if (!accumulate(queue[i], totals)) {
+                    queue[i] = -1;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把一个进程的数值加进 totals。进程已经退出时返回 false，totals 不变。
+     */
+    boolean accumulate(long pid, Totals totals) {
+        Path dir = proc.resolve(Long.toString(pid));
+        if (!read(dir.resolve("stat"))) {
+            return false;
+        }
+        // comm 字段可能包含空格和括号，从最后一个 ')' 之后开始数: 其后第 0 个字段是第 3 列 state
+        int pos = lastIndexOf((byte) ')');
+        if (pos == -1) {
+            return false;
+        }
+        long utime = field(pos + 1, 14 - 3);
+        long stime = field(pos + 1, 15 - 3);
+        long threads = field(pos + 1, 20 - 3);
+
+        long rssKb = -1;
+        if (read(dir.resolve("status"))) {
+            rssKb = valueAfter(VM_RSS);
+        }
+
+        long readBytes = -1;
+        long writeBytes = -1;
+        if (read(dir.resolve("io"))) {
+            readBytes = valueAfter(READ_BYTES);
+            writeBytes = valueAfter(WRITE_BYTES);
+        }
+
+        totals.processes++;
+        totals.cpuTicks += Math.max(0, utime) + Math.max(0, stime);
+        totals.threads += (int) Math.max(0, threads);
+        // 内核线程等没有 VmRSS 一行，按 0 计
+        totals.rssBytes += Math.max(0, rssKb) * 1024;
+        if (readBytes < 0 || writeBytes < 0) {
+            totals.ioAvailable = false;
+        } else {
+            totals.readBytes += readBytes;
+            totals.writeBytes += writeBytes;
+        }
+        return true;
+    }
+
+    /**
+     * 把 pid 的直接子进程号追加到 queue[tail] 之后，返回新的 tail。进程已经退出时什么也不加。
+     */
+    private int appendChildren(long pid, int tail) {
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(proc.resolve(Long.toString(pid)).resolve("task"))) {
+            for (Path task : tasks) {
+                if (!read(task.resolve("children"))) {
+                    continue;
+                }
+                // 内容是以空格分隔的进程号，例如 "4321 4322 "
+                int limit = buffer.limit();
+                int i = 0;
+                while (i < limit) {
+                    while (i < limit && (buffer.get(i) < '0' || buffer.get(i) > '9')) {
+                        i++;
+                    }
+                    if (i == limit) {
+                        break;
+                    }
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                    }
+                    queue[tail++] = number(i);
+                    while (i < limit && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                        i++;
+                    }
+                }
+            }
+        } catch (IOException | DirectoryIteratorException | SecurityException e) {
+            // 进程已经退出
+        }
+        return tail;
+    }
+
+    // ===================================================================================
+    // 字节级解析
+    // ===================================================================================
+
+    private boolean read(Path file) {
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // /proc 里的文件报告的大小都是 0，只能读到 EOF 为止
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n != -1 && buffer.hasRemaining());
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private int lastIndexOf(byte b) {
+        for (int i = buffer.limit() - 1; i >= 0; i--) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从 from 开始，跳过 index 个以空格分隔的字段，解析下一个字段里的非负整数；没有则返回 -1。
+     */
+    private long field(int from, int index) {
+        int i = from;
+        int limit = buffer.limit();
+        for (int skipped = 0; skipped <= index && i < limit; ) {
+            while (i < limit && buffer.get(i) == ' ') {
+                i++;
+            }
+            if (skipped == index) {
+                break;
+            }
+            while (i < limit && buffer.get(i) != ' ') {
+                i++;
+            }
+            skipped++;
+        }
+        return number(i);
+    }
+
+    /**
+     * 找到以 key 开头的一行，解析其后的第一个整数；找不到返回 -1。
+     */
+    private long valueAfter(byte[] key) {
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            if (startsWith(lineStart, key)) {
+                int i = lineStart + key.length;
+                while (i < limit && (buffer.get(i) == ' ' || buffer.get(i) == '\t')) {
+                    i++;
+                }
+                return number(i);
+            }
+            while (lineStart < limit && buffer.get(lineStart) != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1;
+    }
+
+    private boolean startsWith(int at, byte[] key) {
+        if (at + key.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(at + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long number(int at) {
+        long value = 0;
+        int i = at;
+        while (i < buffer.limit()) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            i++;
+        }
+        return i == at ? -1 : value;
+    }
+}
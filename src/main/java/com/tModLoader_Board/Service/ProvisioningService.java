@@ -0,0 +1,250 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.DTO.GameConfig;
+import com.tModLoader_Board.DTO.ProvisionJob;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 【职责】: 把 "创建服务器" 拆成一条异步流水线执行，立即返回任务 ID 供前端查询进度。
+ * 阶段依次为: 校验世界和模组 -> 分配端口、预留资源 -> 准备模组目录 -> 启动会话 -> 等待 "Server started"。
+ * 本节点资源不够时任务停在预留这一步排队 (见 {@link ResourceAllocator})，不占用创建并发数。
+ * 热备池里有模组组合相同的实例时，直接把世界挂到它上面，跳过写配置和启动会话这两步。
+ * 每个模组组合有自己的模组目录 (见 {@link ModProfileService})，多个服务器可以完全并行地创建 (并发数可配置)，同一个世界的重复请求会合并到同一个任务上。
+ * 启动成功后把配置存进 {@link StateStore}，面板重启后崩溃的服务器也能按原配置重启。
+ */
+@Service
+public class ProvisioningService {
+
+    public static final String STAGE_VALIDATE = "validate";
+    public static final String STAGE_RESERVE = "reserve";
+    public static final String STAGE_ATTACH_WARM = "attach-warm";
+    public static final String STAGE_WRITE_MOD_CONFIG = "write-mod-config";
+    public static final String STAGE_SPAWN_SESSION = "spawn-session";
+    public static final String STAGE_WAIT_FOR_START = "wait-for-start";
+
+    private static final List<String> STAGES =
+            List.of(STAGE_VALIDATE, STAGE_RESERVE, STAGE_ATTACH_WARM, STAGE_WRITE_MOD_CONFIG, STAGE_SPAWN_SESSION, STAGE_WAIT_FOR_START);
+    private static final long FINISHED_JOB_RETENTION_MILLIS = 60 * 60 * 1000;
+
+    @Autowired
+    private StartService startService;
+
+    @Autowired
+    private ModProfileService modProfileService;
+
+    @Autowired
+    private CommandExecutor commandExecutor;
+
+    @Autowired
+    private WarmServerPool warmServerPool;
+
+    @Autowired
+    private ResourceAllocator resourceAllocator;
+
+    @Autowired
+    private StateStore stateStore;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.provisioning.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${tmodloader.command.startup-timeout-ms:180000}")
+    private long startupTimeoutMillis;
+
+    private final Map<String, ProvisionJob> jobs = new ConcurrentHashMap<>();
+    // 会话名 -> 尚未结束的任务，用来合并重复请求
+    private final Map<String, ProvisionJob> activeBySession = new ConcurrentHashMap<>();
+    private Semaphore slots;
+
+    @PostConstruct
+    public void init() {
+        slots = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * 提交一个创建任务并立即返回。如果同一个世界已有未结束的任务，直接返回那个任务。
+     * 端口为空时自动分配，分到的端口在预留阶段完成后记在任务的 port 上。
+     */
+    public ProvisionJob submit(GameConfig config, String modPath, String worldPath) {
+        if (config.getWorld() == null || !config.getWorld().toLowerCase().endsWith(".wld")) {
+            throw new IllegalArgumentException("世界文件名无效: " + config.getWorld());
+        }
+        config.setMaxPlayers(resourceAllocator.normalizeMaxPlayers(config.getMaxPlayers()));
+        resourceAllocator.parsePort(config.getPort());
+        String sessionName = startService.sessionNameFor(config.getWorld());
+
+        ProvisionJob[] created = new ProvisionJob[1];
+        ProvisionJob job = activeBySession.computeIfAbsent(sessionName, name -> {
+            created[0] = new ProvisionJob(UUID.randomUUID().toString(), name, config, STAGES);
+            return created[0];
+        });
+        if (created[0] == null) {
+            System.out.println("世界 '" + config.getWorld() + "' 已有进行中的创建任务 " + job.getId() + "，合并请求。");
+            return job;
+        }
+
+        jobs.put(job.getId(), job);
+        processExecutor.execute(() -> run(job, modPath, worldPath));
+        return job;
+    }
+
+    /**
+     * 最近一次成功启动该会话用的配置 (端口是当时分到的端口)；不是由本面板创建的会话返回 null。
+     */
+    public GameConfig getLaunchConfig(String sessionName) {
+        return stateStore.getServerConfig(sessionName);
+    }
+
+    public ProvisionJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public List<ProvisionJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * 定期清理已经结束一段时间的任务。
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void purgeFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MILLIS;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    // ===================================================================================
+    // 流水线
+    // ===================================================================================
+
+    private void run(ProvisionJob job, String modPath, String worldPath) {
+        GameConfig config = job.getConfig();
+        try {
+            job.startStage(STAGE_VALIDATE);
+            validate(config, modPath, worldPath);
+            job.finishStage(STAGE_VALIDATE);
+
+            // 排队等资源时不占并发数，资源够的任务可以先走
+            job.startStage(STAGE_RESERVE);
+            int port = resourceAllocator.reserve(job.getSessionName(), config.getPort(),
+                    config.getMods() == null ? 0 : config.getMods().size());
+            config.setPort(String.valueOf(port));
+            job.assignPort(port);
+            job.finishStage(STAGE_RESERVE);
+
+            slots.acquire();
+            try {
+                job.startStage(STAGE_ATTACH_WARM);
+                if (warmServerPool.attach(config, job.getSessionName())) {
+                    job.finishStage(STAGE_ATTACH_WARM);
+                    job.skipStage(STAGE_WRITE_MOD_CONFIG);
+                    job.skipStage(STAGE_SPAWN_SESSION);
+                } else {
+                    job.skipStage(STAGE_ATTACH_WARM);
+                    spawn(job);
+                }
+
+                job.startStage(STAGE_WAIT_FOR_START);
+                commandExecutor.waitForLine(job.getSessionName(), CommandExecutor.SERVER_STARTED, startupTimeoutMillis).get();
+                job.finishStage(STAGE_WAIT_FOR_START);
+
+                stateStore.saveServer(job.getSessionName(), config);
+                stateStore.recordLifecycle(StateStore.LAUNCHED, job.getSessionName(), "端口 " + config.getPort());
+                job.succeed();
+                System.out.println("创建任务 " + job.getId() + " 完成，服务器 '" + job.getSessionName() + "' 已启动。");
+            } finally {
+                slots.release();
+            }
+        } catch (ExecutionException e) {
+            job.fail(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("任务被中断");
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+        } finally {
+            if (ProvisionJob.FAILED.equals(job.getStatus())) {
+                // 会话其实已经在运行 (例如只是等待启动超时) 的话，下一次对账会按它的启动参数重新登记
+                resourceAllocator.release(job.getSessionName());
+            } else {
+                resourceAllocator.confirm(job.getSessionName());
+            }
+            activeBySession.remove(job.getSessionName(), job);
+            recordMetrics(job);
+            if (ProvisionJob.FAILED.equals(job.getStatus())) {
+                System.err.println("创建任务 " + job.getId() + " 失败: " + job.getError());
+            }
+        }
+    }
+
+    /**
+     * 冷启动: 准备这组模组专用的模组目录并启动会话。每个会话用 -modpath 读自己的 enabled.json，不需要和其他任务互斥。
+     */
+    private void spawn(ProvisionJob job) throws IOException, InterruptedException {
+        GameConfig config = job.getConfig();
+        job.startStage(STAGE_WRITE_MOD_CONFIG);
+        String profile = modProfileService.prepare(config.getMods());
+        job.finishStage(STAGE_WRITE_MOD_CONFIG);
+
+        job.startStage(STAGE_SPAWN_SESSION);
+        String sessionName = startService.startServer(
+                config.getWorld(), config.getMaxPlayers(), config.getPort(), config.getPassword(), profile);
+        if (sessionName == null) {
+            throw new IllegalStateException("启动服务器会话失败！");
+        }
+        job.finishStage(STAGE_SPAWN_SESSION);
+    }
+
+    /**
+     * 把任务各阶段的耗时记进指标，没有执行到 (或跳过) 的阶段不记。
+     */
+    private void recordMetrics(ProvisionJob job) {
+        for (ProvisionJob.Stage stage : job.getStages()) {
+            if (!ProvisionJob.QUEUED.equals(stage.getStatus()) && !ProvisionJob.SKIPPED.equals(stage.getStatus())) {
+                meterRegistry.timer("tmodloader.provisioning.stage", "stage", stage.getName(), "status", stage.getStatus())
+                        .record(stage.getDurationMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        meterRegistry.counter("tmodloader.provisioning.jobs", "outcome", job.getStatus()).increment();
+    }
+
+    /**
+     * 校验世界文件和所有选中的模组文件都存在。
+     */
+    private void validate(GameConfig config, String modPath, String worldPath) {
+        if (!new File(worldPath + config.getWorld()).isFile()) {
+            throw new IllegalArgumentException("世界文件不存在: " + config.getWorld());
+        }
+        if (config.getMods() != null) {
+            for (String mod : config.getMods()) {
+                if (!new File(modPath + mod).isFile()) {
+                    throw new IllegalArgumentException("模组文件不存在: " + mod);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.DTO.AllocationStatus;
+import com.tModLoader_Board.DTO.ServerStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 【职责】: 管理本节点的端口和资源。端口只从配置的范围里分配，用一个位图记录占用情况；
+ * 每个服务器启动前按模组数估算内存、按固定核数预留 CPU，超出本节点预算的创建任务排队等待，等不到就失败。
+ * 服务器停止或会话消失 (崩溃、被杀) 后释放它的预留。运行中的服务器实际内存超过估算值时按实际值计入。
+ * 分配在内存里进行，面板重启后把已经在运行的 tmodloader-* 会话按它们的启动参数重新登记。
+ */
+@Service
+public class ResourceAllocator {
+
+    private static final long MB = 1024 * 1024;
+    // Terraria 服务器允许的最大人数
+    private static final int MAX_PLAYERS_LIMIT = 255;
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ResourceMonitor resourceMonitor;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.allocator.port-range:7777-7876}")
+    private String portRange;
+
+    @Value("${tmodloader.allocator.memory-budget-mb:0}")
+    private long memoryBudgetMb;
+
+    @Value("${tmodloader.allocator.cpu-budget:0}")
+    private double cpuBudgetConfig;
+
+    @Value("${tmodloader.allocator.server-memory-mb:1024}")
+    private long serverMemoryMb;
+
+    @Value("${tmodloader.allocator.mod-memory-mb:64}")
+    private long modMemoryMb;
+
+    @Value("${tmodloader.allocator.server-cpu:0.5}")
+    private double serverCpu;
+
+    @Value("${tmodloader.allocator.queue-timeout-ms:120000}")
+    private long queueTimeoutMillis;
+
+    @Value("${tmodloader.command.startup-timeout-ms:180000}")
+    private long startupTimeoutMillis;
+
+    // 以下状态都由 lock 保护；有预留被释放时 released 唤醒排队的任务
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<String, Reservation> reservations = new LinkedHashMap<>();
+    private BitSet usedPorts;
+    private int firstPort;
+    private int lastPort;
+    // 下一次自动分配从这里开始找，刚释放的端口不会马上被复用
+    private int nextPort;
+    private long memoryBudget;
+    private double cpuBudget;
+    private volatile long memoryReserved;
+    private volatile double cpuReserved;
+    private volatile int portsUsed;
+    private volatile int waiting;
+
+    private final AtomicBoolean reconcilePending = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        String[] range = portRange.split("-");
+        firstPort = Integer.parseInt(range[0].trim());
+        lastPort = Integer.parseInt(range[range.length - 1].trim());
+        if (firstPort < 1 || lastPort > 65535 || firstPort > lastPort) {
+            throw new IllegalStateException("端口范围无效: " + portRange);
+        }
+        usedPorts = new BitSet(lastPort - firstPort + 1);
+        nextPort = firstPort;
+
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        // 默认留 15% 给系统和面板本身
+        memoryBudget = memoryBudgetMb > 0 ? memoryBudgetMb * MB : (long) (os.getTotalMemorySize() * 0.85);
+        cpuBudget = cpuBudgetConfig > 0 ? cpuBudgetConfig : os.getAvailableProcessors();
+
+        meterRegistry.gauge("tmodloader.allocator.ports.used", this, allocator -> allocator.portsUsed);
+        meterRegistry.gauge("tmodloader.allocator.memory.reserved", this, allocator -> allocator.memoryReserved);
+        meterRegistry.gauge("tmodloader.allocator.cpu.reserved", this, allocator -> allocator.cpuReserved);
+        meterRegistry.gauge("tmodloader.allocator.waiting", this, allocator -> allocator.waiting);
+
+        processBackend.addSessionsChangedListener(this::scheduleReconcile);
+        System.out.println("端口范围 " + firstPort + "-" + lastPort + "，内存预算 " + memoryBudget / MB
+                + " MB，CPU 预算 " + cpuBudget + " 核");
+    }
+
+    // ===================================================================================
+    // 分配与释放
+    // ===================================================================================
+
+    /**
+     * 为即将启动的服务器预留端口和资源，返回分到的端口。
+     * 本节点剩余资源不够时排队等待其他服务器释放，超过 queue-timeout-ms 仍不够则抛出 IllegalStateException。
+     * 预留之后创建任务可能还要排队等并发数，所以在调用 {@link #confirm} 或 {@link #release} 之前，对账不会因为会话还没出现而释放它。
+     *
+     * @param requestedPort 指定的端口，为空 (或 "0"、"auto") 时自动分配
+     * @param modCount      模组数，用来估算内存
+     */
+    public int reserve(String sessionName, String requestedPort, int modCount) throws InterruptedException {
+        int wanted = parsePort(requestedPort);
+        long memory = estimateMemory(modCount);
+        if (memory > memoryBudget || serverCpu > cpuBudget) {
+            meterRegistry.counter("tmodloader.allocator.admissions", "outcome", "rejected").increment();
+            throw new IllegalStateException("服务器所需资源超过本节点的总预算");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        lock.lock();
+        try {
+            Reservation existing = reservations.get(sessionName);
+            if (existing != null && existing.port != 0 && (wanted == 0 || wanted == existing.port)) {
+                return existing.port;
+            }
+            if (existing != null) {
+                // 同一个会话换端口 (或热备实例挂上世界) 时，先放掉旧的再重新申请
+                remove(existing);
+            }
+
+            boolean queued = false;
+            while (!fits(memory, serverCpu) || (wanted == 0 && portsUsed > lastPort - firstPort)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    meterRegistry.counter("tmodloader.allocator.admissions", "outcome", "rejected").increment();
+                    throw new IllegalStateException("本节点资源不足 (已预留内存 " + memoryReserved / MB + "/" + memoryBudget / MB
+                            + " MB，CPU " + cpuReserved + "/" + cpuBudget + " 核，端口 " + portsUsed + "/"
+                            + (lastPort - firstPort + 1) + ")，排队 " + queueTimeoutMillis / 1000 + " 秒后仍无法启动");
+                }
+                if (!queued) {
+                    queued = true;
+                    System.out.println("本节点资源不足，'" + sessionName + "' 排队等待其他服务器释放资源...");
+                }
+                waiting++;
+                try {
+                    released.awaitNanos(remaining);
+                } finally {
+                    waiting--;
+                }
+            }
+
+            int port = wanted != 0 ? claimPort(wanted, sessionName) : claimFreePort();
+            Reservation reservation = new Reservation(sessionName, port, memory, serverCpu);
+            reservation.pending = true;
+            add(reservation);
+            meterRegistry.counter("tmodloader.allocator.admissions", "outcome", queued ? "queued" : "admitted").increment();
+            return port;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 为热备实例预留资源 (不占端口)。不排队: 资源不够或已有任务在排队时直接返回 false，热备不和真正的创建抢资源。
+     */
+    public boolean tryReserve(String sessionName, int modCount) {
+        long memory = estimateMemory(modCount);
+        lock.lock();
+        try {
+            if (waiting > 0 || reservations.containsKey(sessionName) || !fits(memory, serverCpu)) {
+                return false;
+            }
+            add(new Reservation(sessionName, 0, memory, serverCpu));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 创建任务成功结束: 服务器已经启动，之后会话消失时由对账释放它的预留。
+     */
+    public void confirm(String sessionName) {
+        lock.lock();
+        try {
+            Reservation reservation = reservations.get(sessionName);
+            if (reservation != null) {
+                reservation.pending = false;
+                reservation.running = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放会话的端口和资源，没有预留时什么也不做。
+     */
+    public void release(String sessionName) {
+        lock.lock();
+        try {
+            Reservation reservation = reservations.get(sessionName);
+            if (reservation != null) {
+                remove(reservation);
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 校验人数，返回规范化后的值。
+     */
+    public String normalizeMaxPlayers(String maxPlayers) {
+        try {
+            int value = Integer.parseInt(maxPlayers == null ? "" : maxPlayers.trim());
+            if (value >= 1 && value <= MAX_PLAYERS_LIMIT) {
+                return String.valueOf(value);
+            }
+        } catch (NumberFormatException ignored) {
+            // 统一在下面报错
+        }
+        throw new IllegalArgumentException("最大玩家数必须是 1 到 " + MAX_PLAYERS_LIMIT + " 之间的整数: " + maxPlayers);
+    }
+
+    /**
+     * 解析请求里的端口，自动分配时返回 0；格式不对或不在端口范围内时抛出 IllegalArgumentException。
+     */
+    public int parsePort(String port) {
+        if (port == null || port.isBlank() || "auto".equalsIgnoreCase(port.trim()) || "0".equals(port.trim())) {
+            return 0;
+        }
+        int value;
+        try {
+            value = Integer.parseInt(port.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("端口格式错误: " + port);
+        }
+        if (value < firstPort || value > lastPort) {
+            throw new IllegalArgumentException("端口 " + value + " 不在允许的范围 " + firstPort + "-" + lastPort + " 内");
+        }
+        return value;
+    }
+
+    // ===================================================================================
+    // 查询
+    // ===================================================================================
+
+    public AllocationStatus getStatus() {
+        AllocationStatus status = new AllocationStatus();
+        lock.lock();
+        try {
+            status.setPortRangeStart(firstPort);
+            status.setPortRangeEnd(lastPort);
+            status.setPortsUsed(portsUsed);
+            status.setMemoryBudget(memoryBudget);
+            status.setMemoryReserved(memoryReserved);
+            status.setCpuBudget(cpuBudget);
+            status.setCpuReserved(cpuReserved);
+            status.setWaiting(waiting);
+            for (Reservation reservation : reservations.values()) {
+                AllocationStatus.Reservation item = new AllocationStatus.Reservation();
+                item.setSessionName(reservation.sessionName);
+                item.setPort(reservation.port);
+                item.setMemoryBytes(reservation.memoryBytes);
+                item.setCpus(reservation.cpus);
+                item.setReservedAt(reservation.reservedAt);
+                item.setRunning(reservation.running);
+                status.getReservations().add(item);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return status;
+    }
+
+    /**
+     * 内存预算里还没被预留的部分，节点选择时和实际可用内存一起考虑。
+     */
+    public long getMemoryUnreserved() {
+        return Math.max(0, memoryBudget - memoryReserved);
+    }
+
+    // ===================================================================================
+    // 与实际运行的会话对账
+    // ===================================================================================
+
+    /**
+     * 对账: 运行过的会话消失了就释放它的预留，一直没启动起来的预留 (创建任务还在进行的除外) 超时后释放；
+     * 预留的内存按实际占用上调；不经过面板启动 (或面板重启前就在运行) 的服务器补登记。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.allocator.reconcile-ms:15000}")
+    public void reconcile() {
+        Set<String> sessions;
+        try {
+            sessions = new HashSet<>(processBackend.listSessions());
+        } catch (IOException | InterruptedException e) {
+            System.err.println("核对端口和资源预留时获取会话列表失败: " + e.getMessage());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean freed = false;
+        lock.lock();
+        try {
+            for (Reservation reservation : List.copyOf(reservations.values())) {
+                if (sessions.contains(reservation.sessionName)) {
+                    reservation.running = true;
+                } else if (!reservation.pending
+                        && (reservation.running || now - reservation.reservedAt > startupTimeoutMillis)) {
+                    System.out.println("会话 '" + reservation.sessionName + "' 已不在运行，释放"
+                            + (reservation.port != 0 ? "端口 " + reservation.port + " 和" : "") + "预留的资源。");
+                    remove(reservation);
+                    freed = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (String sessionName : sessions) {
+            if (sessionName.startsWith("tmodloader-")) {
+                lock.lock();
+                boolean known;
+                try {
+                    known = reservations.containsKey(sessionName);
+                } finally {
+                    lock.unlock();
+                }
+                if (!known) {
+                    adopt(sessionName);
+                }
+            }
+        }
+
+        for (ServerStats stats : resourceMonitor.getStats(null, 1)) {
+            lock.lock();
+            try {
+                Reservation reservation = reservations.get(stats.getSessionName());
+                if (reservation != null) {
+                    long memory = Math.max(reservation.estimatedBytes, stats.getRssBytes());
+                    freed |= memory < reservation.memoryBytes;
+                    memoryReserved += memory - reservation.memoryBytes;
+                    reservation.memoryBytes = memory;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (freed) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void scheduleReconcile() {
+        if (reconcilePending.compareAndSet(false, true)) {
+            processExecutor.execute(() -> {
+                reconcilePending.set(false);
+                reconcile();
+            });
+        }
+    }
+
+    /**
+     * 登记一个已经在运行的服务器，端口取自它的启动参数 -port。
+     */
+    private void adopt(String sessionName) {
+        int port = 0;
+        try {
+            long pid = processBackend.getPid(sessionName);
+            String[] arguments = pid > 0
+                    ? ProcessHandle.of(pid).flatMap(handle -> handle.info().arguments()).orElse(new String[0])
+                    : new String[0];
+            for (int i = 0; i + 1 < arguments.length; i++) {
+                if ("-port".equals(arguments[i])) {
+                    port = Integer.parseInt(arguments[i + 1]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("读取会话 '" + sessionName + "' 的启动参数失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (reservations.containsKey(sessionName)) {
+                return;
+            }
+            if (port < firstPort || port > lastPort || usedPorts.get(port - firstPort)) {
+                port = 0;
+            } else {
+                usedPorts.set(port - firstPort);
+                portsUsed++;
+            }
+            Reservation reservation = new Reservation(sessionName, 0, serverMemoryMb * MB, serverCpu);
+            reservation.port = port;
+            reservation.running = true;
+            reservations.put(sessionName, reservation);
+            memoryReserved += reservation.memoryBytes;
+            cpuReserved += reservation.cpus;
+            System.out.println("登记已在运行的服务器 '" + sessionName + "'" + (port != 0 ? "，端口 " + port : ""));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 内部实现 (调用方持有 lock)
+    // ===================================================================================
+
+    private long estimateMemory(int modCount) {
+        return (serverMemoryMb + modMemoryMb * Math.max(0, modCount)) * MB;
+    }
+
+    private boolean fits(long memory, double cpus) {
+        return memoryReserved + memory <= memoryBudget && cpuReserved + cpus <= cpuBudget + 1e-9;
+    }
+
+    private int claimPort(int port, String sessionName) {
+        if (usedPorts.get(port - firstPort)) {
+            String owner = reservations.values().stream()
+                    .filter(r -> r.port == port).map(r -> r.sessionName).findFirst().orElse("?");
+            throw new IllegalStateException("端口 " + port + " 已被服务器 '" + owner + "' 占用");
+        }
+        if (!canBind(port)) {
+            throw new IllegalStateException("端口 " + port + " 已被其他程序占用");
+        }
+        usedPorts.set(port - firstPort);
+        portsUsed++;
+        return port;
+    }
+
+    /**
+     * 从 nextPort 开始找第一个空闲位 (到末尾后回到开头)，跳过被面板以外的程序占着的端口。
+     */
+    private int claimFreePort() {
+        int size = lastPort - firstPort + 1;
+        int start = nextPort - firstPort;
+        for (int checked = 0, bit = usedPorts.nextClearBit(start); checked < size; checked++) {
+            if (bit >= size) {
+                bit = usedPorts.nextClearBit(0);
+                if (bit >= size) {
+                    break;
+                }
+            }
+            int port = firstPort + bit;
+            if (canBind(port)) {
+                usedPorts.set(bit);
+                portsUsed++;
+                nextPort = port + 1 > lastPort ? firstPort : port + 1;
+                return port;
+            }
+            bit = usedPorts.nextClearBit(bit + 1);
+        }
+        throw new IllegalStateException("端口范围 " + firstPort + "-" + lastPort + " 内没有可用的端口");
+    }
+
+    /**
+     * 试着绑定一下端口，提前发现被别的程序占用的情况，不用等服务器启动超时才知道。
+     */
+    private static boolean canBind(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void add(Reservation reservation) {
+        reservations.put(reservation.sessionName, reservation);
+        memoryReserved += reservation.memoryBytes;
+        cpuReserved += reservation.cpus;
+    }
+
+    private void remove(Reservation reservation) {
+        reservations.remove(reservation.sessionName);
+        if (reservation.port != 0) {
+            usedPorts.clear(reservation.port - firstPort);
+            portsUsed--;
+        }
+        memoryReserved -= reservation.memoryBytes;
+        cpuReserved -= reservation.cpus;
+    }
+
+    private static class Reservation {
+        final String sessionName;
+        int port;
+        final long estimatedBytes;
+        // 估算值和实际占用中较大的一个
+        long memoryBytes;
+        final double cpus;
+        final long reservedAt = System.currentTimeMillis();
+        boolean running;
+        // 创建任务还没结束 (可能还在排队等并发数)，由任务自己 confirm 或 release
+        boolean pending;
+
+        Reservation(String sessionName, int port, long estimatedBytes, double cpus) {
+            this.sessionName = sessionName;
+            this.port = port;
+            this.estimatedBytes = estimatedBytes;
+            this.memoryBytes = estimatedBytes;
+            this.cpus = cpus;
+        }
+    }
+}
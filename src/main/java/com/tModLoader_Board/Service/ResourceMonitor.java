@@ -0,0 +1,252 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.ServerStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 【职责】: 定期从 /proc 采样每个 tmodloader-* 会话的 CPU、内存和磁盘 I/O。
+ * 会话先解析成进程号，再把它和所有子孙进程 (启动脚本下面的 dotnet 服务器) 的数值加在一起；
+ * 每个会话的历史放在几个定长的基本类型环形数组里，采样本身不产生装箱对象。
+ * 不在 Linux 上 (没有 /proc) 时什么也不做。
+ */
+@Service
+public class ResourceMonitor {
+
+    // /proc 里的 CPU 时间以 USER_HZ 为单位，Linux 上它固定是 100
+    private static final double USER_HZ = 100.0;
+    private static final Path PROC = Path.of("/proc");
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Value("${tmodloader.stats.history-size:720}")
+    private int historySize;
+
+    // 只在采样线程上使用
+    private final ProcStatReader reader = new ProcStatReader();
+    private final ProcStatReader.Totals totals = new ProcStatReader.Totals();
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${tmodloader.stats.sample-ms:5000}")
+    public void sample() {
+        if (!Files.isDirectory(PROC)) {
+            return;
+        }
+        List<String> sessions;
+        try {
+            sessions = processBackend.listSessions();
+        } catch (IOException | InterruptedException e) {
+            System.err.println("采样资源占用时获取会话列表失败: " + e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Set<String> sampled = new HashSet<>();
+        for (String sessionName : sessions) {
+            if (!sessionName.startsWith("tmodloader-")) {
+                continue;
+            }
+            try {
+                long pid = processBackend.getPid(sessionName);
+                if (pid <= 0 || !sampleTree(pid)) {
+                    continue;
+                }
+                series.computeIfAbsent(sessionName, name -> new Series(historySize)).record(now, pid, totals);
+                sampled.add(sessionName);
+            } catch (IOException | InterruptedException e) {
+                System.err.println("采样会话 '" + sessionName + "' 的资源占用失败: " + e.getMessage());
+            }
+        }
+        // 已经停止的会话不再保留历史
+        series.keySet().retainAll(sampled);
+    }
+
+    /**
+     * 返回各会话的当前值和降采样到最多 points 个点的历史。sessionName 不为空时只返回该会话。
+     */
+    public List<ServerStats> getStats(String sessionName, int points) {
+        int maxPoints = Math.max(1, Math.min(points, historySize));
+        List<ServerStats> result = new ArrayList<>();
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            if (sessionName == null || sessionName.equals(entry.getKey())) {
+                ServerStats stats = entry.getValue().toStats(maxPoints);
+                if (stats != null) {
+                    stats.setSessionName(entry.getKey());
+                    result.add(stats);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(ServerStats::getSessionName));
+        return result;
+    }
+
+    /**
+     * 从 since 起至少有两次采样、且这些采样里会话的进程树完全没有用到 CPU 时返回 true。
+     * 正常空转的服务器每个采样周期都会用掉一点 CPU；一点都不用说明进程停住了，或者服务器已经退出、只剩下 shell。
+     * 没有采样数据 (例如不在 Linux 上) 时返回 false。
+     */
+    public boolean isStalled(String sessionName, long since) {
+        Series s = series.get(sessionName);
+        return s != null && s.isStalled(since);
+    }
+
+    /**
+     * 把 pid 及其所有子孙进程的数值累加进 totals；pid 本身已经退出时返回 false。
+     */
+    private boolean sampleTree(long pid) {
+        totals.clear();
+        return reader.accumulateTree(pid, totals);
+    }
+
+    // ===================================================================================
+    // 时间序列
+    // ===================================================================================
+
+    /**
+     * 一个会话的定长历史。CPU 时间和 I/O 字节数都是累计值，记录的是相邻两次采样之间的速率。
+     */
+    static class Series {
+        private final long[] timestamps;
+        private final float[] cpuPercent;
+        private final long[] rssBytes;
+        private final float[] readRate;
+        private final float[] writeRate;
+        private int head = 0;
+        private int count = 0;
+
+        // 上一次采样的累计值，用来算速率；进程号变了 (服务器重启) 就重新开始
+        private long lastPid = -1;
+        private long lastTime;
+        private long lastTicks;
+        private long lastRead;
+        private long lastWrite;
+        private boolean lastIoAvailable;
+        private int processes;
+        private int threads;
+
+        Series(int capacity) {
+            timestamps = new long[capacity];
+            cpuPercent = new float[capacity];
+            rssBytes = new long[capacity];
+            readRate = new float[capacity];
+            writeRate = new float[capacity];
+        }
+
+        synchronized void record(long now, long pid, ProcStatReader.Totals totals) {
+            if (pid == lastPid && now > lastTime) {
+                double seconds = (now - lastTime) / 1000.0;
+                boolean io = totals.ioAvailable && lastIoAvailable;
+                // 子进程退出时累计值会变小，按 0 计
+                timestamps[head] = now;
+                cpuPercent[head] = (float) (Math.max(0, totals.cpuTicks - lastTicks) / USER_HZ / seconds * 100);
+                rssBytes[head] = totals.rssBytes;
+                readRate[head] = io ? (float) (Math.max(0, totals.readBytes - lastRead) / seconds) : -1;
+                writeRate[head] = io ? (float) (Math.max(0, totals.writeBytes - lastWrite) / seconds) : -1;
+                head = (head + 1) % timestamps.length;
+                count = Math.min(count + 1, timestamps.length);
+            }
+            lastPid = pid;
+            lastTime = now;
+            lastTicks = totals.cpuTicks;
+            lastRead = totals.readBytes;
+            lastWrite = totals.writeBytes;
+            lastIoAvailable = totals.ioAvailable;
+            processes = totals.processes;
+            threads = totals.threads;
+        }
+
+        synchronized boolean isStalled(long since) {
+            int samples = 0;
+            for (int i = count - 1; i >= 0 && timestamps[index(i)] >= since; i--) {
+                if (cpuPercent[index(i)] > 0) {
+                    return false;
+                }
+                samples++;
+            }
+            return samples >= 2;
+        }
+
+        /**
+         * 还没有两次采样 (算不出速率) 时返回 null。
+         */
+        synchronized ServerStats toStats(int points) {
+            if (count == 0) {
+                return null;
+            }
+            int latest = index(count - 1);
+            ServerStats stats = new ServerStats();
+            stats.setPid(lastPid);
+            stats.setProcesses(processes);
+            stats.setThreads(threads);
+            stats.setSampledAt(timestamps[latest]);
+            stats.setCpuPercent(cpuPercent[latest]);
+            stats.setRssBytes(rssBytes[latest]);
+            stats.setReadBytesPerSecond(readRate[latest]);
+            stats.setWriteBytesPerSecond(writeRate[latest]);
+            stats.setHistory(downsample(points));
+            return stats;
+        }
+
+        /**
+         * 把全部历史按时间顺序均分成不超过 points 段，每段合成一个点。
+         */
+        private ServerStats.History downsample(int points) {
+            int buckets = Math.min(points, count);
+            long[] t = new long[buckets];
+            double[] cpu = new double[buckets];
+            long[] rss = new long[buckets];
+            double[] read = new double[buckets];
+            double[] write = new double[buckets];
+            for (int b = 0; b < buckets; b++) {
+                int from = (int) ((long) b * count / buckets);
+                int to = (int) ((long) (b + 1) * count / buckets);
+                double cpuSum = 0;
+                double readSum = 0;
+                double writeSum = 0;
+                boolean io = true;
+                for (int i = from; i < to; i++) {
+                    int at = index(i);
+                    cpuSum += cpuPercent[at];
+                    rss[b] = Math.max(rss[b], rssBytes[at]);
+                    io &= readRate[at] >= 0;
+                    readSum += readRate[at];
+                    writeSum += writeRate[at];
+                }
+                int n = to - from;
+                t[b] = timestamps[index(to - 1)];
+                cpu[b] = cpuSum / n;
+                read[b] = io ? readSum / n : -1;
+                write[b] = io ? writeSum / n : -1;
+            }
+            ServerStats.History history = new ServerStats.History();
+            history.setTimestamps(t);
+            history.setCpuPercent(cpu);
+            history.setRssBytes(rss);
+            history.setReadBytesPerSecond(read);
+            history.setWriteBytesPerSecond(write);
+            return history;
+        }
+
+        /**
+         * 第 i 个 (从最早的一个算起) 样本在数组里的下标。
+         */
+        private int index(int i) {
+            return (head - count + i + timestamps.length) % timestamps.length;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tModLoader_Board.Service;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+/**
+ * 【职责】: 服务器进程的运行方式。上层 (ControlService、CommandExecutor、ConsoleStreamService) 只通过这个接口
+ * 启动、停止服务器，向控制台写命令和读输出，不关心底下是 tmux 会话还是面板直接管理的子进程。
+ * 用 tmodloader.process.backend 选择实现: direct (默认) 或 tmux。
+ */
+public interface ServerProcessBackend {
+
+    /**
+     * 一个会话的控制台输出来源。
+     */
+    interface ConsoleSource {
+        /**
+         * 在读取线程上调用，可以阻塞直到输出可读。读到 -1 表示服务器已经退出。
+         */
+        ReadableByteChannel open() throws IOException;
+
+        /**
+         * 面板关闭时调用，释放为读取输出建立的资源 (不会停止服务器)。
+         */
+        void close();
+    }
+
+    /**
+     * 以 sessionName 启动一个服务器进程。
+     *
+     * @param command 启动脚本及其参数
+     * @return 是否启动成功
+     */
+    boolean start(String sessionName, List<String> command) throws IOException, InterruptedException;
+
+    /**
+     * 向服务器控制台输入一行命令。
+     */
+    void send(String sessionName, String line) throws IOException, InterruptedException;
+
+    /**
+     * 向服务器控制台输入一行不能出现在控制台输出里的内容 (服务器密码)，日志里只留下星号。
+     * 不支持时 (见 {@link #supportsSecretInput()}) 抛出 UnsupportedOperationException。
+     */
+    void sendSecret(String sessionName, String line) throws IOException, InterruptedException;
+
+    /**
+     * 是否支持 {@link #sendSecret}。tmux 窗格里的输入会被终端回显，无法隐藏。
+     */
+    boolean supportsSecretInput();
+
+    boolean isRunning(String sessionName) throws IOException, InterruptedException;
+
+    /**
+     * 强制结束服务器，用于 exit 超时之后。
+     */
+    void kill(String sessionName) throws IOException, InterruptedException;
+
+    /**
+     * 把正在运行的会话改名，服务器进程不受影响。newName 不能是正在运行的会话。
+     * 调用之前应先断开该会话的控制台输出流，改名之后再按新名字接上。
+     */
+    void rename(String sessionName, String newName) throws IOException, InterruptedException;
+
+    /**
+     * 当前所有正在运行的会话名 (不限于 tmodloader- 开头的)。
+     */
+    List<String> listSessions() throws IOException, InterruptedException;
+
+    /**
+     * 会话里最外层进程的 pid (直接运行时是启动脚本，tmux 下是窗格里的 shell)，服务器进程是它或它的子孙。
+     * 会话不存在时返回 -1。
+     */
+    long getPid(String sessionName) throws IOException, InterruptedException;
+
+    /**
+     * 最近 lines 行控制台输出，会话不存在时返回 null。只在没有接上输出流时作为退路使用。
+     */
+    List<String> capture(String sessionName, int lines) throws IOException, InterruptedException;
+
+    /**
+     * 把已有的历史输出写进 buffer，并返回之后新输出的来源。无法读取输出时返回 null。
+     */
+    ConsoleSource openConsole(String sessionName, ConsoleBuffer buffer) throws IOException, InterruptedException;
+
+    /**
+     * 订阅 "有会话启动或退出" 事件，收到后调用方自行重新列出会话。
+     */
+    void addSessionsChangedListener(Runnable listener);
+}
@@ -0,0 +1,480 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import com.tModLoader_Board.DTO.GameConfig;
+import com.tModLoader_Board.DTO.ProvisionJob;
+import com.tModLoader_Board.DTO.SupervisedServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 【职责】: 守护所有 tmodloader-* 服务器，发现崩溃或卡死后按原来的配置自动重启。
+ * 进程退出由控制台输出流结束这一事件直接触发，不轮询会话列表；
+ * 控制台安静超过 heartbeat-ms、并且还有别的卡死迹象 (期间有命令等不到结果，或者进程树一直没有用 CPU) 的服务器
+ * 发一次 "playing" 探测，probe-timeout-ms 内没有正常回应就算卡死 (包括进程已经没了、只剩一个 shell 提示符的情况)，
+ * 结束会话后按崩溃处理。只是没人说话的空闲服务器不会被探测，探测命令不会反复出现在控制台日志和推送里。
+ * 每次崩溃把最后一段控制台输出写进 CrashReports；重启间隔按次数指数增长，crash-loop-window-ms 内崩溃超过 max-restarts 次就不再重启。
+ * 通过 {@link ControlService#stopServer} 主动停止的服务器不会被重启；只有本面板创建的服务器有配置可以重启。
+ * 崩溃和进入崩溃循环都记进 {@link StateStore}；开启 restore-on-startup 时，面板启动对账发现已经不在的服务器也按原配置重新创建。
+ */
+@Service
+public class ServerSupervisor {
+
+    public static final String STARTING = "STARTING";
+    public static final String RUNNING = "RUNNING";
+    public static final String RESTARTING = "RESTARTING";
+    public static final String CRASH_LOOP = "CRASH_LOOP";
+    public static final String CRASHED = "CRASHED";
+
+    private static final String SESSION_PREFIX = "tmodloader-";
+    private static final int SUMMARY_LINES = 20;
+    private static final DateTimeFormatter REPORT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private CommandExecutor commandExecutor;
+
+    @Autowired
+    private ResourceMonitor resourceMonitor;
+
+    @Autowired
+    private ProvisioningService provisioningService;
+
+    @Autowired
+    private StateStore stateStore;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.supervisor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tmodloader.supervisor.heartbeat-ms:20000}")
+    private long heartbeatMillis;
+
+    @Value("${tmodloader.supervisor.probe-timeout-ms:10000}")
+    private long probeTimeoutMillis;
+
+    @Value("${tmodloader.supervisor.backoff-initial-ms:5000}")
+    private long backoffInitialMillis;
+
+    @Value("${tmodloader.supervisor.backoff-max-ms:300000}")
+    private long backoffMaxMillis;
+
+    @Value("${tmodloader.supervisor.crash-loop-window-ms:600000}")
+    private long crashLoopWindowMillis;
+
+    @Value("${tmodloader.supervisor.max-restarts:5}")
+    private int maxRestarts;
+
+    @Value("${tmodloader.supervisor.report-lines:200}")
+    private int reportLines;
+
+    @Value("${tmodloader.state.restore-on-startup:false}")
+    private boolean restoreOnStartup;
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    // 崩溃处理、探测结果和重启都在这一个线程上执行，同一个服务器的事件不会交错
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "server-supervisor");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean shuttingDown = false;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        consoleStreamService.addAttachListener(this::onAttach);
+        controlService.addStopListener(sessionName -> {
+            State state = states.get(sessionName);
+            if (state != null) {
+                synchronized (state) {
+                    state.stopRequested = true;
+                    state.cancelRestart();
+                }
+            }
+        });
+        // 面板重启后还在运行的服务器没有人去接输出流，不接上就发现不了它们崩溃
+        submit(this::attachRunning);
+        if (restoreOnStartup) {
+            submit(this::restoreLost);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 面板退出时所有输出流都会结束，这些都不是崩溃
+        shuttingDown = true;
+        scheduler.shutdownNow();
+    }
+
+    public List<SupervisedServer> getServers() {
+        List<SupervisedServer> result = new ArrayList<>();
+        for (State state : states.values()) {
+            result.add(state.toDto(provisioningService.getLaunchConfig(state.sessionName) != null, crashLoopWindowMillis));
+        }
+        result.sort(Comparator.comparing(SupervisedServer::getSessionName));
+        return result;
+    }
+
+    // ===================================================================================
+    // 事件
+    // ===================================================================================
+
+    /**
+     * 会话接上输出流 (新启动、重启成功或面板重启后第一次访问)。在读取线程启动之前调用。
+     */
+    private void onAttach(ConsoleBuffer buffer) {
+        String sessionName = buffer.getSessionName();
+        if (!sessionName.startsWith(SESSION_PREFIX)) {
+            return;
+        }
+        State state = states.computeIfAbsent(sessionName, State::new);
+        synchronized (state) {
+            // 崩溃记录保留下来，连续崩溃才能被发现
+            state.cancelRestart();
+            state.buffer = buffer;
+            state.status = null;
+            state.stopRequested = false;
+            state.hung = false;
+            state.lastOutput = System.currentTimeMillis();
+            // 面板重启后接上的是早已启动好的服务器，"Server started" 在历史输出里
+            state.started = buffer.findLast("Server started", buffer.getCapacity()) >= 0;
+        }
+        buffer.addListener(new ConsoleBuffer.LineListener() {
+            @Override
+            public void onLine(long sequence, String line) {
+                state.lastOutput = System.currentTimeMillis();
+                if (!state.started && CommandExecutor.SERVER_STARTED.test(line)) {
+                    state.started = true;
+                }
+            }
+
+            @Override
+            public void onClosed() {
+                submit(() -> onStreamClosed(state, buffer));
+            }
+        });
+    }
+
+    private void onStreamClosed(State state, ConsoleBuffer buffer) {
+        boolean hung;
+        synchronized (state) {
+            if (state.buffer != buffer) {
+                // 已经换上了新的输出流 (例如热备实例改名后重新接上)
+                return;
+            }
+            if (state.stopRequested) {
+                states.remove(state.sessionName, state);
+                return;
+            }
+            hung = state.hung;
+        }
+        try {
+            if (!hung && processBackend.isRunning(state.sessionName)) {
+                // 只是管道断了，服务器还在，重新接上
+                consoleStreamService.attach(state.sessionName);
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("检查会话 '" + state.sessionName + "' 是否在运行失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<String> lines = buffer.linesAfter(buffer.getLastSequence() - reportLines);
+        crashed(state, hung ? "控制台无响应 (卡死)" : "进程意外退出", hung ? "hang" : "exit", lines);
+    }
+
+    /**
+     * 对控制台安静了 heartbeat-ms、又有卡死迹象的已启动服务器发一次 "playing"，看它是否还能正常响应。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.supervisor.check-ms:5000}")
+    public void checkLiveness() {
+        long now = System.currentTimeMillis();
+        for (State state : states.values()) {
+            synchronized (state) {
+                if (state.status != null || !state.started || state.probing || state.stopRequested
+                        || state.buffer == null || state.buffer.isClosed() || now - state.lastOutput < heartbeatMillis
+                        || !looksHung(state)) {
+                    continue;
+                }
+                state.probing = true;
+            }
+            commandExecutor.execute(state.sessionName, "playing", CommandExecutor.PLAYERS_LISTED, probeTimeoutMillis)
+                    .whenComplete((output, error) -> submit(() -> onProbeResult(state, output, error)));
+        }
+    }
+
+    /**
+     * 安静本身不说明问题 (没有玩家时服务器本来就不输出)，还要有别的迹象:
+     * 最后一次输出之后有命令超时，或者这段时间里进程树一点 CPU 都没用。
+     */
+    private boolean looksHung(State state) {
+        long since = state.lastOutput;
+        return commandExecutor.getLastTimeout(state.sessionName) > since || resourceMonitor.isStalled(state.sessionName, since);
+    }
+
+    private void onProbeResult(State state, String output, Throwable error) {
+        synchronized (state) {
+            state.probing = false;
+            boolean answered = error == null && output.lines().anyMatch(CommandExecutor.PLAYERS_LISTED);
+            if (answered || state.status != null || state.stopRequested || state.buffer.isClosed()) {
+                // 正常回应，或者期间已经退出 (由输出流结束事件处理)
+                return;
+            }
+            state.hung = true;
+        }
+        System.err.println("服务器 '" + state.sessionName + "' 在 " + probeTimeoutMillis + " 毫秒内没有响应，结束会话后重启。");
+        try {
+            processBackend.kill(state.sessionName);
+        } catch (IOException e) {
+            System.err.println("结束卡死的会话 '" + state.sessionName + "' 失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 会话结束后输出流随之结束，接着走崩溃处理
+    }
+
+    // ===================================================================================
+    // 崩溃处理 & 重启
+    // ===================================================================================
+
+    private void crashed(State state, String reason, String kind, List<String> lines) {
+        String report = writeReport(state.sessionName, reason, lines);
+        meterRegistry.counter("tmodloader.supervisor.crashes", "reason", kind).increment();
+        System.err.println("服务器 '" + state.sessionName + "' " + reason + "，最后的控制台输出已保存到 " + report);
+
+        GameConfig config = provisioningService.getLaunchConfig(state.sessionName);
+        long now = System.currentTimeMillis();
+        synchronized (state) {
+            state.lastCrashAt = now;
+            state.lastCrashReason = reason;
+            state.lastCrashReport = report;
+            state.lastLines = List.copyOf(lines.subList(Math.max(0, lines.size() - SUMMARY_LINES), lines.size()));
+            while (!state.crashTimes.isEmpty() && now - state.crashTimes.peekFirst() > crashLoopWindowMillis) {
+                state.crashTimes.pollFirst();
+            }
+            state.crashTimes.addLast(now);
+
+            if (config == null) {
+                state.status = CRASHED;
+                stateStore.recordLifecycle(StateStore.CRASHED_EVENT, state.sessionName, reason);
+                System.err.println("服务器 '" + state.sessionName + "' 不是由本面板创建的，没有启动配置，不自动重启。");
+                return;
+            }
+            if (state.crashTimes.size() > maxRestarts) {
+                state.status = CRASH_LOOP;
+                stateStore.recordLifecycle(StateStore.CRASH_LOOP_EVENT, state.sessionName, reason);
+                meterRegistry.counter("tmodloader.supervisor.restarts", "outcome", "crash-loop").increment();
+                System.err.println("服务器 '" + state.sessionName + "' 在 " + crashLoopWindowMillis / 1000 + " 秒内崩溃了 "
+                        + state.crashTimes.size() + " 次，不再自动重启，请检查崩溃报告。");
+                return;
+            }
+            // 5s, 10s, 20s ... 直到上限
+            long delay = Math.min(backoffMaxMillis, backoffInitialMillis << Math.min(20, state.crashTimes.size() - 1));
+            state.status = RESTARTING;
+            stateStore.recordLifecycle(StateStore.CRASHED_EVENT, state.sessionName, reason + "，" + delay / 1000 + " 秒后重启");
+            state.nextRestartAt = now + delay;
+            try {
+                state.pendingRestart = scheduler.schedule(() -> restart(state, config), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+            System.out.println("服务器 '" + state.sessionName + "' 将在 " + delay / 1000 + " 秒后自动重启 (第 "
+                    + state.crashTimes.size() + " 次)。");
+        }
+    }
+
+    private void attachRunning() {
+        try {
+            List<String> sessions = controlService.getServerList();
+            if (!sessions.isEmpty()) {
+                System.out.println("开始守护已在运行的服务器: " + sessions);
+            }
+        } catch (IOException e) {
+            System.err.println("列出已在运行的服务器失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 面板 (或整台机器) 重启后，把状态库里标为 LOST 的服务器按原配置重新创建。
+     */
+    private void restoreLost() {
+        for (String sessionName : stateStore.getSessions(StateStore.LOST)) {
+            GameConfig config = stateStore.getServerConfig(sessionName);
+            try {
+                ProvisionJob job = provisioningService.submit(copyOf(config), tmodloaderPaths.getModPath(), tmodloaderPaths.getWorldPath());
+                System.out.println("恢复服务器 '" + sessionName + "'，创建任务 " + job.getId());
+            } catch (RuntimeException e) {
+                System.err.println("恢复服务器 '" + sessionName + "' 失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private void restart(State state, GameConfig config) {
+        synchronized (state) {
+            if (state.stopRequested || !RESTARTING.equals(state.status)) {
+                return;
+            }
+            state.pendingRestart = null;
+            state.restarts++;
+        }
+        ProvisionJob job;
+        try {
+            // 端口用上次分到的，玩家不用换地址
+            job = provisioningService.submit(copyOf(config), tmodloaderPaths.getModPath(), tmodloaderPaths.getWorldPath());
+        } catch (RuntimeException e) {
+            crashed(state, "重启失败: " + e.getMessage(), "restart-failed", List.of());
+            return;
+        }
+        synchronized (state) {
+            state.restartJobId = job.getId();
+        }
+        job.whenFinished().thenAccept(finished -> submit(() -> {
+            boolean succeeded = ProvisionJob.SUCCEEDED.equals(finished.getStatus());
+            meterRegistry.counter("tmodloader.supervisor.restarts", "outcome", succeeded ? "success" : "failure").increment();
+            if (succeeded) {
+                System.out.println("服务器 '" + state.sessionName + "' 已自动重启。");
+            } else {
+                crashed(state, "重启失败: " + finished.getError(), "restart-failed", List.of());
+            }
+        }));
+    }
+
+    private String writeReport(String sessionName, String reason, List<String> lines) {
+        LocalDateTime now = LocalDateTime.now();
+        Path file = Paths.get(tmodloaderPaths.getCrashReportPath(), sessionName + "-" + REPORT_TIME.format(now) + ".log");
+        List<String> content = new ArrayList<>();
+        content.add("# 会话: " + sessionName);
+        content.add("# 时间: " + now);
+        content.add("# 原因: " + reason);
+        content.add("# 最后 " + lines.size() + " 行控制台输出:");
+        content.addAll(lines);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, content, StandardCharsets.UTF_8);
+            return file.toString();
+        } catch (IOException e) {
+            System.err.println("写入崩溃报告失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void submit(Runnable task) {
+        if (shuttingDown) {
+            return;
+        }
+        try {
+            scheduler.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // 面板正在退出
+        }
+    }
+
+    private static GameConfig copyOf(GameConfig config) {
+        GameConfig copy = new GameConfig();
+        copy.setWorld(config.getWorld());
+        copy.setMods(config.getMods());
+        copy.setMaxPlayers(config.getMaxPlayers());
+        copy.setPort(config.getPort());
+        copy.setPassword(config.getPassword());
+        return copy;
+    }
+
+    // ===================================================================================
+    // 每个服务器的状态
+    // ===================================================================================
+
+    private static class State {
+        final String sessionName;
+        // 读取线程上更新
+        volatile long lastOutput;
+        volatile boolean started;
+        // 以下由 synchronized (this) 保护
+        ConsoleBuffer buffer;
+        // 为 null 表示正在运行 (started 区分是否已启动完成)
+        String status;
+        boolean stopRequested;
+        boolean probing;
+        boolean hung;
+        final Deque<Long> crashTimes = new ArrayDeque<>();
+        int restarts;
+        long lastCrashAt;
+        String lastCrashReason;
+        String lastCrashReport;
+        List<String> lastLines;
+        long nextRestartAt;
+        String restartJobId;
+        ScheduledFuture<?> pendingRestart;
+
+        State(String sessionName) {
+            this.sessionName = sessionName;
+        }
+
+        void cancelRestart() {
+            if (pendingRestart != null) {
+                pendingRestart.cancel(false);
+                pendingRestart = null;
+            }
+        }
+
+        synchronized SupervisedServer toDto(boolean restartable, long window) {
+            SupervisedServer dto = new SupervisedServer();
+            dto.setSessionName(sessionName);
+            dto.setStatus(status != null ? status : started ? RUNNING : STARTING);
+            dto.setRestartable(restartable);
+            long cutoff = System.currentTimeMillis() - window;
+            dto.setRecentCrashes((int) crashTimes.stream().filter(at -> at >= cutoff).count());
+            dto.setRestarts(restarts);
+            dto.setLastCrashAt(lastCrashAt);
+            dto.setLastCrashReason(lastCrashReason);
+            dto.setLastCrashReport(lastCrashReport);
+            dto.setLastLines(lastLines);
+            dto.setNextRestartAt(RESTARTING.equals(status) ? nextRestartAt : 0);
+            dto.setRestartJobId(restartJobId);
+            return dto;
+        }
+    }
+}
@@ -2,14 +2,20 @@ package com.tModLoader_Board.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -22,6 +28,21 @@ public class StartService {
     @Autowired
     private ControlService controlService;
 
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    @Autowired
+    private ModCatalog modCatalog;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * 启动 tModLoader 服务器。
      *
@@ -29,9 +50,10 @@ public class StartService {
      * @param maxPlayers 最大玩家数。
      * @param port       服务器端口。
      * @param password   服务器密码，可为 null 或空。
-     * @return           成功启动或已在运行时，返回 tmux 会话名。启动失败则返回 null。
+     * @param modPath    这个服务器的模组目录 (见 {@link ModProfileService#prepare})。
+     * @return           成功启动或已在运行时，返回会话名。启动失败则返回 null。
      */
-    public String startServer(String world, String maxPlayers, String port, String password) throws IOException, InterruptedException {
+    public String startServer(String world, String maxPlayers, String port, String password, String modPath) throws IOException, InterruptedException {
         String os = System.getProperty("os.name").toLowerCase();
 
         if (os.contains("win")) {
@@ -47,7 +69,7 @@ public class StartService {
             // --- Linux 平台的启动逻辑 ---
 
             // 【重点】根据世界名生成一个干净、唯一的会话名。
-            String sessionName = "tmodloader-" + world.substring(0, world.length() - 4).replaceAll("[^a-zA-Z0-9_.-]", "");
+            String sessionName = sessionNameFor(world);
 
             // 【重点】调用 ControlService 来检查会话是否已存在。
             if (controlService.isSessionRunning(sessionName)) {
@@ -55,16 +77,9 @@ public class StartService {
                 return sessionName; // 返回已存在的会话名
             }
 
-            List<String> command = new ArrayList<>();
-            command.add("tmux");
-            command.add("new-session");
-            command.add("-d");
-                command.add("-s");
-            command.add(sessionName);
-            command.add("/home/abc/tmodloader/start-tModLoaderServer.sh");
-            command.add("-nosteam");
+            List<String> command = baseCommand(modPath);
             command.add("-world");
-            command.add("/home/abc/.local/share/Terraria/tModLoader/Worlds/" + world);
+            command.add(tmodloaderPaths.getWorldPath() + world);
             command.add("-maxplayers");
             command.add(maxPlayers);
             command.add("-port");
@@ -74,20 +89,50 @@ public class StartService {
                 command.add(password);
             }
 
-            Process process = new ProcessBuilder(command).start();
-            boolean finished = process.waitFor(5, TimeUnit.SECONDS);
-
-            if (finished && process.exitValue() == 0) {
-                System.out.println("服务器已在 tmux 会话 '" + sessionName + "' 中成功启动。");
+            Timer.Sample sample = Timer.start(meterRegistry);
+            boolean started = processBackend.start(sessionName, command);
+            sample.stop(meterRegistry.timer("tmodloader.server.start", "outcome", started ? "success" : "failure"));
+            if (started) {
+                System.out.println("服务器已在会话 '" + sessionName + "' 中成功启动。");
+                // 从一开始就把控制台输出接进缓冲区，启动日志也不会漏掉
+                consoleStreamService.attach(sessionName);
                 // 【重点】成功后返回会话名，调用者可以保存这个名字，并用它来操作 ControlService。
                 return sessionName;
             } else {
-                System.err.println("启动 tmux 会话失败！");
+                System.err.println("启动服务器会话失败！");
                 return null; // 启动失败
             }
         }
     }
 
+    /**
+     * 不指定世界启动一个服务器: 它加载完 modPath 里的模组后停在 "Choose World" 菜单等待输入，供热备池使用。
+     */
+    public boolean startWithoutWorld(String sessionName, String modPath) throws IOException, InterruptedException {
+        if (!processBackend.start(sessionName, baseCommand(modPath))) {
+            return false;
+        }
+        consoleStreamService.attach(sessionName);
+        return true;
+    }
+
+    private List<String> baseCommand(String modPath) {
+        List<String> command = new ArrayList<>();
+        command.add(tmodloaderPaths.getServerScript());
+        command.add("-nosteam");
+        // 每个服务器指向自己的模组目录，读的是那里的 enabled.json，不再共用 Mods/enabled.json
+        command.add("-modpath");
+        command.add(modPath);
+        return command;
+    }
+
+    /**
+     * 根据世界文件名生成一个干净、唯一的会话名，例如 "My World.wld" -> "tmodloader-MyWorld"。
+     */
+    public String sessionNameFor(String world) {
+        return "tmodloader-" + world.substring(0, world.length() - 4).replaceAll("[^a-zA-Z0-9_.-]", "");
+    }
+
     public void enableMods(List<String> modFilenames, String enabledJsonPath) throws IOException {
 
     // --- 步骤 1: 将文件名列表转换为内部模组名列表 ---
@@ -97,8 +142,9 @@ public class StartService {
         modFilenames = new ArrayList<>();
     }
 
+    // 内部名以 .tmod 文件头为准，文件被改过名也能正确启用
     List<String> modNames = modFilenames.stream()
-            .map(filename -> filename.replaceAll("\\.tmod$", ""))
+            .map(modCatalog::internalNameOf)
             .collect(Collectors.toList());
 
     System.out.println("处理后，准备写入文件的模组名: " + modNames);
@@ -128,8 +174,21 @@ public class StartService {
     //   "BossChecklist",
     //   "CalamityModMusic"
     // ]
+    // 先写临时文件再原子改名，服务器读到的要么是旧内容要么是完整的新内容；内容没变时不重写
     try {
-        objectMapper.writeValue(modsConfigFile, modNames);
+        byte[] content = objectMapper.writeValueAsBytes(modNames);
+        Path target = modsConfigFile.toPath().toAbsolutePath();
+        if (Files.isRegularFile(target) && Arrays.equals(Files.readAllBytes(target), content)) {
+            System.out.println("模组配置未变化，无需重写: " + enabledJsonPath);
+            return;
+        }
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, content);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
         System.out.println("成功将 " + modNames.size() + " 个模组名以【正确格式】写入到 " + enabledJsonPath);
     } catch (IOException e) {
         System.err.println("写入 enabled.json 文件时发生严重错误: " + e.getMessage());
@@ -0,0 +1,458 @@
+package com.tModLoader_Board.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import com.tModLoader_Board.DTO.GameConfig;
+import com.tModLoader_Board.DTO.ServerDefinition;
+import com.tModLoader_Board.DTO.ServerEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 【职责】: 面板自己的持久状态: 每个服务器的启动配置和最近状态、服务器生命周期事件、管理操作记录 (踢人、封禁、通报、停服)。
+ * 所有修改都作为一条记录追加到 State 目录下的内存映射日志里 (见 {@link AppendOnlyLog})，内存里保存回放后的结果，读取不碰磁盘。
+ * 服务器状态由事件推导 (launched -> RUNNING, stopped -> STOPPED ...)，所以每个事件只写一条记录。
+ * 启动时回放日志重建内存状态，再和实际运行的会话对一次账: 记录为运行中但会话已经不在的标为 LOST，
+ * 不在记录里 (或记录为已停止) 却在运行的会话记一条 discovered。
+ * 已被覆盖的记录超过有效记录数的一倍时定期压缩，超出 event-retention 的旧事件在压缩时丢弃。
+ * State 目录打不开 (没有权限、磁盘满……) 时不影响面板启动，只在内存里记录，重启后丢失。
+ */
+@Service
+public class StateStore {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String STOPPED = "STOPPED";
+    public static final String CRASHED = "CRASHED";
+    public static final String CRASH_LOOP = "CRASH_LOOP";
+    public static final String LOST = "LOST";
+
+    // 生命周期事件类型
+    public static final String LAUNCHED = "launched";
+    public static final String STOPPED_EVENT = "stopped";
+    public static final String CRASHED_EVENT = "crashed";
+    public static final String CRASH_LOOP_EVENT = "crash-loop";
+    public static final String LOST_EVENT = "lost";
+    public static final String DISCOVERED = "discovered";
+
+    private static final byte SERVER_PUT = 1;
+    private static final byte SERVER_REMOVE = 2;
+    private static final byte EVENT = 3;
+    private static final String SESSION_PREFIX = "tmodloader-";
+    private static final long MIN_COMPACT_RECORDS = 1024;
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.state.segment-size-mb:4}")
+    private int segmentSizeMb;
+
+    @Value("${tmodloader.state.sync:true}")
+    private boolean sync;
+
+    @Value("${tmodloader.state.event-retention:10000}")
+    private int eventRetention;
+
+    // 以下全部由 lock 保护
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, StoredServer> servers = new HashMap<>();
+    private final Deque<ServerEvent> events = new ArrayDeque<>();
+    private long nextEventId = 1;
+    // 为 null 表示日志打不开，只在内存里记录
+    private AppendOnlyLog log;
+
+    @PostConstruct
+    public void init() {
+        long started = System.nanoTime();
+        lock.lock();
+        try {
+            AppendOnlyLog opened = new AppendOnlyLog(Paths.get(tmodloaderPaths.getStatePath()), segmentSizeMb * 1024 * 1024, sync);
+            opened.open(this::apply);
+            log = opened;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("打开状态日志 " + tmodloaderPaths.getStatePath() + " 失败，本次运行的状态只保存在内存里: " + e);
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("状态恢复完成: " + servers.size() + " 个服务器、" + events.size() + " 条事件 (日志 "
+                + logRecords() + " 条记录)，用时 " + (System.nanoTime() - started) / 1_000_000 + " ms");
+
+        reconcile();
+        controlService.addStopListener(sessionName -> recordLifecycle(STOPPED_EVENT, sessionName, null));
+        meterRegistry.gauge("tmodloader.state.log.records", this, StateStore::logRecords);
+        meterRegistry.gauge("tmodloader.state.log.segments", this, store -> store.log == null ? 0 : store.log.getSegments());
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 服务器定义
+    // ===================================================================================
+
+    /**
+     * 记下 (或更新) 启动该会话用的配置。端口应该是实际分到的端口。
+     */
+    public void saveServer(String sessionName, GameConfig config) {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            StoredServer previous = servers.get(sessionName);
+            StoredServer server = new StoredServer();
+            server.sessionName = sessionName;
+            server.config = config;
+            server.status = previous != null ? previous.status : null;
+            server.createdAt = previous != null ? previous.createdAt : now;
+            server.updatedAt = now;
+            append(SERVER_PUT, objectMapper.writeValueAsBytes(server));
+        } catch (IOException e) {
+            System.err.println("保存服务器 '" + sessionName + "' 的配置失败: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 上一次启动该会话用的配置；不是由本面板创建的会话返回 null。
+     */
+    public GameConfig getServerConfig(String sessionName) {
+        lock.lock();
+        try {
+            StoredServer server = servers.get(sessionName);
+            return server == null ? null : server.config;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 忘掉一个服务器的定义 (事件记录保留)。
+     */
+    public boolean removeServer(String sessionName) {
+        lock.lock();
+        try {
+            if (!servers.containsKey(sessionName)) {
+                return false;
+            }
+            append(SERVER_REMOVE, sessionName.getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException("删除服务器 '" + sessionName + "' 失败: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 处于指定状态的服务器的会话名。
+     */
+    public List<String> getSessions(String status) {
+        lock.lock();
+        try {
+            List<String> result = new ArrayList<>();
+            for (StoredServer server : servers.values()) {
+                if (status.equals(server.status)) {
+                    result.add(server.sessionName);
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<ServerDefinition> getServers() {
+        List<ServerDefinition> result = new ArrayList<>();
+        lock.lock();
+        try {
+            for (StoredServer server : servers.values()) {
+                result.add(server.toDto());
+            }
+        } finally {
+            lock.unlock();
+        }
+        result.sort(Comparator.comparing(ServerDefinition::getSessionName));
+        return result;
+    }
+
+    // ===================================================================================
+    // 事件
+    // ===================================================================================
+
+    /**
+     * 记一条服务器生命周期事件，同时更新该服务器的状态。
+     */
+    public void recordLifecycle(String type, String sessionName, String detail) {
+        record(ServerEvent.LIFECYCLE, type, sessionName, null, detail);
+    }
+
+    /**
+     * 记一条管理操作。actor 为发起请求的客户端地址。
+     */
+    public void recordAction(String type, String sessionName, String actor, String detail) {
+        record(ServerEvent.ADMIN, type, sessionName, actor, detail);
+    }
+
+    /**
+     * 最近的事件 (新的在前)，sessionName 为空时返回所有服务器的。
+     */
+    public List<ServerEvent> getEvents(String sessionName, int limit) {
+        List<ServerEvent> result = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<ServerEvent> it = events.descendingIterator();
+            while (it.hasNext() && result.size() < limit) {
+                ServerEvent event = it.next();
+                if (sessionName == null || sessionName.isEmpty() || sessionName.equals(event.getSessionName())) {
+                    result.add(event);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    private void record(String category, String type, String sessionName, String actor, String detail) {
+        lock.lock();
+        try {
+            ServerEvent event = new ServerEvent();
+            event.setId(nextEventId);
+            event.setTime(System.currentTimeMillis());
+            event.setCategory(category);
+            event.setType(type);
+            event.setSessionName(sessionName);
+            event.setActor(actor);
+            event.setDetail(detail);
+            append(EVENT, objectMapper.writeValueAsBytes(event));
+        } catch (IOException e) {
+            // 记录失败不影响操作本身
+            System.err.println("记录事件 " + type + " (" + sessionName + ") 失败: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 日志
+    // ===================================================================================
+
+    /**
+     * 先写日志再改内存，内存里的状态和回放日志得到的完全一致。调用时必须持有 lock。
+     */
+    private void append(byte type, byte[] payload) throws IOException {
+        if (log != null) {
+            log.append(type, payload);
+        }
+        apply(type, ByteBuffer.wrap(payload));
+        meterRegistry.counter("tmodloader.state.appends", "type", typeName(type)).increment();
+    }
+
+    private void apply(byte type, ByteBuffer payload) throws IOException {
+        switch (type) {
+            case SERVER_PUT -> {
+                StoredServer server = objectMapper.readValue(new ByteBufferBackedInputStream(payload), StoredServer.class);
+                servers.put(server.sessionName, server);
+            }
+            case SERVER_REMOVE -> servers.remove(StandardCharsets.UTF_8.decode(payload).toString());
+            case EVENT -> {
+                ServerEvent event = objectMapper.readValue(new ByteBufferBackedInputStream(payload), ServerEvent.class);
+                nextEventId = Math.max(nextEventId, event.getId() + 1);
+                events.addLast(event);
+                while (events.size() > eventRetention) {
+                    events.pollFirst();
+                }
+                StoredServer server = servers.get(event.getSessionName());
+                String status = statusAfter(event);
+                if (server != null && status != null) {
+                    server.status = status;
+                    server.updatedAt = event.getTime();
+                }
+            }
+            // 更新版本写入的未知记录类型，跳过
+            default -> {
+            }
+        }
+    }
+
+    private static String statusAfter(ServerEvent event) {
+        if (!ServerEvent.LIFECYCLE.equals(event.getCategory())) {
+            return null;
+        }
+        return switch (event.getType()) {
+            case LAUNCHED, DISCOVERED -> RUNNING;
+            case STOPPED_EVENT -> STOPPED;
+            case CRASHED_EVENT -> CRASHED;
+            case CRASH_LOOP_EVENT -> CRASH_LOOP;
+            case LOST_EVENT -> LOST;
+            default -> null;
+        };
+    }
+
+    /**
+     * 被覆盖的记录 (旧的服务器配置、超出保留数的事件) 多于有效记录时，把当前状态写成新的基准段。
+     * 事件写在服务器之前，回放时事件推导出的状态会被随后的服务器记录覆盖成压缩时的状态。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.state.compact-check-ms:60000}")
+    public void compact() {
+        lock.lock();
+        try {
+            if (log == null) {
+                return;
+            }
+            long live = servers.size() + events.size();
+            if (log.getRecords() < MIN_COMPACT_RECORDS || log.getRecords() <= 2 * live) {
+                return;
+            }
+            long started = System.nanoTime();
+            long before = log.getRecords();
+            List<AppendOnlyLog.Entry> entries = new ArrayList<>();
+            for (ServerEvent event : events) {
+                entries.add(new AppendOnlyLog.Entry(EVENT, objectMapper.writeValueAsBytes(event)));
+            }
+            for (StoredServer server : servers.values()) {
+                entries.add(new AppendOnlyLog.Entry(SERVER_PUT, objectMapper.writeValueAsBytes(server)));
+            }
+            log.compact(entries);
+            meterRegistry.counter("tmodloader.state.compactions").increment();
+            System.out.println("状态日志已压缩: " + before + " -> " + entries.size() + " 条记录，用时 "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("压缩状态日志失败: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long logRecords() {
+        return log == null ? 0 : log.getRecords();
+    }
+
+    private static String typeName(byte type) {
+        return switch (type) {
+            case SERVER_PUT -> "server-put";
+            case SERVER_REMOVE -> "server-remove";
+            case EVENT -> "event";
+            default -> "unknown";
+        };
+    }
+
+    // ===================================================================================
+    // 启动对账
+    // ===================================================================================
+
+    /**
+     * 只列一次会话，和回放得到的状态比较。
+     */
+    private void reconcile() {
+        Set<String> live;
+        try {
+            live = new HashSet<>(processBackend.listSessions());
+        } catch (IOException e) {
+            System.err.println("列出会话失败，跳过状态对账: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<String> lost = new ArrayList<>();
+        List<String> discovered = new ArrayList<>();
+        lock.lock();
+        try {
+            for (StoredServer server : servers.values()) {
+                if (RUNNING.equals(server.status) && !live.contains(server.sessionName)) {
+                    lost.add(server.sessionName);
+                }
+            }
+            for (String sessionName : live) {
+                if (!sessionName.startsWith(SESSION_PREFIX)) {
+                    continue;
+                }
+                StoredServer server = servers.get(sessionName);
+                if (server == null || !RUNNING.equals(server.status)) {
+                    discovered.add(sessionName);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (String sessionName : lost) {
+            recordLifecycle(LOST_EVENT, sessionName, "面板启动时会话已经不在了");
+        }
+        for (String sessionName : discovered) {
+            recordLifecycle(DISCOVERED, sessionName, getServerConfig(sessionName) == null ? "不是由本面板创建的会话" : null);
+        }
+        if (!lost.isEmpty() || !discovered.isEmpty()) {
+            System.out.println("状态对账: " + lost.size() + " 个服务器已不在运行，发现 " + discovered.size() + " 个运行中的会话。");
+        }
+    }
+
+    /**
+     * 日志里保存的服务器记录，包括密码 (重启时要用)；对外只给 {@link ServerDefinition}。
+     */
+    static class StoredServer {
+        public String sessionName;
+        public GameConfig config;
+        public String status;
+        public long createdAt;
+        public long updatedAt;
+
+        ServerDefinition toDto() {
+            ServerDefinition dto = new ServerDefinition();
+            dto.setSessionName(sessionName);
+            if (config != null) {
+                dto.setWorld(config.getWorld());
+                dto.setMods(config.getMods());
+                dto.setMaxPlayers(config.getMaxPlayers());
+                dto.setPort(config.getPort());
+                dto.setPasswordProtected(config.getPassword() != null && !config.getPassword().isEmpty());
+            }
+            dto.setStatus(status);
+            dto.setCreatedAt(createdAt);
+            dto.setUpdatedAt(updatedAt);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.ModInfo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 【职责】: 只读取 .tmod 的文件头、文件清单和 Info 条目，不碰其余内容。
+ * 所有读取都是 FileChannel 的定位读，几百 MB 的模组也只读几 KB。
+ *
+ * 文件布局 (整数均为小端，字符串为 .NET BinaryWriter 格式: 7 位变长长度 + UTF-8):
+ * "TMOD" | tML 版本 | 20 字节 SHA-1 | 256 字节签名 | int32 数据长度 |
+ * 模组名 | 模组版本 | int32 文件数 | 每个文件 (路径, int32 原始长度, int32 压缩后长度) | 按清单顺序排列的文件内容。
+ * 压缩长度与原始长度不同的条目是 raw deflate。
+ */
+public final class TmodParser {
+
+    private static final byte[] MAGIC = {'T', 'M', 'O', 'D'};
+    private static final int HASH_LENGTH = 20;
+    private static final int SIGNATURE_LENGTH = 256;
+    private static final int WINDOW_SIZE = 16 * 1024;
+    private static final int MAX_FILE_COUNT = 1_000_000;
+    private static final int MAX_INFO_LENGTH = 1024 * 1024;
+
+    private TmodParser() {
+    }
+
+    public static ModInfo parse(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            PositionalReader in = new PositionalReader(channel, WINDOW_SIZE);
+            for (byte b : MAGIC) {
+                if (in.readByte() != b) {
+                    throw new IOException("不是 .tmod 文件: " + file.getFileName());
+                }
+            }
+
+            ModInfo info = new ModInfo();
+            info.setFileName(file.getFileName().toString());
+            info.setSize(attributes.size());
+            info.setLastModified(attributes.lastModifiedTime().toMillis());
+            info.setLoaderVersion(in.readString());
+            info.setHash(HexFormat.of().formatHex(in.readBytes(HASH_LENGTH)));
+            in.skip(SIGNATURE_LENGTH);
+            in.readInt();
+            info.setName(in.readString());
+            info.setVersion(in.readString());
+
+            int fileCount = in.readInt();
+            if (fileCount < 0 || fileCount > MAX_FILE_COUNT) {
+                throw new IOException("文件清单损坏: " + file.getFileName());
+            }
+            long contentOffset = 0;
+            long infoOffset = -1;
+            int infoLength = 0;
+            int infoCompressedLength = 0;
+            for (int i = 0; i < fileCount; i++) {
+                String path = in.readString();
+                int length = in.readInt();
+                int compressedLength = in.readInt();
+                if (infoOffset < 0 && "Info".equals(path)) {
+                    infoOffset = contentOffset;
+                    infoLength = length;
+                    infoCompressedLength = compressedLength;
+                }
+                contentOffset += compressedLength;
+            }
+
+            if (infoOffset >= 0 && infoLength <= MAX_INFO_LENGTH && infoCompressedLength <= MAX_INFO_LENGTH) {
+                ByteBuffer raw = ByteBuffer.allocate(infoCompressedLength);
+                readFully(channel, raw, in.position() + infoOffset);
+                byte[] properties = infoLength == infoCompressedLength
+                        ? raw.array()
+                        : inflate(raw.array(), infoLength);
+                readProperties(new PositionalReader(ByteBuffer.wrap(properties)), info);
+            }
+            return info;
+        }
+    }
+
+    /**
+     * 解析 Info 条目 (tModLoader 的 BuildProperties)。遇到不认识的标签就停下，已读到的字段仍然有效。
+     */
+    private static void readProperties(PositionalReader in, ModInfo info) throws IOException {
+        List<String> dependencies = new ArrayList<>();
+        List<String> weakDependencies = new ArrayList<>();
+        info.setDependencies(dependencies);
+        info.setWeakDependencies(weakDependencies);
+        try {
+            String tag;
+            while (!(tag = in.readString()).isEmpty()) {
+                switch (tag) {
+                    case "modReferences" -> readModReferences(in, dependencies);
+                    case "weakReferences" -> readModReferences(in, weakDependencies);
+                    case "dllReferences", "sortAfter", "sortBefore" -> readList(in);
+                    case "author" -> info.setAuthor(in.readString());
+                    case "displayName" -> info.setDisplayName(in.readString());
+                    case "version", "homepage", "description", "eacPath", "modSource", "buildVersion" -> in.readString();
+                    case "side" -> in.readByte();
+                    case "noCompile", "!hideCode", "!hideResources", "includeSource", "beta",
+                         "!playableOnPreview", "translationMod" -> {
+                    }
+                    default -> {
+                        return;
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // 清单被截断时保留已读到的内容
+        }
+    }
+
+    private static void readModReferences(PositionalReader in, List<String> names) throws IOException {
+        for (String reference : readList(in)) {
+            int at = reference.indexOf('@');
+            names.add(at < 0 ? reference : reference.substring(0, at));
+        }
+    }
+
+    private static List<String> readList(PositionalReader in) throws IOException {
+        List<String> items = new ArrayList<>();
+        String item;
+        while (!(item = in.readString()).isEmpty()) {
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static byte[] inflate(byte[] compressed, int length) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] result = new byte[length];
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int read = inflater.inflate(result, n, length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != length) {
+                throw new IOException("Info 条目解压后长度不符");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Info 条目解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            position += n;
+        }
+        buffer.flip();
+    }
+}
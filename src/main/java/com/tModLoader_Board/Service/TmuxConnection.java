@@ -0,0 +1,366 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 【职责】: 维护一个常驻的 tmux 控制模式 (tmux -C) 客户端。
+ * 所有 tmux 指令都写进这一个客户端的标准输入，回复按 %begin / %end 块依次读回，
+ * 这样 send-keys、has-session、ls 等操作就不用每次都 fork 一个新的 tmux 进程。
+ * 如果控制模式连不上 (例如没有安装 tmux)，则自动退回到逐条 fork 的旧方式。
+ */
+@Component
+public class TmuxConnection {
+
+    /** 控制客户端挂靠的会话名，故意不以 "tmodloader-" 开头，以免出现在服务器列表里。 */
+    private static final String CONTROL_SESSION = "board-control";
+    private static final long COMMAND_TIMEOUT_SECONDS = 5;
+    private static final long RECONNECT_INTERVAL_MILLIS = 30_000;
+
+    /**
+     * 一条 tmux 指令的执行结果。
+     */
+    public static class TmuxResult {
+        private final boolean success;
+        private final List<String> lines;
+
+        public TmuxResult(boolean success, List<String> lines) {
+            this.success = success;
+            this.lines = lines;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+    }
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 同一台机器上跑多个节点时，每个节点用自己的 tmux 服务器 (tmux -L)，会话互不可见
+    @Value("${tmodloader.tmux.socket:}")
+    private String socketName;
+
+    // 用 ReentrantLock 而不是 synchronized: 持锁等待握手时不会把虚拟线程钉在载体线程上
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 当前连接上等待回复的指令队列。tmux 严格按提交顺序回复，所以按 FIFO 一一对应即可。
+    // 每次连接换一个新队列: 旧连接的读取线程即使还在读残留的回复，也只会交给旧连接上的指令。由 writeLock 保护
+    private ConcurrentLinkedQueue<CompletableFuture<TmuxResult>> pending = new ConcurrentLinkedQueue<>();
+    private final List<Consumer<String>> notificationListeners = new CopyOnWriteArrayList<>();
+
+    private Process process;
+    private BufferedWriter writer;
+    private volatile boolean connected = false;
+    private long lastConnectAttempt = 0;
+
+    // ===================================================================================
+    // 对外接口
+    // ===================================================================================
+
+    public String getSocketName() {
+        return socketName;
+    }
+
+    /**
+     * 执行一条 tmux 指令，参数与命令行调用 tmux 时完全相同 (不含开头的 "tmux")。
+     * 例如 execute("has-session", "-t", "tmodloader-abc")。
+     */
+    public TmuxResult execute(String... args) throws IOException, InterruptedException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TmuxResult result = null;
+        try {
+            result = dispatch(args);
+            return result;
+        } finally {
+            sample.stop(meterRegistry.timer("tmodloader.tmux.command",
+                    "command", args.length > 0 ? args[0] : "",
+                    "outcome", result != null && result.isSuccess() ? "success" : "failure"));
+        }
+    }
+
+    /**
+     * 订阅控制模式推送的通知行 (例如 "%sessions-changed"、"%exit")。
+     */
+    public void addNotificationListener(Consumer<String> listener) {
+        notificationListeners.add(listener);
+    }
+
+    @PreDestroy
+    public void close() {
+        writeLock.lock();
+        try {
+            disconnect();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 控制模式连接管理
+    // ===================================================================================
+
+    /**
+     * 优先走控制连接，不可用或写入失败时退回 fork (fork 次数记在 tmodloader.process.forks 里)。
+     * 指令一旦写进了控制连接就不再用 fork 重试: tmux 可能已经执行过它，send-keys 之类的指令不能执行两次。
+     */
+    private TmuxResult dispatch(String[] args) throws IOException, InterruptedException {
+        CompletableFuture<TmuxResult> future = submit(args);
+        if (future == null) {
+            return executeByFork(args);
+        }
+        try {
+            return future.get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // 回复迟早会到，届时会被对应的 future 吸收，队列顺序不会错乱
+            System.err.println("tmux 指令超时: " + String.join(" ", args));
+            return new TmuxResult(false, new ArrayList<>());
+        } catch (ExecutionException e) {
+            // 指令已经写出去，连接在等回复时断开了: 不知道有没有执行，按失败返回，下一条指令会重新连接或走 fork
+            System.err.println("等待 tmux 回复时连接断开: " + String.join(" ", args));
+            return new TmuxResult(false, new ArrayList<>());
+        }
+    }
+
+    /**
+     * 把指令写入控制客户端并返回等待回复的 future；连接不可用时返回 null。
+     */
+    private CompletableFuture<TmuxResult> submit(String[] args) throws InterruptedException {
+        writeLock.lock();
+        try {
+            if (!connected && !connect()) {
+                return null;
+            }
+            CompletableFuture<TmuxResult> future = new CompletableFuture<>();
+            pending.add(future);
+            try {
+                writer.write(toCommandLine(args));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("写入 tmux 控制连接失败: " + e.getMessage());
+                disconnect();
+                return null;
+            }
+            return future;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 启动控制模式客户端，并用一条带随机标记的 display-message 完成同步，
+     * 跳过 tmux 在连接建立时自己输出的那些块。调用方必须持有 writeLock。
+     */
+    private boolean connect() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        if (now - lastConnectAttempt < RECONNECT_INTERVAL_MILLIS) {
+            return false;
+        }
+        lastConnectAttempt = now;
+
+        try {
+            List<String> command = baseCommand();
+            command.addAll(List.of("-C", "new-session", "-A", "-s", CONTROL_SESSION));
+            meterRegistry.counter("tmodloader.process.forks", "reason", "tmux-control").increment();
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            System.err.println("无法启动 tmux 控制模式，将退回逐条 fork 的方式: " + e.getMessage());
+            return false;
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        String marker = "board-sync-" + System.nanoTime();
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        Process current = process;
+        ConcurrentLinkedQueue<CompletableFuture<TmuxResult>> queue = new ConcurrentLinkedQueue<>();
+        pending = queue;
+        processExecutor.execute(() -> readLoop(current, queue, marker, synced));
+
+        try {
+            writer.write(toCommandLine(new String[]{"display-message", "-p", marker}));
+            writer.write('\n');
+            writer.flush();
+            synced.get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            System.err.println("tmux 控制模式握手失败，将退回逐条 fork 的方式: " + e);
+            disconnect();
+            return false;
+        }
+
+        connected = true;
+        System.out.println("已建立 tmux 控制模式连接 (会话 '" + CONTROL_SESSION + "')。");
+        return true;
+    }
+
+    /**
+     * 调用方必须持有 writeLock。
+     */
+    private void disconnect() {
+        connected = false;
+        if (process != null) {
+            process.destroy();
+            process = null;
+        }
+        failAll(pending);
+    }
+
+    private static void failAll(ConcurrentLinkedQueue<CompletableFuture<TmuxResult>> queue) {
+        CompletableFuture<TmuxResult> future;
+        while ((future = queue.poll()) != null) {
+            future.completeExceptionally(new IOException("tmux 控制连接已断开"));
+        }
+    }
+
+    /**
+     * 读取线程: 把 %begin ... %end/%error 块交给这条连接上等待中的指令 (queue)，其余 % 开头的行作为通知分发。
+     */
+    private void readLoop(Process source, ConcurrentLinkedQueue<CompletableFuture<TmuxResult>> queue,
+                          String marker, CompletableFuture<Void> synced) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            String blockNumber = null;
+            List<String> blockLines = new ArrayList<>();
+
+            while ((line = reader.readLine()) != null) {
+                if (blockNumber != null) {
+                    // tmux 3.x 之后 %end/%error 行带三个字段: 时间戳、指令编号、标志
+                    if ((line.startsWith("%end ") || line.startsWith("%error ")) && blockNumber.equals(field(line, 2))) {
+                        boolean success = line.startsWith("%end ");
+                        List<String> output = blockLines;
+                        blockNumber = null;
+                        blockLines = new ArrayList<>();
+
+                        if (!synced.isDone()) {
+                            if (output.contains(marker)) {
+                                synced.complete(null);
+                            }
+                            continue;
+                        }
+                        CompletableFuture<TmuxResult> future = queue.poll();
+                        if (future != null) {
+                            future.complete(new TmuxResult(success, output));
+                        }
+                    } else {
+                        blockLines.add(line);
+                    }
+                } else if (line.startsWith("%begin ")) {
+                    blockNumber = field(line, 2);
+                } else if (line.startsWith("%")) {
+                    for (Consumer<String> listener : notificationListeners) {
+                        listener.accept(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("读取 tmux 控制连接时出错: " + e.getMessage());
+        }
+
+        System.out.println("tmux 控制模式连接已关闭。");
+        synced.completeExceptionally(new IOException("tmux 控制连接已关闭"));
+        writeLock.lock();
+        try {
+            if (process == source) {
+                disconnect();
+                // 连接是意外断开的，允许下一条指令立即重连
+                lastConnectAttempt = 0;
+            }
+            // 已经换了新连接时，旧连接上还没等到回复的指令也不会再有回复了
+            failAll(queue);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ===================================================================================
+    // 辅助工具方法
+    // ===================================================================================
+
+    /**
+     * "tmux"，配置了独立的 socket 时再加上 "-L socket"。
+     */
+    private List<String> baseCommand() {
+        List<String> command = new ArrayList<>();
+        command.add("tmux");
+        if (!socketName.isEmpty()) {
+            command.add("-L");
+            command.add(socketName);
+        }
+        return command;
+    }
+
+    /**
+     * 控制模式不可用时的旧方式: 每条指令 fork 一个 tmux 进程。
+     */
+    private TmuxResult executeByFork(String[] args) throws IOException, InterruptedException {
+        List<String> command = baseCommand();
+        command.addAll(Arrays.asList(args));
+
+        meterRegistry.counter("tmodloader.process.forks", "reason", "tmux-fallback").increment();
+        Process p = new ProcessBuilder(command).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        boolean finished = p.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return new TmuxResult(finished && p.exitValue() == 0, lines);
+    }
+
+    /**
+     * 把参数列表拼成一行 tmux 指令。每个参数都用单引号包起来，
+     * 参数里的单引号写成 '\''，换行替换成空格 (换行在控制模式里表示指令结束)。
+     */
+    private static String toCommandLine(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (String arg : args) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            String safe = arg.replace('\r', ' ').replace('\n', ' ').replace("'", "'\\''");
+            sb.append('\'').append(safe).append('\'');
+        }
+        return sb.toString();
+    }
+
+    private static String field(String line, int index) {
+        String[] parts = line.split(" ");
+        return parts.length > index ? parts[index] : "";
+    }
+}
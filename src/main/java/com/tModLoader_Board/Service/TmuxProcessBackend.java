@@ -0,0 +1,185 @@
+package com.tModLoader_Board.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 【职责】: 把每个服务器跑在一个 tmux 会话里 (原来的方式)。
+ * 输入用 send-keys，输出用 pipe-pane 写进命名管道 (FIFO) 再由面板读取，历史输出用 capture-pane 取。
+ * 服务器不依赖面板进程，面板重启后重新 pipe-pane 即可接上。
+ */
+@Component
+@ConditionalOnProperty(name = "tmodloader.process.backend", havingValue = "tmux")
+public class TmuxProcessBackend implements ServerProcessBackend {
+
+    @Autowired
+    private TmuxConnection tmuxConnection;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public boolean start(String sessionName, List<String> command) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>(List.of("new-session", "-d", "-s", sessionName));
+        args.addAll(command);
+        // 通过常驻的 tmux 控制连接创建会话，不再单独 fork 一个 tmux 进程
+        return tmuxConnection.execute(args.toArray(new String[0])).isSuccess();
+    }
+
+    @Override
+    public void send(String sessionName, String line) throws IOException, InterruptedException {
+        tmuxConnection.execute("send-keys", "-t", sessionName, line, "C-m");
+    }
+
+    @Override
+    public void sendSecret(String sessionName, String line) {
+        throw new UnsupportedOperationException("tmux 窗格会回显输入，无法隐藏");
+    }
+
+    @Override
+    public boolean supportsSecretInput() {
+        return false;
+    }
+
+    @Override
+    public boolean isRunning(String sessionName) throws IOException, InterruptedException {
+        return tmuxConnection.execute("has-session", "-t", sessionName).isSuccess();
+    }
+
+    @Override
+    public void kill(String sessionName) throws IOException, InterruptedException {
+        tmuxConnection.execute("kill-session", "-t", sessionName);
+    }
+
+    @Override
+    public void rename(String sessionName, String newName) throws IOException, InterruptedException {
+        if (!tmuxConnection.execute("rename-session", "-t", sessionName, newName).isSuccess()) {
+            throw new IOException("会话 '" + sessionName + "' 改名为 '" + newName + "' 失败");
+        }
+    }
+
+    @Override
+    public List<String> listSessions() throws IOException, InterruptedException {
+        // "ls" 命令用于列出所有会话
+        TmuxConnection.TmuxResult result = tmuxConnection.execute("ls");
+
+        // 如果 tmux 命令执行失败 (例如 tmux 服务未运行)，返回空列表
+        if (!result.isSuccess()) {
+            System.err.println("执行 'tmux ls' 失败，可能 tmux 服务未运行。");
+            return new ArrayList<>();
+        }
+
+        List<String> sessions = new ArrayList<>();
+        for (String line : result.getLines()) {
+            // tmux ls 的输出格式通常是: "session_name: 1 windows (created ...)"
+            int colonIndex = line.indexOf(':');
+            if (colonIndex != -1) {
+                sessions.add(line.substring(0, colonIndex));
+            }
+        }
+        return sessions;
+    }
+
+    @Override
+    public long getPid(String sessionName) throws IOException, InterruptedException {
+        TmuxConnection.TmuxResult result = tmuxConnection.execute("display-message", "-p", "-t", sessionName, "#{pane_pid}");
+        if (!result.isSuccess() || result.getLines().isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(result.getLines().get(0).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public List<String> capture(String sessionName, int lines) throws IOException, InterruptedException {
+        TmuxConnection.TmuxResult result = tmuxConnection.execute(
+                "capture-pane", "-p", "-t", sessionName, "-S", "-" + lines);
+        return result.isSuccess() ? result.getLines() : null;
+    }
+
+    @Override
+    public ConsoleSource openConsole(String sessionName, ConsoleBuffer buffer) throws IOException, InterruptedException {
+        // 每个 tmux 服务器一个目录，同一台机器上的多个节点即使会话同名也不会共用管道
+        String socket = tmuxConnection.getSocketName();
+        Path fifoDir = Paths.get(System.getProperty("java.io.tmpdir"),
+                socket.isEmpty() ? "tmodloader-board" : "tmodloader-board-" + socket);
+        Files.createDirectories(fifoDir);
+        Path fifo = fifoDir.resolve(sessionName + ".fifo");
+        Files.deleteIfExists(fifo);
+        meterRegistry.counter("tmodloader.process.forks", "reason", "mkfifo").increment();
+        Process mkfifo = new ProcessBuilder("mkfifo", fifo.toString()).start();
+        if (!mkfifo.waitFor(5, TimeUnit.SECONDS) || mkfifo.exitValue() != 0) {
+            System.err.println("创建命名管道失败: " + fifo);
+            return null;
+        }
+
+        // 先把窗格里已有的历史输出放进缓冲区，之后的新输出由管道接着写入
+        List<String> history = capture(sessionName, buffer.getCapacity());
+        if (history == null) {
+            Files.deleteIfExists(fifo);
+            return null;
+        }
+        int end = history.size();
+        // 窗格下方还没写到的空行不算输出
+        while (end > 0 && history.get(end - 1).isEmpty()) {
+            end--;
+        }
+        for (int i = 0; i < end; i++) {
+            buffer.append(history.get(i));
+        }
+
+        // -O: 只把窗格的输出写进管道。重复调用会替换掉旧的管道 (例如看板重启之后)
+        String pipeCommand = "exec cat >> '" + fifo.toString().replace("'", "'\\''") + "'";
+        if (!tmuxConnection.execute("pipe-pane", "-O", "-t", sessionName, pipeCommand).isSuccess()) {
+            System.err.println("为会话 '" + sessionName + "' 建立 pipe-pane 失败。");
+            Files.deleteIfExists(fifo);
+            return null;
+        }
+
+        return new ConsoleSource() {
+            @Override
+            public ReadableByteChannel open() throws IOException {
+                // 打开 FIFO 会阻塞，直到 pipe-pane 的写端也打开；写端关闭 (窗格退出或管道被替换) 时读到 EOF
+                FileChannel channel = FileChannel.open(fifo, StandardOpenOption.READ);
+                Files.deleteIfExists(fifo);
+                return channel;
+            }
+
+            @Override
+            public void close() {
+                try {
+                    // 不带命令的 pipe-pane 会关闭该窗格现有的管道
+                    tmuxConnection.execute("pipe-pane", "-t", sessionName);
+                } catch (IOException | InterruptedException e) {
+                    System.err.println("关闭会话 '" + sessionName + "' 的输出管道失败: " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    @Override
+    public void addSessionsChangedListener(Runnable listener) {
+        // tmux 在会话创建/销毁时推送 %sessions-changed
+        tmuxConnection.addNotificationListener(line -> {
+            if (line.startsWith("%sessions-changed")) {
+                listener.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,261 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.UploadStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 【职责】: 支持断点续传的分块上传。
+ * 每个分块直接通过 FileChannel 写到目标目录下的临时文件 (.id.part) 的对应偏移处，同时边写边计算 SHA-256；
+ * 提交时校验大小，再用一次原子重命名换成最终文件。整个过程只占用一个固定大小的缓冲区，
+ * 不会把整个文件读进内存，也不会先落到 Servlet 的临时目录再拷贝一遍。
+ */
+@Service
+public class UploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_UPLOAD_RETENTION_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * 上传偏移量与服务端已接收的字节数不一致时抛出，客户端应先查询状态再从 received 处续传。
+     */
+    public static class OffsetMismatchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public OffsetMismatchException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Upload {
+        final UploadStatus status = new UploadStatus();
+        final Path partFile;
+        final Path targetFile;
+        final MessageDigest digest;
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Upload(Path partFile, Path targetFile, MessageDigest digest) {
+            this.partFile = partFile;
+            this.targetFile = targetFile;
+            this.digest = digest;
+        }
+    }
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 开始一次上传。
+     *
+     * @param fileName  原始文件名 (只取最后一段，防止路径穿越)
+     * @param type      "mod" 或 "world"，只用于回显
+     * @param size      文件总大小；未知时传 -1，提交时不校验大小
+     * @param targetDir 最终存放目录
+     */
+    public UploadStatus begin(String fileName, String type, long size, String targetDir) throws IOException {
+        String safeName = fileName == null ? null : Paths.get(fileName).getFileName().toString();
+        if (safeName == null || safeName.isBlank() || safeName.startsWith(".")) {
+            throw new IllegalArgumentException("文件名无效: " + fileName);
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path dir = Paths.get(targetDir);
+        Files.createDirectories(dir);
+        // 临时文件与最终文件放在同一目录，保证提交时的重命名是同一文件系统内的原子操作
+        Path partFile = dir.resolve("." + id + ".part");
+        Files.createFile(partFile);
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Upload upload = new Upload(partFile, dir.resolve(safeName), digest);
+        upload.status.setId(id);
+        upload.status.setFileName(safeName);
+        upload.status.setType(type);
+        upload.status.setSize(size);
+        uploads.put(id, upload);
+        return snapshot(upload);
+    }
+
+    /**
+     * 内容已经在服务端 (例如模组仓库里已有相同哈希) 时，返回一个无需再传任何字节的已完成状态。
+     */
+    public UploadStatus completed(String fileName, String type, long size, String sha256) {
+        UploadStatus status = new UploadStatus();
+        status.setFileName(fileName);
+        status.setType(type);
+        status.setSize(size);
+        status.setReceived(size);
+        status.setCommitted(true);
+        status.setSha256(sha256);
+        return status;
+    }
+
+    public UploadStatus getStatus(String id) {
+        Upload upload = uploads.get(id);
+        return upload == null ? null : snapshot(upload);
+    }
+
+    /**
+     * 把请求体作为一个分块写入 offset 处。offset 必须等于已接收的字节数；
+     * 连接中途断开时，已经写入的部分仍然有效，客户端查询状态后从新的 received 继续即可。
+     * 声明了大小时只写到该大小为止，多出的字节丢弃并以冲突返回，之前的部分照常有效。
+     */
+    public UploadStatus writeChunk(String id, long offset, InputStream body) throws IOException {
+        Upload upload = require(id);
+        if (!upload.lock.tryLock()) {
+            throw new OffsetMismatchException("该上传正有另一个分块在写入");
+        }
+        try {
+            if (upload.status.isCommitted()) {
+                throw new IllegalStateException("上传已经提交");
+            }
+            if (offset != upload.status.getReceived()) {
+                throw new OffsetMismatchException("偏移量 " + offset + " 与已接收的 " + upload.status.getReceived() + " 字节不一致");
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = offset;
+            long size = upload.status.getSize();
+            String outcome = "failure";
+            try (FileChannel channel = FileChannel.open(upload.partFile, StandardOpenOption.WRITE)) {
+                int n;
+                while ((n = body.read(buffer.array(), 0, readLength(buffer, size, position))) > 0) {
+                    buffer.limit(n);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    upload.digest.update(buffer.array(), 0, n);
+                    buffer.clear();
+                    // 每写完一段就记下进度，连接断开时已写入的字节不会白传
+                    upload.status.setReceived(position);
+                    upload.lastActivity = System.currentTimeMillis();
+                }
+                if (size >= 0 && position == size && body.read() != -1) {
+                    outcome = "overflow";
+                    throw new OffsetMismatchException("分块超出了声明的文件大小 " + size + " 字节，多出的部分已丢弃");
+                }
+                outcome = "success";
+            } finally {
+                // 中途断开的分块也按实际写入的字节数计入
+                meterRegistry.counter("tmodloader.upload.bytes", "path", "chunked").increment(position - offset);
+                sample.stop(meterRegistry.timer("tmodloader.upload", "path", "chunked", "outcome", outcome));
+            }
+            return snapshot(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * 校验大小并原子地把临时文件重命名为最终文件，返回带 SHA-256 的状态。
+     */
+    public UploadStatus commit(String id) throws IOException {
+        Upload upload = require(id);
+        upload.lock.lock();
+        try {
+            if (!upload.status.isCommitted()) {
+                long size = upload.status.getSize();
+                if (size >= 0 && upload.status.getReceived() != size) {
+                    throw new OffsetMismatchException("文件尚未传完: 已接收 " + upload.status.getReceived() + " / " + size + " 字节");
+                }
+                // digest() 会重置摘要，在副本上计算，改名失败后重试提交仍能得到正确的哈希
+                String sha256 = HexFormat.of().formatHex(copyOf(upload.digest).digest());
+                Files.move(upload.partFile, upload.targetFile,
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                upload.status.setSha256(sha256);
+                upload.status.setCommitted(true);
+                System.out.println("分块上传完成: " + upload.targetFile + " (sha256=" + upload.status.getSha256() + ")");
+            }
+            return snapshot(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * 清理长时间没有动静的上传及其临时文件，以及已经提交的上传记录。
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void purgeIdleUploads() {
+        long cutoff = System.currentTimeMillis() - IDLE_UPLOAD_RETENTION_MILLIS;
+        uploads.values().removeIf(upload -> {
+            if (upload.lastActivity >= cutoff || !upload.lock.tryLock()) {
+                return false;
+            }
+            try {
+                if (!upload.status.isCommitted()) {
+                    Files.deleteIfExists(upload.partFile);
+                }
+            } catch (IOException e) {
+                System.err.println("删除临时文件失败: " + upload.partFile);
+            } finally {
+                upload.lock.unlock();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 本次最多读多少字节: 缓冲区大小，声明了文件大小时不超过剩余字节数 (为 0 时不再读)。
+     */
+    private static int readLength(ByteBuffer buffer, long size, long position) {
+        return size < 0 ? buffer.capacity() : (int) Math.min(buffer.capacity(), size - position);
+    }
+
+    private static MessageDigest copyOf(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("摘要算法不支持复制: " + digest.getAlgorithm(), e);
+        }
+    }
+
+    private Upload require(String id) {
+        Upload upload = uploads.get(id);
+        if (upload == null) {
+            throw new IllegalArgumentException("上传不存在: " + id);
+        }
+        return upload;
+    }
+
+    private UploadStatus snapshot(Upload upload) {
+        UploadStatus copy = new UploadStatus();
+        copy.setId(upload.status.getId());
+        copy.setFileName(upload.status.getFileName());
+        copy.setType(upload.status.getType());
+        copy.setSize(upload.status.getSize());
+        copy.setReceived(upload.status.getReceived());
+        copy.setCommitted(upload.status.isCommitted());
+        copy.setSha256(upload.status.getSha256());
+        return copy;
+    }
+}
@@ -0,0 +1,493 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.ExecutorConfig;
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import com.tModLoader_Board.DTO.GameConfig;
+import com.tModLoader_Board.DTO.WarmServer;
+import com.tModLoader_Board.DTO.WorldInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 【职责】: 维护一池预先启动、已经加载好模组的服务器实例，创建服务器时把世界直接挂到实例上。
+ * 大的模组组合光加载模组就要几十秒。池里的实例不带 -world 启动，加载完模组后停在 "Choose World" 菜单；
+ * 创建请求的模组组合 (排序后的内部名，即 enabled.json 的内容) 与某个实例完全一致时，
+ * 把实例改名为目标会话，再通过控制台菜单选择世界、填写人数、端口和密码，剩下的只有加载世界的时间。
+ * 预热哪些组合由最近的创建请求决定，实例被用掉之后在后台补上。
+ */
+@Service
+public class WarmServerPool {
+
+    public static final String WARMING = "WARMING";
+    public static final String READY = "READY";
+
+    // 不以 "tmodloader-" 开头，不会出现在服务器列表里
+    private static final String SESSION_PREFIX = "warm-";
+    /** 菜单最后打印 "Choose World: " 并等待输入，出现它说明模组已经加载完毕。 */
+    private static final Predicate<String> WORLD_MENU = line -> line.startsWith("Choose World");
+    private static final String PASSWORD_PROMPT = "Server password";
+    private static final Predicate<String> PROMPT_OR_STARTED =
+            line -> ConsoleLineParser.isInputPrompt(line) || CommandExecutor.SERVER_STARTED.test(line);
+    /** 菜单里的一个世界: "1\t\t世界名"。 */
+    private static final Pattern WORLD_ENTRY = Pattern.compile("(\\d+)\\t+(.+)");
+    // 一次挂载最多回答的提示数，防止服务器反复追问同一个问题
+    private static final int MAX_PROMPTS = 8;
+    // 预热失败后，同一个模组组合隔多久再试
+    private static final long RETRY_AFTER_FAILURE_MILLIS = 5 * 60 * 1000;
+
+    @Autowired
+    private StartService startService;
+
+    @Autowired
+    private ModProfileService modProfileService;
+
+    @Autowired
+    private ResourceAllocator resourceAllocator;
+
+    @Autowired
+    private ServerProcessBackend processBackend;
+
+    @Autowired
+    private ConsoleStreamService consoleStreamService;
+
+    @Autowired
+    private CommandExecutor commandExecutor;
+
+    @Autowired
+    private ControlService controlService;
+
+    @Autowired
+    private ModCatalog modCatalog;
+
+    @Autowired
+    private WorldCatalog worldCatalog;
+
+    @Autowired
+    private TmodloaderPaths tmodloaderPaths;
+
+    @Autowired
+    @Qualifier(ExecutorConfig.PROCESS_EXECUTOR)
+    private ExecutorService processExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${tmodloader.pool.size:0}")
+    private int size;
+
+    @Value("${tmodloader.pool.demand-ttl-ms:86400000}")
+    private long demandTtlMillis;
+
+    @Value("${tmodloader.command.timeout-ms:5000}")
+    private long commandTimeoutMillis;
+
+    @Value("${tmodloader.command.startup-timeout-ms:180000}")
+    private long startupTimeoutMillis;
+
+    // 会话名 -> 实例
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+    // 模组组合 -> 最近一次请求它的情况
+    private final Map<String, Demand> demands = new ConcurrentHashMap<>();
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private volatile boolean orphansRemoved = false;
+
+    private static class Instance {
+        final String sessionName;
+        final String key;
+        final List<String> mods;
+        final long startedAt = System.currentTimeMillis();
+        // 0 表示还在加载模组
+        volatile long readyAt;
+        // 由 claim / tryClaim 在池的锁下设置，被取走之后不再交给别人
+        boolean claimed;
+
+        Instance(String sessionName, String key, List<String> mods) {
+            this.sessionName = sessionName;
+            this.key = key;
+            this.mods = mods;
+        }
+    }
+
+    private static class Demand {
+        final String key;
+        final List<String> mods;
+        // 启动实例时写进 enabled.json 的模组文件名，取最近一次请求里的
+        volatile List<String> modFiles;
+        volatile long lastRequested;
+        volatile long failedAt;
+
+        Demand(String key, List<String> mods) {
+            this.key = key;
+            this.mods = mods;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gaugeMapSize("tmodloader.pool.instances", List.of(), instances);
+    }
+
+    // ===================================================================================
+    // 对外接口
+    // ===================================================================================
+
+    /**
+     * 有模组组合相同、已经就绪的实例时，把它改名为 sessionName 并挂上 config 里的世界，返回 true；
+     * 池未启用、没有合适的实例或挂载失败时返回 false，调用方照常冷启动。
+     * 无论结果如何，这个组合都会被记为最近需要的组合，后台随之补充实例。
+     */
+    public boolean attach(GameConfig config, String sessionName) throws InterruptedException {
+        if (size <= 0) {
+            return false;
+        }
+        List<String> mods = modNamesOf(config.getMods());
+        String key = String.join("\n", mods);
+        Demand demand = demands.computeIfAbsent(key, k -> new Demand(k, mods));
+        demand.modFiles = config.getMods() == null ? List.of() : List.copyOf(config.getMods());
+        demand.lastRequested = System.currentTimeMillis();
+        if (config.getPassword() != null && !config.getPassword().isEmpty() && !processBackend.supportsSecretInput()) {
+            // 密码只能在菜单里输入，会被回显到控制台；冷启动用命令行参数传
+            return false;
+        }
+
+        Instance instance = claim(key);
+        processExecutor.execute(this::refill);
+        if (instance == null) {
+            meterRegistry.counter("tmodloader.pool.claims", "outcome", "miss").increment();
+            return false;
+        }
+
+        String current = instance.sessionName;
+        try {
+            if (processBackend.isRunning(sessionName)) {
+                // 会话已经在运行，按原流程直接返回它；实例放回池里
+                release(instance);
+                return false;
+            }
+            consoleStreamService.detach(current);
+            processBackend.rename(current, sessionName);
+            instances.remove(instance.sessionName);
+            // 之后这个进程算在创建任务自己的预留里
+            resourceAllocator.release(current);
+            current = sessionName;
+            consoleStreamService.attach(sessionName);
+            chooseWorld(sessionName, config);
+            meterRegistry.counter("tmodloader.pool.claims", "outcome", "hit").increment();
+            System.out.println("世界 '" + config.getWorld() + "' 已挂到热备实例 '" + instance.sessionName + "' 上，会话名 '" + sessionName + "'。");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("热备实例 '" + instance.sessionName + "' 挂载世界失败，改为冷启动: " + e.getMessage());
+            meterRegistry.counter("tmodloader.pool.claims", "outcome", "failure").increment();
+            instances.remove(instance.sessionName);
+            if (current.equals(sessionName)) {
+                // 改名后的会话已经由守护进程接管，不先声明的话结束它会被记成一次崩溃并触发重启
+                controlService.notifyStopping(sessionName);
+            }
+            kill(current);
+            awaitExit(current);
+            return false;
+        }
+    }
+
+    public List<WarmServer> getInstances() {
+        List<WarmServer> result = new ArrayList<>();
+        for (Instance instance : instances.values()) {
+            WarmServer server = new WarmServer();
+            server.setSessionName(instance.sessionName);
+            server.setMods(instance.mods);
+            server.setStatus(instance.readyAt == 0 ? WARMING : READY);
+            server.setStartedAt(instance.startedAt);
+            server.setReadyAt(instance.readyAt);
+            result.add(server);
+        }
+        result.sort(Comparator.comparingLong(WarmServer::getStartedAt));
+        return result;
+    }
+
+    /**
+     * 按最近需要的模组组合补充实例，最多 size 个，每个组合一个；不再需要的实例被结束。
+     * 定期执行，每次有实例被取走后也会立即执行一次。
+     */
+    @Scheduled(fixedDelayString = "${tmodloader.pool.refill-ms:10000}")
+    public void refill() {
+        if (!refillLock.tryLock()) {
+            return;
+        }
+        try {
+            if (!orphansRemoved) {
+                removeOrphans();
+                orphansRemoved = true;
+            }
+            long now = System.currentTimeMillis();
+            demands.values().removeIf(demand -> now - demand.lastRequested > demandTtlMillis);
+            Set<String> wanted = demands.values().stream()
+                    .sorted(Comparator.comparingLong((Demand demand) -> demand.lastRequested).reversed())
+                    .limit(Math.max(0, size))
+                    .map(demand -> demand.key)
+                    .collect(Collectors.toSet());
+
+            for (Instance instance : new ArrayList<>(instances.values())) {
+                boolean dead = instance.readyAt != 0 && !processBackend.isRunning(instance.sessionName);
+                if ((dead || !wanted.contains(instance.key)) && tryClaim(instance)) {
+                    instances.remove(instance.sessionName);
+                    kill(instance.sessionName);
+                }
+            }
+            for (String key : wanted) {
+                Demand demand = demands.get(key);
+                if (demand == null || now - demand.failedAt < RETRY_AFTER_FAILURE_MILLIS || instances.size() >= size
+                        || instances.values().stream().anyMatch(instance -> instance.key.equals(key))) {
+                    continue;
+                }
+                String sessionName = SESSION_PREFIX + sequence.incrementAndGet();
+                if (!resourceAllocator.tryReserve(sessionName, demand.modFiles.size())) {
+                    // 本节点资源不够再多跑一个实例，等有服务器停止后再补
+                    continue;
+                }
+                Instance instance = new Instance(sessionName, key, demand.mods);
+                instances.put(instance.sessionName, instance);
+                processExecutor.execute(() -> warmUp(instance, demand));
+            }
+        } catch (IOException | InterruptedException e) {
+            System.err.println("补充热备实例失败: " + e.getMessage());
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * 池里的实例没有世界，面板退出后没人会再用它们，一并结束。
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Instance instance : instances.values()) {
+            kill(instance.sessionName);
+        }
+        instances.clear();
+    }
+
+    // ===================================================================================
+    // 预热
+    // ===================================================================================
+
+    private void warmUp(Instance instance, Demand demand) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            String profile = modProfileService.prepare(demand.modFiles);
+            if (!startService.startWithoutWorld(instance.sessionName, profile)) {
+                throw new IOException("启动进程失败");
+            }
+            await(commandExecutor.waitForLine(instance.sessionName, WORLD_MENU, startupTimeoutMillis));
+            instance.readyAt = System.currentTimeMillis();
+            outcome = "success";
+            System.out.println("热备实例 '" + instance.sessionName + "' 已就绪，模组: " + instance.mods);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            instances.remove(instance.sessionName);
+            kill(instance.sessionName);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("预热实例 '" + instance.sessionName + "' 失败: " + e.getMessage());
+            demand.failedAt = System.currentTimeMillis();
+            instances.remove(instance.sessionName);
+            kill(instance.sessionName);
+        } finally {
+            sample.stop(meterRegistry.timer("tmodloader.pool.warmup", "outcome", outcome));
+        }
+    }
+
+    /**
+     * 上一次运行的面板留下的实例不知道加载的是哪些模组，直接结束。
+     */
+    private void removeOrphans() throws IOException, InterruptedException {
+        for (String sessionName : processBackend.listSessions()) {
+            if (sessionName.startsWith(SESSION_PREFIX) && !instances.containsKey(sessionName)) {
+                System.out.println("结束遗留的热备实例 '" + sessionName + "'。");
+                kill(sessionName);
+            }
+        }
+    }
+
+    // ===================================================================================
+    // 挂载世界
+    // ===================================================================================
+
+    /**
+     * 在 "Choose World" 菜单里选中世界，再依次回答人数、端口、端口转发、密码的提示，直到 "Server started"。
+     */
+    private void chooseWorld(String sessionName, GameConfig config) throws IOException, InterruptedException {
+        String worldName = worldNameOf(config.getWorld());
+        // 菜单里的世界列表是实例启动时扫描的，先回车一次让它重新扫描 Worlds 目录
+        String menu = await(commandExecutor.execute(sessionName, "", WORLD_MENU, commandTimeoutMillis));
+        if (!WORLD_MENU.test(lastLine(menu))) {
+            throw new IOException("实例没有回到选择世界的菜单");
+        }
+        String number = null;
+        for (String line : menu.split("\\R")) {
+            Matcher matcher = WORLD_ENTRY.matcher(line.trim());
+            if (matcher.matches() && matcher.group(2).trim().equals(worldName)) {
+                if (number != null) {
+                    throw new IllegalStateException("有多个名为 '" + worldName + "' 的世界，无法在菜单里区分");
+                }
+                number = matcher.group(1);
+            }
+        }
+        if (number == null) {
+            throw new IllegalStateException("菜单里找不到世界 '" + worldName + "'");
+        }
+
+        String answer = number;
+        boolean secret = false;
+        for (int i = 0; i < MAX_PROMPTS; i++) {
+            // 密码不走普通输入: 普通输入的回显会写进控制台日志并推送给所有订阅者
+            CompletableFuture<String> reply = secret
+                    ? commandExecutor.executeSecret(sessionName, answer, PROMPT_OR_STARTED, startupTimeoutMillis)
+                    : commandExecutor.execute(sessionName, answer, PROMPT_OR_STARTED, startupTimeoutMillis);
+            String last = lastLine(await(reply));
+            if (CommandExecutor.SERVER_STARTED.test(last)) {
+                return;
+            }
+            if (!ConsoleLineParser.isInputPrompt(last)) {
+                throw new IOException("等待服务器提示超时");
+            }
+            answer = answerFor(last, config);
+            secret = last.startsWith(PASSWORD_PROMPT) && !answer.isEmpty();
+        }
+        throw new IllegalStateException("服务器反复提示输入，放弃挂载");
+    }
+
+    private static String answerFor(String prompt, GameConfig config) {
+        if (prompt.startsWith("Max players")) {
+            return nullToEmpty(config.getMaxPlayers());
+        }
+        if (prompt.startsWith("Server port")) {
+            return nullToEmpty(config.getPort());
+        }
+        if (prompt.startsWith("Automatically forward port")) {
+            return "n";
+        }
+        if (prompt.startsWith(PASSWORD_PROMPT)) {
+            return nullToEmpty(config.getPassword());
+        }
+        throw new IllegalStateException("无法回答的提示: " + prompt.trim());
+    }
+
+    /**
+     * 菜单里显示的是世界文件头里的名字，不是文件名。
+     */
+    private String worldNameOf(String world) {
+        for (WorldInfo info : worldCatalog.getWorlds(tmodloaderPaths.getWorldPath())) {
+            if (world.equals(info.getFileName()) && info.getName() != null) {
+                return info.getName().trim();
+            }
+        }
+        throw new IllegalStateException("读不出世界 '" + world + "' 的名字");
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    private List<String> modNamesOf(List<String> modFiles) {
+        if (modFiles == null) {
+            return List.of();
+        }
+        return modFiles.stream().map(modCatalog::internalNameOf).sorted().distinct().toList();
+    }
+
+    private synchronized Instance claim(String key) {
+        for (Instance instance : instances.values()) {
+            if (instance.key.equals(key) && instance.readyAt != 0 && !instance.claimed) {
+                instance.claimed = true;
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    private synchronized boolean tryClaim(Instance instance) {
+        if (instance.claimed) {
+            return false;
+        }
+        instance.claimed = true;
+        return true;
+    }
+
+    private synchronized void release(Instance instance) {
+        instance.claimed = false;
+    }
+
+    private void kill(String sessionName) {
+        try {
+            consoleStreamService.detach(sessionName);
+            processBackend.kill(sessionName);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("结束会话 '" + sessionName + "' 失败: " + e.getMessage());
+        }
+        // 挂载失败时结束的是已经改名的会话，它的预留归创建任务管理，这里只释放热备实例自己的
+        if (sessionName.startsWith(SESSION_PREFIX)) {
+            resourceAllocator.release(sessionName);
+        }
+    }
+
+    /**
+     * 冷启动前确认进程已经退出，否则启动流程会把它当成 "已在运行" 的会话。
+     */
+    private void awaitExit(String sessionName) throws InterruptedException {
+        try {
+            for (int i = 0; i < 50 && processBackend.isRunning(sessionName); i++) {
+                Thread.sleep(100);
+            }
+        } catch (IOException e) {
+            System.err.println("检查会话 '" + sessionName + "' 状态失败: " + e.getMessage());
+        }
+    }
+
+    private static String lastLine(String output) {
+        String[] lines = output.split("\\R");
+        return lines[lines.length - 1];
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * 等待一个命令执行结果，把异步异常还原成 IOException。
+     */
+    private static String await(CompletableFuture<String> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
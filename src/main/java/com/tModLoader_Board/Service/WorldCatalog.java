@@ -0,0 +1,115 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.WorldInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 【职责】: 带元数据 (名称、种子、难度、尺寸、上次游玩时间、是否有 .twld) 的世界列表。
+ * 文件列表取自 DirectorySnapshotCache；每个世界的文件头只在第一次被列出、或者文件大小/修改时间变化后解析一次，
+ * 之后只需要一次 stat 就能确认缓存仍然有效。
+ */
+@Service
+public class WorldCatalog {
+
+    private static final String WORLD_EXTENSION = ".wld";
+    private static final String MOD_DATA_EXTENSION = ".twld";
+
+    private record CacheEntry(long size, long lastModified, WorldInfo info) {
+    }
+
+    @Autowired
+    private DirectorySnapshotCache directorySnapshotCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 世界文件完整路径 -> 解析结果
+    private final Map<Path, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    public List<WorldInfo> getWorlds(String worldPath) {
+        Path dir = Paths.get(worldPath).toAbsolutePath().normalize();
+        List<String> worlds = directorySnapshotCache.getSnapshot(worldPath, WORLD_EXTENSION).getFiles();
+        Set<String> modData = new HashSet<>(directorySnapshotCache.getSnapshot(worldPath, MOD_DATA_EXTENSION).getFiles());
+
+        List<WorldInfo> result = new ArrayList<>(worlds.size());
+        Set<Path> listed = new HashSet<>();
+        for (String fileName : worlds) {
+            Path file = dir.resolve(fileName);
+            WorldInfo info = lookup(file);
+            if (info == null) {
+                continue;
+            }
+            String baseName = fileName.substring(0, fileName.length() - WORLD_EXTENSION.length());
+            info.setHasModData(modData.contains(baseName + MOD_DATA_EXTENSION));
+            result.add(info);
+            listed.add(file);
+        }
+        // 丢掉已经不在目录里的世界
+        cache.keySet().removeIf(path -> path.startsWith(dir) && !listed.contains(path));
+        return result;
+    }
+
+    /**
+     * 返回缓存的解析结果的副本，缓存失效时重新解析。文件已被删除时返回 null。
+     */
+    private WorldInfo lookup(Path file) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            cache.remove(file);
+            return null;
+        }
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        CacheEntry entry = cache.get(file);
+        if (entry == null || entry.size() != size || entry.lastModified() != lastModified) {
+            WorldInfo info;
+            try {
+                info = WorldParser.parse(file, attributes);
+            } catch (IOException e) {
+                // 解析失败 (文件损坏或还在写入) 时仍然列出，只是没有详细信息
+                meterRegistry.counter("tmodloader.parse.failures", "kind", "world").increment();
+                System.err.println("解析世界文件失败 " + file.getFileName() + ": " + e.getMessage());
+                info = new WorldInfo();
+                info.setFileName(file.getFileName().toString());
+                info.setSize(size);
+                info.setLastPlayed(lastModified);
+            }
+            entry = new CacheEntry(size, lastModified, info);
+            cache.put(file, entry);
+        }
+        return copyOf(entry.info());
+    }
+
+    private static WorldInfo copyOf(WorldInfo source) {
+        WorldInfo copy = new WorldInfo();
+        copy.setFileName(source.getFileName());
+        copy.setName(source.getName());
+        copy.setSeed(source.getSeed());
+        copy.setDifficulty(source.getDifficulty());
+        copy.setWorldSize(source.getWorldSize());
+        copy.setWidth(source.getWidth());
+        copy.setHeight(source.getHeight());
+        copy.setFileVersion(source.getFileVersion());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setLastPlayed(source.getLastPlayed());
+        copy.setSize(source.getSize());
+        copy.setFavorite(source.isFavorite());
+        return copy;
+    }
+}
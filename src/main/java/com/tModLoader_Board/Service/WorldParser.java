@@ -0,0 +1,134 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.WorldInfo;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 【职责】: 只读取 Terraria .wld 的文件头 (名称、种子、尺寸、难度、创建时间)，不碰图格和箱子等数据。
+ * 头部加上 header 段的前面部分一共不到 1 KB，用一次 FileChannel 定位读就够了。
+ *
+ * 文件布局 (1.3.5 之后，小端):
+ * int32 版本 | uint64 "relogic" 魔数 + 文件类型 | uint32 修订号 | uint64 收藏标记 |
+ * int16 段数 + int32[段数] 各段偏移 | 图格重要性位图 | header 段 (从第 0 个偏移开始) ...
+ */
+public final class WorldParser {
+
+    // "relogic" 的小端表示，占 uint64 的低 7 个字节，最高字节是文件类型
+    private static final long RELOGIC_MAGIC = 0x006369676F6C6572L;
+    private static final int WORLD_FILE_TYPE = 2;
+    // 有 "relogic" 文件元数据的最低版本 (1.3.5)
+    private static final int MIN_SUPPORTED_VERSION = 135;
+    private static final int MAX_SECTION_COUNT = 64;
+    private static final int WINDOW_SIZE = 4 * 1024;
+    // .NET DateTime 刻度: 0001-01-01 到 1970-01-01 的刻度数，以及每毫秒的刻度数
+    private static final long DOTNET_EPOCH_TICKS = 621_355_968_000_000_000L;
+    private static final long TICKS_PER_MILLI = 10_000L;
+    private static final long DATETIME_TICKS_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    private WorldParser() {
+    }
+
+    public static WorldInfo parse(Path file, BasicFileAttributes attributes) throws IOException {
+        WorldInfo info = new WorldInfo();
+        info.setFileName(file.getFileName().toString());
+        info.setSize(attributes.size());
+        info.setLastPlayed(attributes.lastModifiedTime().toMillis());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            PositionalReader in = new PositionalReader(channel, WINDOW_SIZE);
+            int version = in.readInt();
+            info.setFileVersion(version);
+            if (version < MIN_SUPPORTED_VERSION) {
+                throw new IOException("世界文件版本过旧: " + version);
+            }
+            long magic = in.readLong();
+            if ((magic & 0x00FFFFFFFFFFFFFFL) != RELOGIC_MAGIC || (magic >>> 56) != WORLD_FILE_TYPE) {
+                throw new IOException("不是 Terraria 世界文件: " + file.getFileName());
+            }
+            in.readInt();
+            info.setFavorite((in.readLong() & 1) != 0);
+
+            int sectionCount = in.readShort();
+            if (sectionCount <= 0 || sectionCount > MAX_SECTION_COUNT) {
+                throw new IOException("世界文件段表损坏: " + file.getFileName());
+            }
+            int headerOffset = in.readInt();
+            in.seek(headerOffset);
+            readHeader(in, version, info);
+        }
+        return info;
+    }
+
+    /**
+     * 按 Terraria WorldFile.LoadHeader 的顺序读取 header 段，读到创建时间为止。
+     */
+    private static void readHeader(PositionalReader in, int version, WorldInfo info) throws IOException {
+        info.setName(in.readString());
+        if (version >= 179) {
+            info.setSeed(version == 179 ? Integer.toString(in.readInt()) : in.readString());
+            // worldGenVersion
+            in.readLong();
+        }
+        if (version >= 181) {
+            // 世界 GUID
+            in.skip(16);
+        }
+        // 世界 ID 和左右上下边界
+        in.skip(4 + 4 * 4);
+        int height = in.readInt();
+        int width = in.readInt();
+        info.setWidth(width);
+        info.setHeight(height);
+        info.setWorldSize(worldSizeOf(width));
+
+        int gameMode;
+        if (version >= 209) {
+            gameMode = in.readInt();
+            // 各种彩蛋种子的标记，按版本依次出现
+            int flags = 0;
+            for (int v : new int[]{222, 227, 238, 239, 241, 249, 266, 267}) {
+                if (version >= v) {
+                    flags++;
+                }
+            }
+            in.skip(flags);
+        } else {
+            boolean expert = version >= 112 && in.readBoolean();
+            boolean master = version >= 208 && in.readBoolean();
+            gameMode = master ? 2 : expert ? 1 : 0;
+        }
+        info.setDifficulty(difficultyOf(gameMode));
+
+        if (version >= 141) {
+            // .NET DateTime.ToBinary()，本地时间也是按 UTC 刻度存的，去掉最高两位的 Kind 即可
+            long ticks = in.readLong() & DATETIME_TICKS_MASK;
+            if (ticks > DOTNET_EPOCH_TICKS) {
+                info.setCreatedAt((ticks - DOTNET_EPOCH_TICKS) / TICKS_PER_MILLI);
+            }
+        }
+    }
+
+    private static String difficultyOf(int gameMode) {
+        return switch (gameMode) {
+            case 0 -> "classic";
+            case 1 -> "expert";
+            case 2 -> "master";
+            case 3 -> "journey";
+            default -> "unknown";
+        };
+    }
+
+    private static String worldSizeOf(int width) {
+        return switch (width) {
+            case 4200 -> "small";
+            case 6400 -> "medium";
+            case 8400 -> "large";
+            default -> "custom";
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.tModLoader_Board;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tModLoader_Board.DTO.NodeStatus;
+import com.tModLoader_Board.Service.NodeRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 在本机起两个 agent (同一个程序的两个完整上下文，各用各的数据目录和随机端口)，主面板把它们配成节点 a、b:
+ * 节点状态经 HTTP/1.1 + JSON 拉取，新服务器放到可用内存最多的节点上，/nodes/{id}/** 原样转发到对应的 agent。
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "tmodloader.paths.data-dir=target/test-data/nodes/board",
+        "tmodloader.allocator.memory-budget-mb=256"})
+class NodeRegistryIntegrationTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long AGENT_A_BUDGET_MB = 512;
+    // 预算远大于本机内存，b 的可用量就是本机实际的可用内存
+    private static final long AGENT_B_BUDGET_MB = 1_000_000;
+
+    private static ConfigurableApplicationContext agentA;
+    private static ConfigurableApplicationContext agentB;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    NodeRegistry nodeRegistry;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void nodes(DynamicPropertyRegistry registry) {
+        agentA = startAgent("a", AGENT_A_BUDGET_MB);
+        agentB = startAgent("b", AGENT_B_BUDGET_MB);
+        registry.add("tmodloader.nodes", () -> "a=http://localhost:" + portOf(agentA) + ",b=http://localhost:" + portOf(agentB));
+    }
+
+    @AfterAll
+    static void stopAgents() {
+        if (agentA != null) {
+            agentA.close();
+        }
+        if (agentB != null) {
+            agentB.close();
+        }
+    }
+
+    @Test
+    void placesOnNodeWithMostFreeMemory() throws Exception {
+        // CPU 使用率是整台机器的，几个上下文刚启动时可能短暂超过繁忙阈值，多拉几次直到稳定
+        long deadline = System.currentTimeMillis() + 30_000;
+        String placement = null;
+        while (System.currentTimeMillis() < deadline) {
+            nodeRegistry.pollNodes();
+            Thread.sleep(200);
+            List<NodeStatus> nodes = nodeRegistry.getNodes();
+            if (nodes.stream().allMatch(NodeStatus::isOnline)) {
+                assertEquals(List.of(NodeRegistry.LOCAL, "a", "b"), nodes.stream().map(NodeStatus::getId).toList());
+                assertEquals(AGENT_A_BUDGET_MB * MB, nodes.get(1).getMemoryUnreserved());
+                placement = nodeRegistry.choosePlacement();
+                if ("b".equals(placement)) {
+                    return;
+                }
+            }
+        }
+        fail("节点状态: " + nodeRegistry.getNodes() + "，最后一次选择的节点: " + placement);
+    }
+
+    @Test
+    void proxiesRequestsToEachAgent() throws Exception {
+        HttpResponse<String> a = get("/nodes/a/manage/allocations");
+        assertEquals(200, a.statusCode());
+        assertTrue(a.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        assertEquals(AGENT_A_BUDGET_MB * MB, objectMapper.readTree(a.body()).get("memoryBudget").asLong());
+
+        HttpResponse<String> b = get("/nodes/b/manage/allocations");
+        assertEquals(AGENT_B_BUDGET_MB * MB, objectMapper.readTree(b.body()).get("memoryBudget").asLong());
+
+        // 查询串也要带过去
+        HttpResponse<String> stats = get("/nodes/a/manage/stats?points=5");
+        assertEquals(200, stats.statusCode());
+        JsonNode body = objectMapper.readTree(stats.body());
+        assertTrue(body.isArray());
+
+        // 转发给 agent 的请求在 agent 上就是本机请求
+        JsonNode status = objectMapper.readTree(get("/nodes/b/agent/status").body());
+        assertEquals(NodeRegistry.LOCAL, status.get("id").asText());
+
+        assertEquals(404, get("/nodes/nowhere/manage/allocations").statusCode());
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * 以命令行参数启动，优先级高于测试用的 application.properties。
+     */
+    private static ConfigurableApplicationContext startAgent(String id, long memoryBudgetMb) {
+        return new SpringApplicationBuilder(TmodloaderBoardApplication.class).run(
+                "--server.port=0",
+                "--tmodloader.paths.data-dir=target/test-data/nodes/agent-" + id,
+                "--tmodloader.allocator.memory-budget-mb=" + memoryBudgetMb);
+    }
+
+    private static int portOf(ConfigurableApplicationContext context) {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+}
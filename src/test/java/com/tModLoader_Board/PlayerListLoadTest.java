@@ -0,0 +1,129 @@
+package com.tModLoader_Board;
+
+import com.tModLoader_Board.Service.PlayerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.NestedTestConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 500 个并发 /manage/playerlist 请求的吞吐量对比: 平台线程 (改造前) vs 虚拟线程 (改造后)。
+ * 每个请求在服务端阻塞 500ms (与改造前 getPlayersOnline 固定等待的时间相同)，模拟一次需要等待控制台的冷查询。
+ * 要启动两个完整的上下文，默认的 mvn test 不跑，用 mvn test -Pload 运行。
+ */
+@Tag("load")
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+class PlayerListLoadTest {
+
+    private static final int CONCURRENT_REQUESTS = 500;
+    private static final long BLOCKING_MILLIS = 500;
+    private static final int WARMUP_ROUNDS = 5;
+
+    // 平台线程那一轮的结果，留给之后的虚拟线程那一轮比较
+    private static Double platformThroughput;
+
+    abstract static class LoadTestBase {
+
+        @LocalServerPort
+        int port;
+
+        @MockitoBean
+        PlayerRegistry playerRegistry;
+
+        @BeforeEach
+        void stubRegistry() throws Exception {
+            when(playerRegistry.getSnapshot(anyString())).thenAnswer(invocation -> {
+                Thread.sleep(BLOCKING_MILLIS);
+                return new PlayerRegistry.Snapshot(1, List.of("Alice", "Bob"));
+            });
+        }
+
+        double measureThroughput(String label) throws Exception {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://localhost:" + port + "/manage/playerlist?sessionName=tmodloader-load");
+
+            // 先跑几轮预热，排除 JIT 和建立连接对结果的影响
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runRound(client, uri);
+            }
+            long start = System.nanoTime();
+            runRound(client, uri);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double throughput = CONCURRENT_REQUESTS / seconds;
+            System.out.printf("[%s] %d 个并发请求耗时 %.3f s，吞吐量 %.1f req/s%n",
+                    label, CONCURRENT_REQUESTS, seconds, throughput);
+            return throughput;
+        }
+
+        private void runRound(HttpClient client, URI uri) {
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<CompletableFuture<Integer>> responses = new ArrayList<>();
+                for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                    responses.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return client.send(HttpRequest.newBuilder(uri).GET().build(),
+                                    HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            return -1;
+                        }
+                    }, clients));
+                }
+                for (CompletableFuture<Integer> response : responses) {
+                    assertEquals(200, response.join());
+                }
+            }
+        }
+    }
+
+    @Nested
+    @Order(1)
+    @NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = "spring.threads.virtual.enabled=false")
+    class PlatformThreads extends LoadTestBase {
+
+        @Test
+        void playerListThroughput() throws Exception {
+            platformThroughput = measureThroughput("平台线程 (改造前)");
+        }
+    }
+
+    @Nested
+    @Order(2)
+    @NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = "spring.threads.virtual.enabled=true")
+    class VirtualThreads extends LoadTestBase {
+
+        @Test
+        void playerListThroughput() throws Exception {
+            double throughput = measureThroughput("虚拟线程 (改造后)");
+            assertNotNull(platformThroughput, "平台线程那一轮没有跑或没有跑完");
+            assertTrue(throughput > platformThroughput,
+                    String.format("虚拟线程 %.1f req/s 没有超过平台线程 %.1f req/s", throughput, platformThroughput));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.tModLoader_Board.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 状态日志的恢复路径: 残缺的末尾记录、从最近的基准段开始回放、压缩中途崩溃留下的文件。
+ */
+class AppendOnlyLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final byte TYPE = 7;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsTruncatedAndOverwritten() throws IOException {
+        try (AppendOnlyLog log = open(new ArrayList<>())) {
+            append(log, "a", "b");
+        }
+        // 在最后一条记录之后伪造一条写了长度但内容没写完的记录
+        Path segment = segments().getLast();
+        long end = endOfRecords(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(13);
+            torn.putInt(40).putInt(0x12345678).put(TYPE).put("junk".getBytes(StandardCharsets.UTF_8)).flip();
+            channel.write(torn, end);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (AppendOnlyLog log = open(replayed)) {
+            assertEquals(List.of("a", "b"), replayed);
+            assertEquals(2, log.getRecords());
+            append(log, "c");
+        }
+        replayed.clear();
+        try (AppendOnlyLog ignored = open(replayed)) {
+            assertEquals(List.of("a", "b", "c"), replayed);
+        }
+    }
+
+    @Test
+    void replayStartsFromLatestBaseSegment() throws IOException {
+        try (AppendOnlyLog log = open(new ArrayList<>())) {
+            // 每条约 1KB，写满几个段
+            for (int i = 0; i < 10; i++) {
+                append(log, i + "-" + "x".repeat(1000));
+            }
+            assertTrue(segments().size() > 1);
+            log.compact(List.of(entry("base")));
+            append(log, "after");
+        }
+        assertEquals(1, segments().size());
+
+        List<String> replayed = new ArrayList<>();
+        try (AppendOnlyLog log = open(replayed)) {
+            assertEquals(List.of("base", "after"), replayed);
+            assertEquals(2, log.getRecords());
+        }
+    }
+
+    @Test
+    void unfinishedCompactionIsDiscarded() throws IOException {
+        try (AppendOnlyLog log = open(new ArrayList<>())) {
+            append(log, "a", "b");
+        }
+        // 崩溃在改名之前: 只留下一个写了一半的临时文件
+        Files.write(dir.resolve("00000002.seg.tmp"), new byte[100]);
+
+        List<String> replayed = new ArrayList<>();
+        try (AppendOnlyLog ignored = open(replayed)) {
+            assertEquals(List.of("a", "b"), replayed);
+        }
+        assertFalse(Files.exists(dir.resolve("00000002.seg.tmp")));
+    }
+
+    @Test
+    void segmentsBeforeRenamedBaseAreDeleted() throws IOException {
+        try (AppendOnlyLog log = open(new ArrayList<>())) {
+            append(log, "old");
+            log.compact(List.of(entry("base")));
+        }
+        // 崩溃在改名之后、删除旧段之前: 旧段还在，基准段之前的内容不能再被回放
+        Path base = segments().getLast();
+        Path stale = dir.resolve("00000001.seg");
+        Files.copy(base, stale);
+        try (FileChannel channel = FileChannel.open(stale, StandardOpenOption.WRITE)) {
+            // 去掉基准标志，当成普通的旧段
+            channel.write(ByteBuffer.allocate(2), 6);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (AppendOnlyLog ignored = open(replayed)) {
+            assertEquals(List.of("base"), replayed);
+        }
+        assertEquals(List.of(base), segments());
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    private AppendOnlyLog open(List<String> replayed) throws IOException {
+        AppendOnlyLog log = new AppendOnlyLog(dir, SEGMENT_SIZE, true);
+        log.open((type, payload) -> {
+            assertEquals(TYPE, type);
+            replayed.add(StandardCharsets.UTF_8.decode(payload).toString());
+        });
+        return log;
+    }
+
+    private static void append(AppendOnlyLog log, String... payloads) throws IOException {
+        for (String payload : payloads) {
+            log.append(TYPE, payload.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static AppendOnlyLog.Entry entry(String payload) {
+        return new AppendOnlyLog.Entry(TYPE, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    /**
+     * 段里第一个长度为 0 的位置。
+     */
+    private static long endOfRecords(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 16;
+        int length;
+        while ((length = buffer.getInt(position)) != 0) {
+            position += 9 + length;
+        }
+        return position;
+    }
+}
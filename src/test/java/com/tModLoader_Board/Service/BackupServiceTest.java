@@ -0,0 +1,146 @@
+package com.tModLoader_Board.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import com.tModLoader_Board.DTO.BackupSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 备份与恢复: 只改了一小段的世界只多存那一小段；恢复回到快照当时的文件；替换中途出错时原文件原样保留。
+ */
+class BackupServiceTest {
+
+    private static final String WORLD = "Alpha.wld";
+    private static final String MOD_DATA = "Alpha.twld";
+
+    @TempDir
+    Path dataDir;
+
+    private Path worlds;
+    private BackupService backupService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TmodloaderPaths paths = new TmodloaderPaths();
+        ReflectionTestUtils.setField(paths, "dataDir", dataDir.toString());
+        paths.init();
+        worlds = Files.createDirectories(Path.of(paths.getWorldPath()));
+
+        backupService = new BackupService();
+        ReflectionTestUtils.setField(backupService, "tmodloaderPaths", paths);
+        // 服务器没有在运行: isSessionRunning 默认返回 false，不会去发 save
+        ReflectionTestUtils.setField(backupService, "controlService", mock(ControlService.class));
+        ReflectionTestUtils.setField(backupService, "startService", mock(StartService.class));
+        ReflectionTestUtils.setField(backupService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(backupService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(backupService, "enabled", true);
+        ReflectionTestUtils.setField(backupService, "keep", 10);
+        ReflectionTestUtils.setField(backupService, "maxBytesPerSecond", 0L);
+        ReflectionTestUtils.setField(backupService, "saveTimeoutMillis", 1000L);
+        backupService.init();
+    }
+
+    @Test
+    void smallEditStoresOnlyChangedChunks() throws Exception {
+        byte[] world = random(2 * 1024 * 1024, 1);
+        Files.write(worlds.resolve(WORLD), world);
+        BackupSnapshot first = backupService.backup(WORLD, BackupService.TRIGGER_MANUAL);
+        assertTrue(first.getStoredBytes() > 0);
+
+        world[world.length / 2] ^= 1;
+        Files.write(worlds.resolve(WORLD), world);
+        BackupSnapshot second = backupService.backup(WORLD, BackupService.TRIGGER_MANUAL);
+        // 一个字节的改动只影响它所在的那一块 (最大 256KB，压缩前)
+        assertTrue(second.getStoredBytes() <= ContentDefinedChunker.MAX_CHUNK * 2L,
+                "新写入了 " + second.getStoredBytes() + " 字节");
+
+        // 没有变化时不生成新快照
+        assertEquals(second.getId(), backupService.backup(WORLD, BackupService.TRIGGER_MANUAL).getId());
+    }
+
+    @Test
+    void restoreBringsBackAllFilesAndKeepsPreRestoreSnapshot() throws Exception {
+        byte[] world = random(300 * 1024, 2);
+        byte[] modData = random(50 * 1024, 3);
+        Files.write(worlds.resolve(WORLD), world);
+        Files.write(worlds.resolve(MOD_DATA), modData);
+        BackupSnapshot snapshot = backupService.backup(WORLD, BackupService.TRIGGER_MANUAL);
+
+        // 之后世界被改写，.twld 也没了
+        Files.write(worlds.resolve(WORLD), random(300 * 1024, 4));
+        Files.delete(worlds.resolve(MOD_DATA));
+
+        backupService.restore(WORLD, snapshot.getId(), null);
+        assertArrayEquals(world, Files.readAllBytes(worlds.resolve(WORLD)));
+        assertArrayEquals(modData, Files.readAllBytes(worlds.resolve(MOD_DATA)));
+        assertEquals(List.of(), leftovers());
+
+        List<BackupSnapshot> snapshots = backupService.listSnapshots(WORLD);
+        assertEquals(2, snapshots.size());
+        assertEquals(BackupService.TRIGGER_PRE_RESTORE, snapshots.get(0).getTrigger());
+    }
+
+    @Test
+    void restoreDropsFilesTheSnapshotDidNotHave() throws Exception {
+        Files.write(worlds.resolve(WORLD), random(10 * 1024, 5));
+        BackupSnapshot snapshot = backupService.backup(WORLD, BackupService.TRIGGER_MANUAL);
+        Files.write(worlds.resolve(MOD_DATA), random(10 * 1024, 6));
+
+        backupService.restore(WORLD, snapshot.getId(), null);
+        assertFalse(Files.exists(worlds.resolve(MOD_DATA)));
+    }
+
+    @Test
+    void failedSwapLeavesCurrentFilesUntouched() throws Exception {
+        Files.write(worlds.resolve(WORLD), random(100 * 1024, 7));
+        Files.write(worlds.resolve(MOD_DATA), random(10 * 1024, 8));
+        BackupSnapshot snapshot = backupService.backup(WORLD, BackupService.TRIGGER_MANUAL);
+
+        byte[] current = random(100 * 1024, 9);
+        Files.write(worlds.resolve(WORLD), current);
+        // .twld 的位置被一个非空目录占着，.wld 换上之后替换 .twld 时一定失败
+        Files.delete(worlds.resolve(MOD_DATA));
+        Files.createDirectories(worlds.resolve(MOD_DATA).resolve("blocker"));
+
+        assertThrows(IOException.class, () -> backupService.restore(WORLD, snapshot.getId(), null));
+        assertArrayEquals(current, Files.readAllBytes(worlds.resolve(WORLD)));
+        assertEquals(List.of(), leftovers());
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    /**
+     * 恢复过程留下的临时文件和退路文件 (以点开头)。
+     */
+    private List<String> leftovers() throws IOException {
+        try (Stream<Path> files = Files.list(worlds)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith(".")).toList();
+        }
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
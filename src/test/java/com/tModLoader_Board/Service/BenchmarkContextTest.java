@@ -0,0 +1,37 @@
+package com.tModLoader_Board.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * benchmarks 里手工拼装的两种上下文都能启动: 服务多了新的依赖而 BenchmarkContext 没有注册时，这里会先失败，
+ * 不用等到有人去跑基准才发现。
+ */
+class BenchmarkContextTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void capturingBackendContextStarts() throws Exception {
+        try (AnnotationConfigApplicationContext context = BenchmarkContext.withBackend(BenchmarkContext.capturingBackend(List.of()))) {
+            assertEquals(List.of(), context.getBean(ControlService.class).getServerList());
+            assertNotNull(context.getBean(ResourceAllocator.class));
+        }
+    }
+
+    @Test
+    void directContextStarts() {
+        try (AnnotationConfigApplicationContext context = BenchmarkContext.direct(dataDir)) {
+            assertNotNull(context.getBean(CommandExecutor.class));
+            assertNotNull(context.getBean(DirectProcessBackend.class));
+        }
+    }
+}
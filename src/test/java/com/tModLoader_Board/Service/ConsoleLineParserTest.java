@@ -0,0 +1,155 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Service.ConsoleLineParser.Event;
+import com.tModLoader_Board.Service.ConsoleLineParser.Kind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * 控制台行的分类与字段位置: 每一行输入对应期望的种类、玩家名、值 (IP、聊天内容) 和人数。
+ */
+class ConsoleLineParserTest {
+
+    private final ConsoleLineParser parser = new ConsoleLineParser();
+
+    static Stream<Arguments> playerEntries() {
+        return Stream.of(
+                arguments(": Bob (127.0.0.1:50123)", "Bob", "127.0.0.1:50123"),
+                arguments(": Mr (Cool) Guy (10.0.0.2:7777)", "Mr (Cool) Guy", "10.0.0.2:7777"),
+                arguments(": (x) (1.2.3.4:5)", "(x)", "1.2.3.4:5"),
+                arguments(": Two  Spaces (192.168.1.9:61000)\r", "Two  Spaces", "192.168.1.9:61000"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("playerEntries")
+    void playerEntry(String line, String name, String address) {
+        Event event = parser.parse(line, 0);
+        assertEquals(Kind.PLAYER_ENTRY, event.getKind());
+        assertEquals(name, event.playerName());
+        assertEquals(address, event.value());
+    }
+
+    static Stream<Arguments> playerCounts() {
+        return Stream.of(
+                arguments("No players connected.", 0),
+                arguments(": No players connected.", 0),
+                arguments("1 player connected.", 1),
+                arguments("2 players connected.", 2),
+                arguments(": 16 players connected.", 16));
+    }
+
+    @ParameterizedTest
+    @MethodSource("playerCounts")
+    void playerCount(String line, int count) {
+        Event event = parser.parse(line, 0);
+        assertEquals(Kind.PLAYER_COUNT, event.getKind());
+        assertEquals(count, event.getCount());
+    }
+
+    static Stream<Arguments> joinsAndLeaves() {
+        return Stream.of(
+                arguments("Bob has joined.", Kind.PLAYER_JOINED, "Bob"),
+                arguments(": Bob has joined.", Kind.PLAYER_JOINED, "Bob"),
+                arguments("Bob (AFK) has joined.", Kind.PLAYER_JOINED, "Bob (AFK)"),
+                arguments("Bob has left.", Kind.PLAYER_LEFT, "Bob"),
+                arguments("  Red Dragon has left.\r", Kind.PLAYER_LEFT, "Red Dragon"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("joinsAndLeaves")
+    void joinAndLeave(String line, Kind kind, String name) {
+        Event event = parser.parse(line, 0);
+        assertEquals(kind, event.getKind());
+        assertEquals(name, event.playerName());
+    }
+
+    static Stream<Arguments> chats() {
+        return Stream.of(
+                arguments("<Bob> hello there", "Bob", "hello there"),
+                arguments(": <Bob> hi", "Bob", "hi"),
+                arguments("<Bob> ", "Bob", ""),
+                // 聊天内容长得像其他格式时仍然是聊天
+                arguments("<Bob> Server started", "Bob", "Server started"),
+                arguments("<Bob> Alice has joined.", "Bob", "Alice has joined."),
+                arguments("<Bob> 3 players connected.", "Bob", "3 players connected."),
+                arguments("<Eve> : Mallory (6.6.6.6:1)", "Eve", ": Mallory (6.6.6.6:1)"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("chats")
+    void chat(String line, String name, String message) {
+        Event event = parser.parse(line, 0);
+        assertEquals(Kind.CHAT, event.getKind());
+        assertEquals(name, event.playerName());
+        assertEquals(message, event.value());
+    }
+
+    static Stream<Arguments> otherKinds() {
+        return Stream.of(
+                arguments("Server started", Kind.SERVER_STARTED),
+                arguments(": Server started", Kind.SERVER_STARTED),
+                arguments("Bob said Server started", Kind.OTHER),
+                arguments("[12:00:00] [Main/ERROR] [tML]: boom", Kind.ERROR),
+                arguments("System.NullReferenceException: Object reference not set", Kind.ERROR),
+                arguments("   at Terraria.Main.Update() in Main.cs:line 10", Kind.ERROR),
+                arguments("1 players connected.", Kind.OTHER),
+                arguments("Listening on port 7777", Kind.OTHER),
+                arguments(": ", Kind.OTHER),
+                arguments("", Kind.OTHER),
+                arguments("<>", Kind.OTHER),
+                arguments(" has joined.", Kind.OTHER));
+    }
+
+    @ParameterizedTest
+    @MethodSource("otherKinds")
+    void kind(String line, Kind kind) {
+        assertEquals(kind, parser.parse(line, 0).getKind());
+    }
+
+    static Stream<Arguments> prompts() {
+        return Stream.of(
+                arguments("Choose World: ", true),
+                arguments("Choose World:", true),
+                arguments("Enter world name: ", true),
+                arguments("Max players (press enter for 16): ", true),
+                arguments("Server port (press enter for 7777): ", true),
+                arguments("Automatically forward port? (y/n): ", true),
+                arguments("Server password (press enter for none): ", true),
+                arguments("Choose World", false),
+                arguments("<Bob> Choose World:", false),
+                arguments("1\t\tAlpha", false),
+                arguments("", false));
+    }
+
+    @ParameterizedTest
+    @MethodSource("prompts")
+    void inputPrompt(String text, boolean prompt) {
+        assertEquals(prompt, ConsoleLineParser.isInputPrompt(text));
+    }
+
+    @Test
+    void parsesRangeOfReusedBuffer() {
+        StringBuilder buffer = new StringBuilder("xxBob has joined.\r\nyy");
+        Event event = parser.parse(buffer, 2, buffer.indexOf("\n"), 42);
+        assertEquals(Kind.PLAYER_JOINED, event.getKind());
+        assertEquals("Bob", event.playerName());
+        assertEquals(42, event.getSequence());
+    }
+
+    @Test
+    void serverStartedPredicateIgnoresChat() {
+        assertTrue(CommandExecutor.SERVER_STARTED.test("Server started"));
+        assertTrue(CommandExecutor.SERVER_STARTED.test(": Server started\r"));
+        assertFalse(CommandExecutor.SERVER_STARTED.test("<Bob> Server started"));
+        assertFalse(CommandExecutor.SERVER_STARTED.test("Bob: Server started?"));
+    }
+}
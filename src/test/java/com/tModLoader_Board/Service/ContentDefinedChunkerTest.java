@@ -0,0 +1,110 @@
+package com.tModLoader_Board.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 切块: 块大小的上下限、拼回去等于原文、切点只取决于内容 (中间插入数据后大部分块不变)。
+ */
+class ContentDefinedChunkerTest {
+
+    @Test
+    void chunksReassembleWithinBounds() throws Exception {
+        byte[] data = random(3 * 1024 * 1024, 1);
+        List<byte[]> chunks = split(data);
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).length;
+            assertTrue(length <= ContentDefinedChunker.MAX_CHUNK, "第 " + i + " 块有 " + length + " 字节");
+            if (i < chunks.size() - 1) {
+                assertTrue(length >= ContentDefinedChunker.MIN_CHUNK, "第 " + i + " 块只有 " + length + " 字节");
+            }
+            joined.write(chunks.get(i));
+        }
+        assertArrayEquals(data, joined.toByteArray());
+        // 平均约 64KB，3MB 不该只切出几块，也不该切得太碎
+        assertTrue(chunks.size() > 10 && chunks.size() < 200, "切出了 " + chunks.size() + " 块");
+    }
+
+    @Test
+    void uniformInputIsCutAtMaxChunk() throws Exception {
+        // 全 0 的内容滚动哈希不会命中切点，只能按上限切
+        List<byte[]> chunks = split(new byte[ContentDefinedChunker.MAX_CHUNK * 2 + 100]);
+        assertEquals(3, chunks.size());
+        assertEquals(ContentDefinedChunker.MAX_CHUNK, chunks.get(0).length);
+        assertEquals(ContentDefinedChunker.MAX_CHUNK, chunks.get(1).length);
+        assertEquals(100, chunks.get(2).length);
+    }
+
+    @Test
+    void smallAndEmptyInputs() throws Exception {
+        assertEquals(0, split(new byte[0]).size());
+        List<byte[]> chunks = split(random(1000, 2));
+        assertEquals(1, chunks.size());
+        assertEquals(1000, chunks.get(0).length);
+    }
+
+    @Test
+    void insertionOnlyChangesNearbyChunks() throws Exception {
+        byte[] original = random(4 * 1024 * 1024, 3);
+        byte[] edited = new byte[original.length + 100];
+        int at = original.length / 2;
+        System.arraycopy(original, 0, edited, 0, at);
+        System.arraycopy(random(100, 4), 0, edited, at, 100);
+        System.arraycopy(original, at, edited, at + 100, original.length - at);
+
+        Set<String> before = new HashSet<>(hashes(split(original)));
+        List<String> after = hashes(split(edited));
+        long reused = after.stream().filter(before::contains).count();
+        // 插入点所在的那一两块变了，前后的块都能复用
+        assertTrue(after.size() - reused <= 2, "只复用了 " + reused + "/" + after.size() + " 块");
+    }
+
+    @Test
+    void cutPointsAreDeterministic() throws Exception {
+        byte[] data = random(1024 * 1024, 5);
+        assertEquals(hashes(split(data)), hashes(split(data)));
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    private static List<byte[]> split(byte[] data) throws Exception {
+        List<byte[]> chunks = new ArrayList<>();
+        new ContentDefinedChunker().split(new ByteArrayInputStream(data), (chunk, length) -> {
+            byte[] copy = new byte[length];
+            System.arraycopy(chunk, 0, copy, 0, length);
+            chunks.add(copy);
+        });
+        return chunks;
+    }
+
+    private static List<String> hashes(List<byte[]> chunks) throws Exception {
+        List<String> hashes = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            hashes.add(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(chunk)));
+        }
+        return hashes;
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
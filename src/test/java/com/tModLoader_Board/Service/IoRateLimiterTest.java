@@ -0,0 +1,64 @@
+package com.tModLoader_Board.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 限速器: 不限速时不阻塞；多个线程一起申请时总速率不超过上限。
+ */
+class IoRateLimiterTest {
+
+    private static final long RATE = 10 * 1024 * 1024;
+
+    @Test
+    void unlimitedNeverBlocks() throws Exception {
+        IoRateLimiter limiter = new IoRateLimiter(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(Long.MAX_VALUE / 2);
+        }
+        assertTrue(elapsedMillis(start) < 500);
+    }
+
+    @Test
+    void initialBurstIsFree() throws Exception {
+        IoRateLimiter limiter = new IoRateLimiter(RATE);
+        long start = System.nanoTime();
+        limiter.acquire(RATE);
+        assertTrue(elapsedMillis(start) < 200);
+    }
+
+    @Test
+    void concurrentCallersShareTheRate() throws Exception {
+        IoRateLimiter limiter = new IoRateLimiter(RATE);
+        // 先用掉攒下的一秒额度，之后 8 个线程各申请 RATE / 10，总共要等约 0.8 秒
+        limiter.acquire(RATE);
+        long start = System.nanoTime();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(threads.submit(() -> {
+                    limiter.acquire(RATE / 10);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = elapsedMillis(start);
+        assertTrue(elapsed >= 700, "只用了 " + elapsed + " ms，超过了速率上限");
+        assertTrue(elapsed < 3000, "用了 " + elapsed + " ms，等待的时间被叠加了");
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
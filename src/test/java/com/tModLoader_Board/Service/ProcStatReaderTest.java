@@ -0,0 +1,155 @@
+package com.tModLoader_Board.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * /proc/&lt;pid&gt;/stat、status、io 的解析和进程树的累加，用一个按 procfs 结构摆好文件的临时目录代替 /proc。
+ */
+class ProcStatReaderTest {
+
+    @TempDir
+    Path proc;
+
+    @Test
+    void parsesStatStatusAndIo() throws Exception {
+        process(100, "dotnet", 150, 50, 7, 2048);
+        io(100, 4096, 8192);
+
+        ProcStatReader.Totals totals = new ProcStatReader.Totals();
+        assertTrue(new ProcStatReader(proc).accumulate(100, totals));
+        assertEquals(200, totals.cpuTicks);
+        assertEquals(7, totals.threads);
+        assertEquals(2048 * 1024, totals.rssBytes);
+        assertEquals(4096, totals.readBytes);
+        assertEquals(8192, totals.writeBytes);
+        assertTrue(totals.ioAvailable);
+        assertEquals(1, totals.processes);
+    }
+
+    @Test
+    void commWithSpacesAndParentheses() throws Exception {
+        // comm 最长 15 个字符，可以是任意内容；字段要从最后一个 ')' 之后开始数
+        for (String comm : new String[]{"my server", "a) b (c", ") S 1 2 3 4", "(x)"}) {
+            process(200, comm, 31, 9, 3, 100);
+            ProcStatReader.Totals totals = new ProcStatReader.Totals();
+            assertTrue(new ProcStatReader(proc).accumulate(200, totals), comm);
+            assertEquals(40, totals.cpuTicks, comm);
+            assertEquals(3, totals.threads, comm);
+        }
+    }
+
+    @Test
+    void missingFiles() throws Exception {
+        ProcStatReader reader = new ProcStatReader(proc);
+        ProcStatReader.Totals totals = new ProcStatReader.Totals();
+        // 进程已经退出
+        assertFalse(reader.accumulate(300, totals));
+        assertEquals(0, totals.processes);
+
+        // 内核线程没有 VmRSS；别的用户的进程读不到 io
+        Files.createDirectories(proc.resolve("301"));
+        Files.writeString(proc.resolve("301/stat"), stat(301, "kworker/0:1", 5, 5, 1));
+        Files.writeString(proc.resolve("301/status"), "Name:\tkworker/0:1\nThreads:\t1\n");
+        assertTrue(reader.accumulate(301, totals));
+        assertEquals(0, totals.rssBytes);
+        assertEquals(10, totals.cpuTicks);
+        assertFalse(totals.ioAvailable);
+    }
+
+    @Test
+    void accumulatesWholeTree() throws Exception {
+        // 100 (启动脚本) -> 101 (dotnet)，dotnet 的两个线程各创建了一个子进程 102、103；103 -> 104
+        // 105 已经退出，只剩下父进程 children 文件里的记录
+        for (long pid : new long[]{100, 101, 102, 103, 104}) {
+            process(pid, "p" + pid, 10, 0, 1, 1);
+            io(pid, 1, 1);
+        }
+        children(100, 100, "101");
+        children(101, 101, "");
+        children(101, 110, "102 ");
+        children(101, 111, "103 105");
+        children(103, 103, "104\n");
+
+        ProcStatReader.Totals totals = new ProcStatReader.Totals();
+        assertTrue(new ProcStatReader(proc).accumulateTree(100, totals));
+        assertEquals(5, totals.processes);
+        assertEquals(50, totals.cpuTicks);
+        assertEquals(5 * 1024, totals.rssBytes);
+        assertEquals(5, totals.readBytes);
+
+        // 子树也可以单独统计
+        totals.clear();
+        assertTrue(new ProcStatReader(proc).accumulateTree(103, totals));
+        assertEquals(2, totals.processes);
+    }
+
+    @Test
+    void wideTreeGrowsQueue() throws Exception {
+        process(1, "init", 1, 0, 1, 1);
+        StringBuilder list = new StringBuilder();
+        for (int pid = 1000; pid < 1200; pid++) {
+            process(pid, "worker", 1, 0, 1, 1);
+            list.append(pid).append(' ');
+        }
+        children(1, 1, list.toString());
+
+        ProcStatReader.Totals totals = new ProcStatReader.Totals();
+        assertTrue(new ProcStatReader(proc).accumulateTree(1, totals));
+        assertEquals(201, totals.processes);
+    }
+
+    @Test
+    void findsRealChildProcess() throws Exception {
+        assumeTrue(Files.isReadable(Path.of("/proc/self/task")), "需要 Linux 的 /proc");
+        Process child = new ProcessBuilder("sleep", "30").start();
+        try {
+            ProcStatReader.Totals totals = new ProcStatReader.Totals();
+            assertTrue(new ProcStatReader().accumulateTree(ProcessHandle.current().pid(), totals));
+            assertTrue(totals.processes >= 2, "只找到 " + totals.processes + " 个进程");
+            assertTrue(totals.threads > 1);
+            assertTrue(totals.rssBytes > 0);
+        } finally {
+            child.destroy();
+            child.waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    private void process(long pid, String comm, long utime, long stime, int threads, long rssKb) throws Exception {
+        Path dir = Files.createDirectories(proc.resolve(Long.toString(pid)));
+        Files.writeString(dir.resolve("stat"), stat(pid, comm, utime, stime, threads));
+        Files.writeString(dir.resolve("status"), "Name:\t" + comm + "\nState:\tS (sleeping)\nVmPeak:\t  99999 kB\n"
+                + "VmRSS:\t  " + rssKb + " kB\nThreads:\t" + threads + "\n");
+    }
+
+    private void io(long pid, long read, long write) throws Exception {
+        Files.writeString(proc.resolve(pid + "/io"), "rchar: 123\nwchar: 456\nsyscr: 1\nsyscw: 2\n"
+                + "read_bytes: " + read + "\nwrite_bytes: " + write + "\ncancelled_write_bytes: 999\n");
+    }
+
+    private void children(long pid, long tid, String children) throws Exception {
+        Path task = Files.createDirectories(proc.resolve(pid + "/task/" + tid));
+        Files.writeString(task.resolve("children"), children);
+    }
+
+    /**
+     * 和内核的格式一致: pid (comm) state ppid ... 第 14、15 列是 utime、stime，第 20 列是线程数。
+     */
+    private static String stat(long pid, String comm, long utime, long stime, int threads) {
+        return pid + " (" + comm + ") S 1 " + pid + " " + pid + " 0 -1 4194560 2000 0 3 0 "
+                + utime + " " + stime + " 0 0 20 0 " + threads + " 0 123456 987654321 300 18446744073709551615 1 1 0 0 0 0 0 0 0 0 0 0 17 2 0 0 0 0 0\n";
+    }
+}
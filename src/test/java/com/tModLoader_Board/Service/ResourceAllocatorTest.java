@@ -0,0 +1,78 @@
+package com.tModLoader_Board.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 对账不能释放创建任务还在进行中的预留，即使它已经等了比启动超时更久。
+ */
+class ResourceAllocatorTest {
+
+    private final List<String> sessions = new ArrayList<>();
+    private ResourceAllocator allocator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ServerProcessBackend backend = mock(ServerProcessBackend.class);
+        when(backend.listSessions()).thenAnswer(invocation -> List.copyOf(sessions));
+        allocator = new ResourceAllocator();
+        ReflectionTestUtils.setField(allocator, "processBackend", backend);
+        ReflectionTestUtils.setField(allocator, "resourceMonitor", new ResourceMonitor());
+        ReflectionTestUtils.setField(allocator, "processExecutor", Executors.newVirtualThreadPerTaskExecutor());
+        ReflectionTestUtils.setField(allocator, "meterRegistry", new SimpleMeterRegistry());
+        // 端口范围取得偏一些，避免和本机上正在用的端口冲突
+        ReflectionTestUtils.setField(allocator, "portRange", "47770-47779");
+        ReflectionTestUtils.setField(allocator, "memoryBudgetMb", 8192L);
+        ReflectionTestUtils.setField(allocator, "cpuBudgetConfig", 4.0);
+        ReflectionTestUtils.setField(allocator, "serverMemoryMb", 1024L);
+        ReflectionTestUtils.setField(allocator, "modMemoryMb", 64L);
+        ReflectionTestUtils.setField(allocator, "serverCpu", 0.5);
+        ReflectionTestUtils.setField(allocator, "queueTimeoutMillis", 1000L);
+        // 任何还没启动起来的预留都立即算超时
+        ReflectionTestUtils.setField(allocator, "startupTimeoutMillis", -1L);
+        allocator.init();
+    }
+
+    @Test
+    void pendingReservationSurvivesReconcile() throws Exception {
+        int port = allocator.reserve("tmodloader-A", null, 0);
+        allocator.reconcile();
+
+        assertEquals(1, allocator.getStatus().getReservations().size());
+        // 端口仍然被 A 占着，下一个任务不会分到同一个
+        assertNotEquals(port, allocator.reserve("tmodloader-B", null, 0));
+    }
+
+    @Test
+    void confirmedReservationIsReleasedWhenSessionDisappears() throws Exception {
+        allocator.reserve("tmodloader-A", null, 0);
+        sessions.add("tmodloader-A");
+        allocator.confirm("tmodloader-A");
+        allocator.reconcile();
+        assertEquals(1, allocator.getStatus().getReservations().size());
+
+        sessions.clear();
+        allocator.reconcile();
+        assertTrue(allocator.getStatus().getReservations().isEmpty());
+        assertEquals(0, allocator.getStatus().getPortsUsed());
+    }
+
+    @Test
+    void warmReservationStillTimesOut() {
+        assertTrue(allocator.tryReserve("tmodloader-warm-1", 0));
+        allocator.reconcile();
+        assertTrue(allocator.getStatus().getReservations().isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.DTO.ServerStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 环形数组里的历史: 写满后覆盖最早的样本，降采样按时间顺序均分成若干段，每段取平均 (内存取最大)。
+ */
+class ResourceMonitorTest {
+
+    private static final long PID = 4242;
+    private static final long START = 1_000_000;
+
+    /**
+     * 第 k 次采样距上一次 1 秒，期间用了 k 个时钟滴答 (k% CPU)、读了 k KB；内存是 k MB。
+     */
+    private static void record(ResourceMonitor.Series series, int k, long pid, boolean ioAvailable) {
+        ProcStatReader.Totals totals = new ProcStatReader.Totals();
+        long cumulative = (long) k * (k + 1) / 2;
+        totals.cpuTicks = cumulative;
+        totals.readBytes = cumulative * 1024;
+        totals.writeBytes = cumulative * 2048;
+        totals.rssBytes = k * 1024L * 1024;
+        totals.ioAvailable = ioAvailable;
+        totals.processes = 2;
+        totals.threads = 30;
+        series.record(START + k * 1000L, pid, totals);
+    }
+
+    /**
+     * 容量 6，记录第 0..9 次采样: 第 0 次只是起点，环里留下的是第 4..9 次。
+     */
+    private static ResourceMonitor.Series filledSeries() {
+        ResourceMonitor.Series series = new ResourceMonitor.Series(6);
+        for (int k = 0; k <= 9; k++) {
+            record(series, k, PID, k != 8);
+        }
+        return series;
+    }
+
+    @Test
+    void needsTwoSamplesForRates() {
+        ResourceMonitor.Series series = new ResourceMonitor.Series(6);
+        record(series, 0, PID, true);
+        assertNull(series.toStats(10));
+        record(series, 1, PID, true);
+        assertEquals(1, series.toStats(10).getHistory().getTimestamps().length);
+    }
+
+    @Test
+    void latestValuesComeFromNewestSample() {
+        ServerStats stats = filledSeries().toStats(10);
+        assertEquals(PID, stats.getPid());
+        assertEquals(START + 9000, stats.getSampledAt());
+        assertEquals(9.0, stats.getCpuPercent(), 1e-6);
+        assertEquals(9L * 1024 * 1024, stats.getRssBytes());
+        assertEquals(2, stats.getProcesses());
+        assertEquals(30, stats.getThreads());
+        // 第 8 次读不到 io，第 9 次的速率也算不出来
+        assertEquals(-1, stats.getReadBytesPerSecond(), 1e-6);
+    }
+
+    @Test
+    void evenBuckets() {
+        ServerStats.History history = filledSeries().toStats(3).getHistory();
+        assertArrayEquals(new long[]{START + 5000, START + 7000, START + 9000}, history.getTimestamps());
+        assertArrayEquals(new double[]{4.5, 6.5, 8.5}, history.getCpuPercent(), 1e-6);
+        assertArrayEquals(new long[]{5L << 20, 7L << 20, 9L << 20}, history.getRssBytes());
+        assertArrayEquals(new double[]{4.5 * 1024, 6.5 * 1024, -1}, history.getReadBytesPerSecond(), 1e-3);
+        assertArrayEquals(new double[]{4.5 * 2048, 6.5 * 2048, -1}, history.getWriteBytesPerSecond(), 1e-3);
+    }
+
+    @Test
+    void unevenBuckets() {
+        // 6 个样本分 4 段: 1、2、1、2 个
+        ServerStats.History history = filledSeries().toStats(4).getHistory();
+        assertArrayEquals(new long[]{START + 4000, START + 6000, START + 7000, START + 9000}, history.getTimestamps());
+        assertArrayEquals(new double[]{4, 5.5, 7, 8.5}, history.getCpuPercent(), 1e-6);
+    }
+
+    @Test
+    void morePointsThanSamples() {
+        ServerStats.History history = filledSeries().toStats(100).getHistory();
+        assertArrayEquals(new double[]{4, 5, 6, 7, 8, 9}, history.getCpuPercent(), 1e-6);
+    }
+
+    @Test
+    void pidChangeRestartsRates() {
+        ResourceMonitor.Series series = new ResourceMonitor.Series(6);
+        record(series, 0, PID, true);
+        record(series, 1, PID, true);
+        // 服务器重启换了进程号: 这一次只作为新的起点，不产生样本
+        record(series, 2, PID + 1, true);
+        assertEquals(1, series.toStats(10).getHistory().getTimestamps().length);
+        record(series, 3, PID + 1, true);
+        assertArrayEquals(new double[]{1, 3}, series.toStats(10).getHistory().getCpuPercent(), 1e-6);
+        assertEquals(PID + 1, series.toStats(10).getPid());
+    }
+}
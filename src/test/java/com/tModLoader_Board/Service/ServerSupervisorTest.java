@@ -0,0 +1,187 @@
+package com.tModLoader_Board.Service;
+
+import com.tModLoader_Board.Config.TmodloaderPaths;
+import com.tModLoader_Board.DTO.GameConfig;
+import com.tModLoader_Board.DTO.SupervisedServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 守护进程: 重启间隔按崩溃次数翻倍并封顶，窗口内崩溃太多次进入崩溃循环；
+ * 主动结束的会话不算崩溃；控制台只是安静、没有别的卡死迹象时不发探测命令。
+ */
+class ServerSupervisorTest {
+
+    private static final String SESSION = "tmodloader-Alpha";
+    private static final long BACKOFF_INITIAL = 60_000;
+    private static final long BACKOFF_MAX = 200_000;
+
+    @TempDir
+    Path dataDir;
+
+    private final ConsoleStreamService consoleStreamService = mock(ConsoleStreamService.class);
+    private final ControlService controlService = mock(ControlService.class);
+    private final CommandExecutor commandExecutor = mock(CommandExecutor.class);
+    private final ResourceMonitor resourceMonitor = mock(ResourceMonitor.class);
+    private final ProvisioningService provisioningService = mock(ProvisioningService.class);
+    private final StateStore stateStore = mock(StateStore.class);
+    private ServerSupervisor supervisor;
+    private Consumer<ConsoleBuffer> attachListener;
+    private Consumer<String> stopListener;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TmodloaderPaths paths = new TmodloaderPaths();
+        ReflectionTestUtils.setField(paths, "dataDir", dataDir.toString());
+        paths.init();
+        when(controlService.getServerList()).thenReturn(List.of());
+        // 有启动配置才会安排重启
+        when(provisioningService.getLaunchConfig(SESSION)).thenReturn(new GameConfig());
+
+        supervisor = new ServerSupervisor();
+        ReflectionTestUtils.setField(supervisor, "consoleStreamService", consoleStreamService);
+        ReflectionTestUtils.setField(supervisor, "processBackend", mock(ServerProcessBackend.class));
+        ReflectionTestUtils.setField(supervisor, "controlService", controlService);
+        ReflectionTestUtils.setField(supervisor, "commandExecutor", commandExecutor);
+        ReflectionTestUtils.setField(supervisor, "resourceMonitor", resourceMonitor);
+        ReflectionTestUtils.setField(supervisor, "provisioningService", provisioningService);
+        ReflectionTestUtils.setField(supervisor, "stateStore", stateStore);
+        ReflectionTestUtils.setField(supervisor, "tmodloaderPaths", paths);
+        ReflectionTestUtils.setField(supervisor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(supervisor, "enabled", true);
+        ReflectionTestUtils.setField(supervisor, "heartbeatMillis", 0L);
+        ReflectionTestUtils.setField(supervisor, "probeTimeoutMillis", 1000L);
+        // 重启间隔足够长，测试期间不会真的去重启
+        ReflectionTestUtils.setField(supervisor, "backoffInitialMillis", BACKOFF_INITIAL);
+        ReflectionTestUtils.setField(supervisor, "backoffMaxMillis", BACKOFF_MAX);
+        ReflectionTestUtils.setField(supervisor, "crashLoopWindowMillis", 600_000L);
+        ReflectionTestUtils.setField(supervisor, "maxRestarts", 4);
+        ReflectionTestUtils.setField(supervisor, "reportLines", 10);
+        supervisor.init();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<ConsoleBuffer>> attach = ArgumentCaptor.forClass(Consumer.class);
+        verify(consoleStreamService).addAttachListener(attach.capture());
+        attachListener = attach.getValue();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> stop = ArgumentCaptor.forClass(Consumer.class);
+        verify(controlService).addStopListener(stop.capture());
+        stopListener = stop.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        supervisor.shutdown();
+    }
+
+    @Test
+    void backoffDoublesUpToMaxThenStopsOnCrashLoop() throws Exception {
+        long[] expected = {BACKOFF_INITIAL, BACKOFF_INITIAL * 2, BACKOFF_MAX, BACKOFF_MAX};
+        for (int i = 0; i < expected.length; i++) {
+            crashOnce();
+            SupervisedServer server = awaitCrashes(i + 1);
+            assertEquals(ServerSupervisor.RESTARTING, server.getStatus());
+            assertEquals(expected[i], server.getNextRestartAt() - server.getLastCrashAt(), "第 " + (i + 1) + " 次崩溃");
+        }
+
+        // 第 max-restarts + 1 次崩溃不再安排重启
+        crashOnce();
+        SupervisedServer server = awaitCrashes(expected.length + 1);
+        assertEquals(ServerSupervisor.CRASH_LOOP, server.getStatus());
+        assertEquals(0, server.getNextRestartAt());
+        verify(stateStore).recordLifecycle(eq(StateStore.CRASH_LOOP_EVENT), eq(SESSION), anyString());
+    }
+
+    @Test
+    void announcedStopIsNotACrash() throws Exception {
+        ConsoleBuffer buffer = attach();
+        stopListener.accept(SESSION);
+        buffer.close();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!supervisor.getServers().isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("主动结束的会话仍然留在守护列表里");
+            }
+            Thread.sleep(20);
+        }
+        verify(stateStore, never()).recordLifecycle(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void quietServerIsOnlyProbedWithAnotherSignOfHang() {
+        when(commandExecutor.execute(anyString(), anyString(), any(), anyLong())).thenReturn(new CompletableFuture<>());
+        attach().append("Server started");
+
+        supervisor.checkLiveness();
+        verify(commandExecutor, never()).execute(anyString(), anyString(), any(), anyLong());
+
+        when(resourceMonitor.isStalled(eq(SESSION), anyLong())).thenReturn(true);
+        supervisor.checkLiveness();
+        verify(commandExecutor).execute(eq(SESSION), eq("playing"), any(), anyLong());
+    }
+
+    @Test
+    void commandTimeoutAfterLastOutputTriggersProbe() {
+        when(commandExecutor.execute(anyString(), anyString(), any(), anyLong())).thenReturn(new CompletableFuture<>());
+        attach().append("Server started");
+        when(commandExecutor.getLastTimeout(SESSION)).thenReturn(System.currentTimeMillis() + 1);
+
+        supervisor.checkLiveness();
+        verify(commandExecutor).execute(eq(SESSION), eq("playing"), any(), anyLong());
+    }
+
+    // ===================================================================================
+    // 工具
+    // ===================================================================================
+
+    private ConsoleBuffer attach() {
+        ConsoleBuffer buffer = new ConsoleBuffer(SESSION, 100);
+        attachListener.accept(buffer);
+        return buffer;
+    }
+
+    /**
+     * 接上一个新的输出流 (相当于重启后的服务器) 然后让它结束；进程检查默认返回 false，按进程退出处理。
+     */
+    private void crashOnce() {
+        ConsoleBuffer buffer = attach();
+        buffer.append("boom");
+        buffer.close();
+    }
+
+    private SupervisedServer awaitCrashes(int crashes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            List<SupervisedServer> servers = supervisor.getServers();
+            if (!servers.isEmpty() && servers.get(0).getRecentCrashes() == crashes && servers.get(0).getStatus() != null
+                    && !ServerSupervisor.STARTING.equals(servers.get(0).getStatus())) {
+                return servers.get(0);
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "等待第 " + crashes + " 次崩溃被处理超时");
+            Thread.sleep(20);
+        }
+    }
+}